@@ -13,4 +13,30 @@ public class AuditConfig {
     public static boolean isEnabled() {
         return Boolean.parseBoolean(CoreConfigProperies.get("audit.enable"));
     }
+
+    public static SnapshotFormat getSnapshotFormat() {
+        return SnapshotFormat.valueOf(CoreConfigProperies.get("audit.snapshotFormat", SnapshotFormat.turtle.name()));
+    }
+
+    /**
+     * @return true if snapshots of models with same content should be stored only once
+     */
+    public static boolean isSnapshotDeduplication() {
+        return Boolean.parseBoolean(CoreConfigProperies.get("audit.snapshotDeduplication", "true"));
+    }
+
+    public static boolean isWriteBehind() {
+        return Boolean.parseBoolean(CoreConfigProperies.get("audit.writeBehind.enable", "false"));
+    }
+
+    public static int getWriteBehindThreads() {
+        return Integer.parseInt(CoreConfigProperies.get("audit.writeBehind.threads", "2"));
+    }
+
+    /**
+     * @return maximal number of logging tasks holding snapshots of models that wait for serialization
+     */
+    public static int getWriteBehindMaxPendingTasks() {
+        return Integer.parseInt(CoreConfigProperies.get("audit.writeBehind.maxPendingTasks", "100"));
+    }
 }
@@ -0,0 +1,18 @@
+package cz.cvut.spipes.config;
+
+/**
+ * Defines which statements of a model are validated by constraints of a module.
+ */
+public enum ConstraintValidationMode {
+    /**
+     * Constraints are validated against the whole model.
+     */
+    full,
+    /**
+     * Constraints are validated against a deterministic sample of the model, thus some violations might not be
+     * detected. A constraint that joins statements of different subjects can be violated on the sample although
+     * the whole model satisfies it, thus violations found on the sample are reported only if the whole model
+     * violates the constraint as well.
+     */
+    sample;
+}
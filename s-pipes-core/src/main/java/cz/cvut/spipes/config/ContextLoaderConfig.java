@@ -15,4 +15,42 @@ public class ContextLoaderConfig {
                 .map(path -> Paths.get(path))
                 .collect(Collectors.toList());
     }
+
+    public static boolean isParallelLoading() {
+        return Boolean.parseBoolean(CoreConfigProperies.get("contextsLoader.parallel", "false"));
+    }
+
+    public static int getLoadingParallelism() {
+        String parallelism = CoreConfigProperies.get("contextsLoader.parallelism", "");
+        if (parallelism.isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Integer.parseInt(parallelism);
+    }
+
+    public static long getWatchDebounceMillis() {
+        return Long.parseLong(CoreConfigProperies.get("contextsLoader.watch.debounceMillis", "500"));
+    }
+
+    public static long getWatchPollIntervalMillis() {
+        return Long.parseLong(CoreConfigProperies.get("contextsLoader.watch.pollIntervalMillis", "5000"));
+    }
+
+    /**
+     * @return true if script directories should be polled even if file system supports watch service.
+     */
+    public static boolean isWatchPollingForced() {
+        return Boolean.parseBoolean(CoreConfigProperies.get("contextsLoader.watch.polling", "false"));
+    }
+
+    /**
+     * @return directory of snapshot of parsed script documents or null if the snapshot is disabled.
+     */
+    public static Path getSnapshotPath() {
+        String snapshotPath = CoreConfigProperies.get("contexts.snapshotPath", "");
+        if (snapshotPath.isEmpty()) {
+            return null;
+        }
+        return Paths.get(snapshotPath);
+    }
 }
@@ -0,0 +1,15 @@
+package cz.cvut.spipes.config;
+
+/**
+ * Defines how output models of modules are merged before they are passed to a module with multiple input modules.
+ */
+public enum ContextMergeMode {
+    /**
+     * Statements of all models are copied to a new model.
+     */
+    copy,
+    /**
+     * Models are shared through a union that is copied only when the consuming module modifies it.
+     */
+    union;
+}
@@ -22,6 +22,104 @@ public class ExecutionConfig {
                 "true"));
     }
 
+    public static int getConstraintValidationParallelism() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.constraintValidation.parallelism",
+                "1"));
+    }
+
+    public static boolean isConstraintValidationFailFast() {
+        return Boolean.parseBoolean(CoreConfigProperies.get(
+                "execution.constraintValidation.failFast",
+                "false"));
+    }
+
+    public static ConstraintValidationMode getConstraintValidationMode() {
+        return ConstraintValidationMode.valueOf(CoreConfigProperies.get(
+                "execution.constraintValidation.mode",
+                ConstraintValidationMode.full.toString()));
+    }
+
+    public static int getConstraintValidationSampleSize() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.constraintValidation.sampleSize",
+                "100000"));
+    }
+
+    public static long getConstraintValidationSampleSeed() {
+        return Long.parseLong(CoreConfigProperies.get(
+                "execution.constraintValidation.sampleSeed",
+                "0"));
+    }
+
+    /**
+     * @return number of violations after which validation of module constraints stops, 0 means no limit
+     */
+    public static int getConstraintValidationMaxViolations() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.constraintValidation.maxViolations",
+                "0"));
+    }
+
+    /**
+     * @return time in milliseconds after which remaining module constraints are not validated, 0 means no limit
+     */
+    public static int getConstraintValidationTimeBudgetMillis() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.constraintValidation.timeBudgetMillis",
+                "0"));
+    }
+
+    public static boolean isParallelExecution() {
+        return Boolean.parseBoolean(CoreConfigProperies.get(
+                "execution.parallel",
+                "false"));
+    }
+
+    public static int getParallelism() {
+        String parallelism = CoreConfigProperies.get("execution.parallelism", "");
+        if (parallelism.isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Integer.parseInt(parallelism);
+    }
+
+    public static boolean isAsyncProgressListeners() {
+        return Boolean.parseBoolean(CoreConfigProperies.get(
+                "execution.progressListeners.async",
+                "false"));
+    }
+
+    public static int getProgressListenerQueueCapacity() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.progressListeners.queueCapacity",
+                "10000"));
+    }
+
+    public static ListenerBackpressurePolicy getProgressListenerBackpressurePolicy() {
+        return ListenerBackpressurePolicy.valueOf(CoreConfigProperies.get(
+                "execution.progressListeners.backpressurePolicy",
+                ListenerBackpressurePolicy.block.toString()));
+    }
+
+    public static int getProgressListenerSampleInterval() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.progressListeners.sampleInterval",
+                "10"));
+    }
+
+    public static ContextMergeMode getContextMergeMode() {
+        return ContextMergeMode.valueOf(CoreConfigProperies.get(
+                "execution.contextMergeMode",
+                ContextMergeMode.copy.toString()));
+    }
+
+    public static int getQueryCacheSize() {
+        return Integer.parseInt(CoreConfigProperies.get(
+                "execution.queryCacheSize",
+                "1000"));
+    }
+
     public static String getConfigUrl() {
         return CoreConfigProperies.get("execution.configUrl", "config.ttl");
     }
@@ -0,0 +1,39 @@
+package cz.cvut.spipes.config;
+
+import cz.cvut.spipes.util.CoreConfigProperies;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class JobsConfig {
+
+    /**
+     * @return number of threads executing asynchronous jobs
+     */
+    public static int getWorkerThreads() {
+        return Integer.parseInt(CoreConfigProperies.get("jobs.workerThreads", "4"));
+    }
+
+    /**
+     * @return maximal number of jobs waiting for a worker thread, further jobs are rejected
+     */
+    public static int getQueueCapacity() {
+        return Integer.parseInt(CoreConfigProperies.get("jobs.queueCapacity", "100"));
+    }
+
+    public static Path getResultDirectoryPath() {
+        String path = CoreConfigProperies.get("jobs.resultDirectoryPath", "");
+        return path.isEmpty() ? ExecutionConfig.getTempDirectoryPath().resolve("jobs") : Paths.get(path);
+    }
+
+    /**
+     * @return time after a job is finished when the job and its result are removed
+     */
+    public static long getResultTimeToLiveMillis() {
+        return Long.parseLong(CoreConfigProperies.get("jobs.resultTimeToLiveMillis", "3600000"));
+    }
+
+    public static long getEvictionIntervalMillis() {
+        return Long.parseLong(CoreConfigProperies.get("jobs.evictionIntervalMillis", "60000"));
+    }
+}
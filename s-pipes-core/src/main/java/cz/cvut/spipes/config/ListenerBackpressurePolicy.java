@@ -0,0 +1,20 @@
+package cz.cvut.spipes.config;
+
+/**
+ * Defines how events of a pipeline execution are handled when the queue of an asynchronous progress listener is full.
+ * Pipeline events and finish events of delivered module events are never dropped.
+ */
+public enum ListenerBackpressurePolicy {
+    /**
+     * Execution of the pipeline waits until the listener processes queued events.
+     */
+    block,
+    /**
+     * Events of module executions are dropped.
+     */
+    drop,
+    /**
+     * Events of every n-th module execution are delivered, events of other module executions are dropped.
+     */
+    sample;
+}
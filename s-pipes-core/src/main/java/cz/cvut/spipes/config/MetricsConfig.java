@@ -0,0 +1,20 @@
+package cz.cvut.spipes.config;
+
+import cz.cvut.spipes.util.CoreConfigProperies;
+
+public class MetricsConfig {
+
+    /**
+     * @return true if metrics of module executions should be collected by every execution engine
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(CoreConfigProperies.get("metrics.enable", "false"));
+    }
+
+    /**
+     * @return number of traces of latest pipeline executions that are kept in memory
+     */
+    public static int getMaxRetainedTraces() {
+        return Integer.parseInt(CoreConfigProperies.get("metrics.traces.maxRetained", "100"));
+    }
+}
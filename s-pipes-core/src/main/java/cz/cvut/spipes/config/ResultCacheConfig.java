@@ -0,0 +1,28 @@
+package cz.cvut.spipes.config;
+
+import cz.cvut.spipes.util.CoreConfigProperies;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class ResultCacheConfig {
+
+    /**
+     * @return true if results of functions marked as cacheable in scripts should be cached
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(CoreConfigProperies.get("resultCache.enable", "false"));
+    }
+
+    /**
+     * @return maximal number of cached results kept in memory, other cached results are read from disk
+     */
+    public static int getMaxMemoryEntries() {
+        return Integer.parseInt(CoreConfigProperies.get("resultCache.maxMemoryEntries", "100"));
+    }
+
+    public static Path getDirectoryPath() {
+        String path = CoreConfigProperies.get("resultCache.directoryPath", "");
+        return path.isEmpty() ? ExecutionConfig.getTempDirectoryPath().resolve("result-cache") : Paths.get(path);
+    }
+}
@@ -0,0 +1,29 @@
+package cz.cvut.spipes.config;
+
+/**
+ * Defines format of files with snapshots of models that are written for debugging and audit.
+ */
+public enum SnapshotFormat {
+    /**
+     * Turtle, readable but slowest to write.
+     */
+    turtle(".ttl"),
+    /**
+     * N-Triples compressed by gzip.
+     */
+    ntriplesGzip(".nt.gz"),
+    /**
+     * Binary RDF Thrift, fastest to write and read.
+     */
+    thrift(".rt");
+
+    private final String fileExtension;
+
+    SnapshotFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
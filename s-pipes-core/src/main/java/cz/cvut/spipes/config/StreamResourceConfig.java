@@ -0,0 +1,40 @@
+package cz.cvut.spipes.config;
+
+import cz.cvut.spipes.util.CoreConfigProperies;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class StreamResourceConfig {
+
+    /**
+     * @return maximal size of a stream resource kept in memory, larger resources are stored in temporary files
+     */
+    public static long getMemoryThresholdBytes() {
+        return Long.parseLong(CoreConfigProperies.get("streamResources.memoryThresholdBytes", "10485760"));
+    }
+
+    public static Path getSpillDirectoryPath() {
+        String path = CoreConfigProperies.get("streamResources.spillDirectoryPath", "");
+        return path.isEmpty() ? ExecutionConfig.getTempDirectoryPath() : Paths.get(path);
+    }
+
+    /**
+     * @return time after the last access of a stream resource when it is removed, 0 if resources do not expire
+     */
+    public static long getTimeToLiveMillis() {
+        return Long.parseLong(CoreConfigProperies.get("streamResources.timeToLiveMillis", "3600000"));
+    }
+
+    /**
+     * @return maximal total size of registered stream resources, least recently accessed resources are removed
+     * above the size, 0 if the size is not limited
+     */
+    public static long getMaxTotalBytes() {
+        return Long.parseLong(CoreConfigProperies.get("streamResources.maxTotalBytes", "0"));
+    }
+
+    public static long getEvictionIntervalMillis() {
+        return Long.parseLong(CoreConfigProperies.get("streamResources.evictionIntervalMillis", "60000"));
+    }
+}
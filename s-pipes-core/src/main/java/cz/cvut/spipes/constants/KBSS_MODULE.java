@@ -19,7 +19,14 @@ public class KBSS_MODULE {
     public static final Property has_debug_mode_flag = property("has-debug-mode-flag");
     public static final Property is_parse_text = property("is-parse-text");
     public static final Property has_max_iteration_count = property("has-max-iteration-count");
+    public static final Property is_semi_naive = property("is-semi-naive");
     public static final Property has_resource_uri = property("has-resource-uri");
+    public static final Property has_constraint_validation_mode = property("has-constraint-validation-mode");
+    public static final Property has_constraint_validation_sample_size = property("has-constraint-validation-sample-size");
+    public static final Property has_constraint_validation_max_violations = property("has-constraint-validation-max-violations");
+    public static final Property has_constraint_validation_time_budget = property("has-constraint-validation-time-budget");
+    // maximal age in seconds of cached results of a function, functions without it are not cached
+    public static final Property has_result_cache_max_age = property("has-result-cache-max-age");
 
     // states that reified statement belongs to specific named graph identified by uri
     public static final Property is_part_of_graph = property("is-part-of-graph");
@@ -0,0 +1,156 @@
+package cz.cvut.spipes.engine;
+
+import cz.cvut.spipes.config.ListenerBackpressurePolicy;
+import cz.cvut.spipes.modules.Module;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress listener that passes events to another listener asynchronously, so that the listener does not slow
+ * down execution of pipelines.
+ * <p>
+ * Events are queued in a bounded queue and delivered to the listener in the same order by a single worker at a time.
+ * Workers are taken from a shared pool of daemon threads only while there are queued events. If the queue is full,
+ * events are handled according to {@link ListenerBackpressurePolicy}. The listener receives modules and contexts
+ * after the engine already continued, thus it should not rely on state of the module that changes in later
+ * executions.
+ */
+final class AsyncProgressListener implements ProgressListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncProgressListener.class);
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "spipes-progress-listener");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProgressListener listener;
+    private final BlockingQueue<Runnable> queue;
+    private final ListenerBackpressurePolicy policy;
+    private final int sampleInterval;
+
+    private final AtomicBoolean isDraining = new AtomicBoolean(false);
+    private final Set<String> droppedModuleExecutionIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong pressuredModuleExecutionCount = new AtomicLong();
+    private final AtomicLong droppedEventCount = new AtomicLong();
+
+    /**
+     * @param listener listener that receives the events
+     * @param queueCapacity maximal number of events waiting for the listener
+     * @param policy handling of events when the queue is full
+     * @param sampleInterval events of every sampleInterval-th module execution are delivered if the queue is full,
+     *                       used only by {@link ListenerBackpressurePolicy#sample}
+     */
+    AsyncProgressListener(ProgressListener listener,
+                          int queueCapacity,
+                          ListenerBackpressurePolicy policy,
+                          int sampleInterval) {
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.policy = policy;
+        this.sampleInterval = Math.max(1, sampleInterval);
+    }
+
+    ProgressListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return number of events that were not delivered to the listener
+     */
+    long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+
+    @Override
+    public void pipelineExecutionStarted(long pipelineExecutionId) {
+        put(() -> listener.pipelineExecutionStarted(pipelineExecutionId));
+    }
+
+    @Override
+    public void pipelineExecutionFinished(long pipelineExecutionId) {
+        put(() -> listener.pipelineExecutionFinished(pipelineExecutionId));
+    }
+
+    @Override
+    public void moduleExecutionStarted(long pipelineExecutionId,
+                                       String moduleExecutionId,
+                                       Module outputModule,
+                                       ExecutionContext inputContext,
+                                       String predecessorModuleExecutionId) {
+        Runnable event = () -> listener.moduleExecutionStarted(
+            pipelineExecutionId, moduleExecutionId, outputModule, inputContext, predecessorModuleExecutionId
+        );
+        if (queue.offer(event)) {
+            scheduleDrain();
+        } else if (policy == ListenerBackpressurePolicy.block || isSampled()) {
+            put(event);
+        } else {
+            droppedModuleExecutionIds.add(moduleExecutionId);
+            droppedEventCount.incrementAndGet();
+            LOG.trace("Queue of listener {} is full, dropping events of module execution {}.", listener, moduleExecutionId);
+        }
+    }
+
+    @Override
+    public void moduleExecutionFinished(long pipelineExecutionId, String moduleExecutionId, Module outputModule) {
+        // keep started and finished events of a module execution consistent
+        if (droppedModuleExecutionIds.remove(moduleExecutionId)) {
+            droppedEventCount.incrementAndGet();
+            return;
+        }
+        put(() -> listener.moduleExecutionFinished(pipelineExecutionId, moduleExecutionId, outputModule));
+    }
+
+    private boolean isSampled() {
+        return policy == ListenerBackpressurePolicy.sample
+            && pressuredModuleExecutionCount.getAndIncrement() % sampleInterval == 0;
+    }
+
+    private void put(Runnable event) {
+        try {
+            queue.put(event);
+            scheduleDrain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedEventCount.incrementAndGet();
+            LOG.warn("Interrupted while waiting for listener {}, event was dropped.", listener);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (isDraining.compareAndSet(false, true)) {
+            WORKERS.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            Runnable event;
+            while ((event = queue.poll()) != null) {
+                try {
+                    event.run();
+                } catch (final Exception e) {
+                    LOG.warn("Listener {} failed.", listener, e);
+                }
+            }
+            isDraining.set(false);
+            // an event might have been queued after the queue was found empty
+        } while (!queue.isEmpty() && isDraining.compareAndSet(false, true));
+    }
+
+    @Override
+    public String toString() {
+        return "async " + listener;
+    }
+}
@@ -1,9 +1,15 @@
 package cz.cvut.spipes.engine;
 
+import cz.cvut.spipes.config.MetricsConfig;
+import cz.cvut.spipes.metrics.MetricsProgressListener;
+
 public class ExecutionEngineFactory {
     public static ExecutionEngine createEngine() {
         final ExecutionEngine e = new ExecutionEngineImpl();
         e.addProgressListener(new LoggingProgressListener());
+        if (MetricsConfig.isEnabled()) {
+            e.addProgressListener(new MetricsProgressListener());
+        }
         return e;
     }
 }
@@ -1,39 +1,80 @@
 package cz.cvut.spipes.engine;
 
+import cz.cvut.spipes.config.ContextMergeMode;
+import cz.cvut.spipes.config.ExecutionConfig;
+import cz.cvut.spipes.exception.SPipesException;
 import cz.cvut.spipes.modules.Module;
+import cz.cvut.spipes.util.JenaUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Instant;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 class ExecutionEngineImpl implements ExecutionEngine {
 
     private static Logger LOG = LoggerFactory.getLogger(ExecutionEngineImpl.class);
 
-    private Set<ProgressListener> listeners = new HashSet<>();
+    private static final ExecutionIdGenerator executionIdGenerator = new ExecutionIdGenerator();
 
-    private static int i = 0 ;
+    // registered listener -> listener that is notified, i.e. the registered one or its asynchronous wrapper
+    private final Map<ProgressListener, ProgressListener> listeners = new ConcurrentHashMap<>();
+
+    private final boolean isParallel;
+
+    private final Executor moduleExecutor;
+
+    ExecutionEngineImpl() {
+        this(ExecutionConfig.isParallelExecution(), null);
+    }
+
+    /**
+     * @param isParallel if true, independent branches of a pipeline are executed concurrently
+     * @param moduleExecutor executor of modules used only if isParallel is true, null for the executor
+     *                       shared by all engines, which executes at most {@link ExecutionConfig#getParallelism()}
+     *                       modules at the same time
+     */
+    ExecutionEngineImpl(boolean isParallel, Executor moduleExecutor) {
+        this.isParallel = isParallel;
+        this.moduleExecutor = (isParallel && moduleExecutor == null) ? SharedModuleExecutorHolder.EXECUTOR : moduleExecutor;
+    }
 
     public ExecutionContext executePipeline(final Module module, final ExecutionContext inputContext) {
         LOG.info("Executing script {} with context {}.", module.getResource(), inputContext.toSimpleString());
-        final long pipelineExecutionId = Instant.now().toEpochMilli()*1000+(i++);
+        final long pipelineExecutionId = executionIdGenerator.nextId();
 
         fire((l) -> {l.pipelineExecutionStarted(pipelineExecutionId); return null;});
-        ExecutionContext outputContext = _executePipeline(pipelineExecutionId, module, inputContext, null);
+        ExecutionContext outputContext = (isParallel)
+            ? _executePipelineInParallel(pipelineExecutionId, module, inputContext)
+            : _executePipeline(pipelineExecutionId, module, inputContext, null, new IdentityHashMap<>());
         fire((l) -> {l.pipelineExecutionFinished(pipelineExecutionId); return null;});
         return outputContext;
     }
 
     private void fire(final Function<ProgressListener,Void> function) {
-        listeners.forEach( (listener) -> {
+        listeners.values().forEach( (listener) -> {
             try {
                 function.apply(listener);
             } catch(final Exception e) {
@@ -42,12 +83,19 @@ class ExecutionEngineImpl implements ExecutionEngine {
         });
     }
 
-    private ExecutionContext _executePipeline(long pipelineExecutionId, Module module, ExecutionContext context, String predecessorId) {
+    /**
+     * @param module2OutputContext output contexts of modules already executed within this pipeline execution
+     */
+    private ExecutionContext _executePipeline(long pipelineExecutionId,
+                                              Module module,
+                                              ExecutionContext context,
+                                              String predecessorId,
+                                              Map<Module, ExecutionContext> module2OutputContext) {
         final String moduleExecutionId = pipelineExecutionId + "-"+module.hashCode() + "-"+context.hashCode();
 
 
         // module has run already
-        if (module.getOutputContext() != null) {
+        if (module2OutputContext.containsKey(module)) {
             module.addOutputBindings(context.getVariablesBinding());
             fire((l) -> {l.moduleExecutionFinished(pipelineExecutionId, moduleExecutionId, module); return null;});
             return module.getOutputContext();
@@ -57,27 +105,30 @@ class ExecutionEngineImpl implements ExecutionEngine {
         if (module.getInputModules().isEmpty()) {
             fire((l) -> {l.moduleExecutionStarted(pipelineExecutionId, moduleExecutionId, module, context, predecessorId); return null;});
 
-            if (module.getExecutionContext() != null) {
-                LOG.debug("Execution context for module {} already set.", module);
-            } else {
-                module.setInputContext(context);
+            module.setInputContext(context);
 
-                LOG.info(" ##### " + module.getLabel());
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("Using input context {}", context.toTruncatedSimpleString()); //TODO redundant code -> merge
-                }
-                ExecutionContext outputContext = module.execute();
-                if (LOG.isTraceEnabled()) {
-                    LOG.trace("Returning output context {}", outputContext.toSimpleString());
-                }
-                module.addOutputBindings(context.getVariablesBinding());
+            LOG.info(" ##### " + module.getLabel());
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Using input context {}", context.toTruncatedSimpleString()); //TODO redundant code -> merge
+            }
+            ExecutionContext outputContext = module.execute();
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Returning output context {}", outputContext.toSimpleString());
             }
+            module.addOutputBindings(context.getVariablesBinding());
+            module2OutputContext.put(module, module.getOutputContext());
+
             fire((l) -> {l.moduleExecutionFinished(pipelineExecutionId, moduleExecutionId, module); return null;});
             return module.getOutputContext();
         }
 
-        Map<Resource, ExecutionContext> resource2ContextMap = module.getInputModules().stream()
-                .collect(Collectors.toMap(Module::getResource, mod -> this._executePipeline(pipelineExecutionId, mod, context, moduleExecutionId)));
+        Map<Resource, ExecutionContext> resource2ContextMap = new LinkedHashMap<>();
+        module.getInputModules().forEach(
+            mod -> resource2ContextMap.put(
+                mod.getResource(),
+                this._executePipeline(pipelineExecutionId, mod, context, moduleExecutionId, module2OutputContext)
+            )
+        );
 
 
         LOG.info(" ##### " + module.getLabel());
@@ -94,10 +145,107 @@ class ExecutionEngineImpl implements ExecutionEngine {
             LOG.trace("Returning output context {}", outputContext.toSimpleString());
         }
         module.addOutputBindings(mergedContext.getVariablesBinding());
+        module2OutputContext.put(module, module.getOutputContext());
         fire((l) -> {l.moduleExecutionFinished(pipelineExecutionId, moduleExecutionId, module); return null;});
         return module.getOutputContext();
     }
 
+    /**
+     * Executes modules of the pipeline on the shared bounded pool of worker threads. Each module is chained
+     * on completion of all its input modules, so it is executed as soon as its inputs finished, regardless
+     * of other modules. Merging of input contexts happens on the worker thread executing the module.
+     * <p>
+     * Listener callbacks are fired on the calling thread by a {@link ListenerSequencer} -- moduleExecutionStarted
+     * and moduleExecutionFinished callbacks are each fired in the topological order of the pipeline
+     * (see {@link PipelineDag}), started callback of a module always precedes its finished callback.
+     */
+    private ExecutionContext _executePipelineInParallel(long pipelineExecutionId, Module outputModule, ExecutionContext context) {
+        final PipelineDag dag = new PipelineDag(outputModule);
+        final List<Module> modules = dag.getOrderedModules();
+        final ListenerSequencer sequencer = new ListenerSequencer(modules.size());
+
+        // modules are ordered topologically, so futures of input modules are created before the module's one
+        final List<CompletableFuture<ExecutionContext>> futures = new ArrayList<>(modules.size());
+        for (Module module : modules) {
+            final int index = dag.getIndex(module);
+            if (module.getInputModules().isEmpty()) {
+                futures.add(CompletableFuture.supplyAsync(
+                    () -> executeModule(module, context, index, sequencer),
+                    moduleExecutor
+                ));
+                continue;
+            }
+            final List<CompletableFuture<ExecutionContext>> inputFutures = module.getInputModules().stream()
+                .map(m -> futures.get(dag.getIndex(m)))
+                .collect(Collectors.toList());
+            futures.add(
+                CompletableFuture.allOf(inputFutures.toArray(new CompletableFuture[0])).thenApplyAsync(
+                    v -> {
+                        Map<Resource, ExecutionContext> resource2ContextMap = new LinkedHashMap<>();
+                        for (int i = 0; i < inputFutures.size(); i++) {
+                            resource2ContextMap.put(module.getInputModules().get(i).getResource(), inputFutures.get(i).join());
+                        }
+                        ExecutionContext mergedContext = mergeContexts(resource2ContextMap);
+                        if (LOG.isTraceEnabled()) {
+                            LOG.trace("Using input merged context {}", mergedContext.toTruncatedSimpleString());
+                        }
+                        return executeModule(module, mergedContext, index, sequencer);
+                    },
+                    moduleExecutor
+                )
+            );
+        }
+
+        final CompletableFuture<Void> allModules = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        allModules.whenComplete((v, e) -> sequencer.signal());
+
+        // each module is executed only once within the pipeline, thus its input context does not need to be part of the id
+        final Map<Module, String> module2ExecutionId = new HashMap<>();
+        modules.forEach(m -> module2ExecutionId.put(m, pipelineExecutionId + "-" + m.hashCode() + "-" + context.hashCode()));
+
+        sequencer.fireEvents(
+            allModules,
+            index -> {
+                final Module module = modules.get(index);
+                final String predecessorId = dag.getSuccessors(module).stream()
+                    .findFirst().map(module2ExecutionId::get).orElse(null);
+                final ExecutionContext inputContext = sequencer.getInputContext(index);
+                fire((l) -> {l.moduleExecutionStarted(pipelineExecutionId, module2ExecutionId.get(module), module, inputContext, predecessorId); return null;});
+            },
+            index -> {
+                final Module module = modules.get(index);
+                fire((l) -> {l.moduleExecutionFinished(pipelineExecutionId, module2ExecutionId.get(module), module); return null;});
+            }
+        );
+
+        try {
+            allModules.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SPipesException("Execution of a module failed.", e.getCause());
+        }
+        return outputModule.getOutputContext();
+    }
+
+    private ExecutionContext executeModule(Module module, ExecutionContext context, int index, ListenerSequencer sequencer) {
+        sequencer.started(index, context);
+        module.setInputContext(context);
+
+        LOG.info(" ##### " + module.getLabel());
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Using input context {}", context.toTruncatedSimpleString());
+        }
+        ExecutionContext outputContext = module.execute();
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Returning output context {}", outputContext.toSimpleString());
+        }
+        module.addOutputBindings(context.getVariablesBinding());
+        sequencer.finished(index);
+        return module.getOutputContext();
+    }
+
     private ExecutionContext createMergedExecutionContext(ExecutionContext executionContext, VariablesBinding additionalVariablesBinding) {
         VariablesBinding mergedVarsBinding = new VariablesBinding(executionContext.getVariablesBinding().asQuerySolution());
         mergedVarsBinding.extendConsistently(additionalVariablesBinding);
@@ -105,12 +253,16 @@ class ExecutionEngineImpl implements ExecutionEngine {
     }
 
 
+    /**
+     * Merges output contexts of input modules. Depending on {@link ExecutionConfig#getContextMergeMode()},
+     * models are either copied to a new model or shared through a copy-on-write union
+     * that is copied only if the consuming module modifies it.
+     */
     // TODO optimize :
-    //      1) dynamic union -- ModelFactory.createUnion()
     //      2) modules should not modify Model but create new ones + immutable Model
     private ExecutionContext mergeContexts(Map<Resource, ExecutionContext> resource2ContextMap) {
 
-        Model newModel = ModelFactory.createDefaultModel();
+        List<Model> models = new ArrayList<>(resource2ContextMap.size());
         VariablesBinding variablesBinding = new VariablesBinding();
 
 
@@ -120,7 +272,7 @@ class ExecutionEngineImpl implements ExecutionEngine {
             ExecutionContext context = e.getValue();
 
             // merge models
-            newModel.add(context.getDefaultModel());
+            models.add(context.getDefaultModel());
 
             // merge variable bindings
             VariablesBinding b = e.getValue().getVariablesBinding();
@@ -132,21 +284,113 @@ class ExecutionEngineImpl implements ExecutionEngine {
             }
         });
 
+        Model newModel;
+        if (ExecutionConfig.getContextMergeMode() == ContextMergeMode.union) {
+            newModel = JenaUtils.createUnion(models.toArray(new Model[0]));
+        } else {
+            newModel = ModelFactory.createDefaultModel();
+            models.forEach(newModel::add);
+        }
 
         return ExecutionContextFactory.createContext(newModel, variablesBinding);
     }
 
+    /**
+     * Collects start and finish events of modules executed by worker threads and fires listener callbacks
+     * for them on a single thread in the topological order of modules. Callbacks of a module are postponed
+     * until callbacks of all modules preceding it were fired, execution of modules is never postponed.
+     */
+    private static class ListenerSequencer {
+        private final AtomicReferenceArray<ExecutionContext> inputContexts;
+        private final AtomicIntegerArray finished;
+        private final BlockingQueue<Boolean> signals = new LinkedBlockingQueue<>();
+
+        ListenerSequencer(int moduleCount) {
+            this.inputContexts = new AtomicReferenceArray<>(moduleCount);
+            this.finished = new AtomicIntegerArray(moduleCount);
+        }
+
+        void started(int index, ExecutionContext inputContext) {
+            inputContexts.set(index, inputContext);
+            signal();
+        }
+
+        void finished(int index) {
+            finished.set(index, 1);
+            signal();
+        }
+
+        void signal() {
+            signals.add(Boolean.TRUE);
+        }
+
+        ExecutionContext getInputContext(int index) {
+            return inputContexts.get(index);
+        }
+
+        /**
+         * Fires callbacks of started and finished modules until all modules are completed.
+         */
+        void fireEvents(CompletableFuture<?> allModules, IntConsumer startedCallback, IntConsumer finishedCallback) {
+            int moduleCount = finished.length();
+            int startedIndex = 0;
+            int finishedIndex = 0;
+            while (true) {
+                boolean isCompleted = allModules.isDone();
+                while (startedIndex < moduleCount && inputContexts.get(startedIndex) != null) {
+                    startedCallback.accept(startedIndex++);
+                }
+                while (finishedIndex < startedIndex && finished.get(finishedIndex) == 1) {
+                    finishedCallback.accept(finishedIndex++);
+                }
+                // modules depending on a failed module are never started
+                if (finishedIndex == moduleCount || isCompleted) {
+                    return;
+                }
+                try {
+                    signals.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SPipesException("Interrupted while waiting for execution of a module.", e);
+                }
+            }
+        }
+    }
+
+    private static class SharedModuleExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            ExecutionConfig.getParallelism(),
+            new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "spipes-module-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+    }
+
+    /**
+     * Adds the listener. If {@link ExecutionConfig#isAsyncProgressListeners()} is true, the listener is notified
+     * asynchronously through {@link AsyncProgressListener}.
+     */
     @Override
     public void addProgressListener(final ProgressListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+        listeners.computeIfAbsent(listener, l -> ExecutionConfig.isAsyncProgressListeners()
+            ? new AsyncProgressListener(
+                l,
+                ExecutionConfig.getProgressListenerQueueCapacity(),
+                ExecutionConfig.getProgressListenerBackpressurePolicy(),
+                ExecutionConfig.getProgressListenerSampleInterval())
+            : l
+        );
     }
 
     @Override
     public void removeProgressListener(final ProgressListener listener) {
-        if (listeners.contains(listener)) {
-            listeners.remove(listener);
-        }
+        listeners.remove(listener);
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package cz.cvut.spipes.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates ids of pipeline executions. Id is the current time in milliseconds multiplied by 1000, so that up to
+ * 1000 ids can be generated within one millisecond. If more ids are requested or the clock goes backwards, the id
+ * is derived from the previous one instead, thus ids are unique and increasing even under concurrent use.
+ */
+final class ExecutionIdGenerator {
+
+    private static final int IDS_PER_MILLISECOND = 1000;
+
+    private final AtomicLong lastId = new AtomicLong();
+    private final LongSupplier clock;
+
+    ExecutionIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock supplier of the current time in milliseconds
+     */
+    ExecutionIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    long nextId() {
+        final long timeBasedId = clock.getAsLong() * IDS_PER_MILLISECOND;
+        return lastId.updateAndGet(previousId -> Math.max(timeBasedId, previousId + 1));
+    }
+}
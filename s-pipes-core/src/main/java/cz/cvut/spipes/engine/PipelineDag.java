@@ -0,0 +1,83 @@
+package cz.cvut.spipes.engine;
+
+import cz.cvut.spipes.exception.SPipesException;
+import cz.cvut.spipes.modules.Module;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Directed acyclic graph of modules reachable from an output module through its input modules.
+ *
+ * Modules are ordered topologically by their depth (length of the longest path from a module without input
+ * modules), ties are broken by the order in which sequential execution would visit the modules. The order
+ * is therefore deterministic for a given pipeline.
+ */
+class PipelineDag {
+
+    private final List<Module> orderedModules;
+    private final Map<Module, Integer> module2Index;
+    private final Map<Module, List<Module>> module2Successors;
+
+    PipelineDag(Module outputModule) {
+        List<Module> postOrder = new LinkedList<>();
+        visit(outputModule, new HashSet<>(), new HashSet<>(), postOrder);
+
+        Map<Module, Integer> module2Depth = new HashMap<>();
+        postOrder.forEach(m -> module2Depth.put(
+            m,
+            m.getInputModules().stream().mapToInt(i -> module2Depth.get(i) + 1).max().orElse(0)
+        ));
+
+        List<Module> modules = new ArrayList<>(postOrder);
+        modules.sort(Comparator.comparing(module2Depth::get)); // stable, keeps post-order for ties
+        orderedModules = Collections.unmodifiableList(modules);
+
+        module2Index = new HashMap<>();
+        module2Successors = new LinkedHashMap<>();
+        for (int i = 0; i < orderedModules.size(); i++) {
+            module2Index.put(orderedModules.get(i), i);
+            module2Successors.put(orderedModules.get(i), new LinkedList<>());
+        }
+        orderedModules.forEach(m -> m.getInputModules().forEach(i -> module2Successors.get(i).add(m)));
+    }
+
+    /**
+     * @return all modules of the pipeline in deterministic topological order.
+     */
+    List<Module> getOrderedModules() {
+        return orderedModules;
+    }
+
+    int getIndex(Module module) {
+        return module2Index.get(module);
+    }
+
+    /**
+     * @return modules that consume output of the given module, in topological order.
+     */
+    List<Module> getSuccessors(Module module) {
+        return module2Successors.get(module);
+    }
+
+    private static void visit(Module module, Set<Module> visiting, Set<Module> visited, List<Module> postOrder) {
+        if (visited.contains(module)) {
+            return;
+        }
+        if (!visiting.add(module)) {
+            throw new SPipesException("Pipeline contains a cycle going through module " + module.getResource() + ".");
+        }
+        module.getInputModules().forEach(i -> visit(i, visiting, visited, postOrder));
+        visiting.remove(module);
+        visited.add(module);
+        postOrder.add(module);
+    }
+}
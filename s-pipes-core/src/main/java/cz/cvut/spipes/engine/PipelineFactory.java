@@ -72,8 +72,9 @@ public class PipelineFactory {
                         .setScanners(new SubTypesScanner())
         );
 
+        // non-public classes (e.g. helper modules of tests) cannot be instantiated and are not module types
         List<Class<? extends Module>> moduleClasses = reflections.getSubTypesOf(Module.class).stream().filter(
-                c -> !Modifier.isAbstract(c.getModifiers())
+                c -> !Modifier.isAbstract(c.getModifiers()) && Modifier.isPublic(c.getModifiers())
         ).collect(Collectors.toList());
 
         moduleClasses.forEach(
@@ -120,15 +121,18 @@ public class PipelineFactory {
         return loadModule(moduleRes, moduleTypeRes);
     }
 
-    // TODO not very effective
+    /**
+     * Loads pipeline whose output module is the resource.
+     *
+     * @param resource resource of the output module
+     * @return output module or null if the resource is not an output module of registered type
+     */
     public static Module loadPipeline(@NotNull Resource resource) {
-        return loadPipelines(resource.getModel()).stream().filter(m -> {
-            //TODO does not work on annonymous node
-            if (resource.getURI().equals(m.getResource().getURI())) {
-                return true;
-            }
-            return false;
-        }).findAny().orElse(null);
+        PipelineTemplate template = PipelineTemplate.compile(resource);
+        if (template == null || !template.isOutputModule()) {
+            return null;
+        }
+        return template.instantiate();
     }
 
     /**
@@ -241,6 +245,7 @@ public class PipelineFactory {
 
 
     public static Module loadModulePipeline(Resource returnModuleRes) {
-        return loadAllModules(returnModuleRes.getModel()).get(returnModuleRes);
+        PipelineTemplate template = PipelineTemplate.compile(returnModuleRes);
+        return (template != null) ? template.instantiate() : null;
     }
 }
@@ -0,0 +1,134 @@
+package cz.cvut.spipes.engine;
+
+import cz.cvut.spipes.constants.SM;
+import cz.cvut.spipes.modules.Module;
+import cz.cvut.spipes.util.JenaPipelineUtils;
+import org.apache.jena.rdf.model.Resource;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable pipeline compiled from its configuration, i.e. module classes and links between modules
+ * reachable from a root module through {@link SM#next} are resolved once. New module instances
+ * are created from the template by {@link #instantiate()} without querying the configuration model again,
+ * so the template can be cached and shared by concurrent executions.
+ * <p>
+ * The configuration model is expected not to change while the template is used.
+ */
+public class PipelineTemplate {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PipelineTemplate.class);
+
+    // modules in order in which they can be instantiated, i.e. inputs of a module precede the module
+    private final List<ModuleTemplate> moduleTemplates;
+    private final boolean isOutputModule;
+
+    private PipelineTemplate(List<ModuleTemplate> moduleTemplates, boolean isOutputModule) {
+        this.moduleTemplates = Collections.unmodifiableList(moduleTemplates);
+        this.isOutputModule = isOutputModule;
+    }
+
+    /**
+     * Compiles pipeline whose root (output) module is the given resource.
+     *
+     * @param rootModuleRes resource of the root module within its configuration model
+     * @return compiled pipeline or null if the resource is not a module of registered type
+     */
+    public static PipelineTemplate compile(@NotNull Resource rootModuleRes) {
+        Map<Resource, Class<? extends Module>> res2ModuleClass = new HashMap<>();
+        JenaPipelineUtils.getAllModulesWithTypes(rootModuleRes.getModel()).forEach((res, typeRes) -> {
+            Class<? extends Module> moduleClass = PipelineFactory.getModuleTypes().get(typeRes);
+            if (moduleClass == null) {
+                LOG.error("Ignoring module {}. Its type {} is not registered.", res, typeRes);
+            } else {
+                res2ModuleClass.put(res, moduleClass);
+            }
+        });
+
+        if (!res2ModuleClass.containsKey(rootModuleRes)) {
+            return null;
+        }
+
+        Map<Resource, ModuleTemplate> res2Template = new LinkedHashMap<>();
+        List<ModuleTemplate> moduleTemplates = new ArrayList<>();
+        compileModule(rootModuleRes, res2ModuleClass, res2Template, moduleTemplates);
+
+        boolean isOutputModule = rootModuleRes.listProperties(SM.next).toList().stream()
+            .noneMatch(st -> st.getObject().isResource() && res2ModuleClass.containsKey(st.getObject().asResource()));
+
+        return new PipelineTemplate(moduleTemplates, isOutputModule);
+    }
+
+    /**
+     * @return true if the root module is not an input of any other module.
+     */
+    public boolean isOutputModule() {
+        return isOutputModule;
+    }
+
+    /**
+     * Creates new module instances of the pipeline.
+     *
+     * @return root module linked to its (transitive) input modules
+     */
+    public Module instantiate() {
+        Module[] modules = new Module[moduleTemplates.size()];
+        for (int i = 0; i < modules.length; i++) {
+            ModuleTemplate template = moduleTemplates.get(i);
+            Module module = PipelineFactory.instantiateModule(template.moduleClass);
+            module.setConfigurationResource(template.moduleRes);
+            for (int inputIndex : template.inputIndexes) {
+                module.getInputModules().add(modules[inputIndex]);
+            }
+            modules[i] = module;
+        }
+        return modules[modules.length - 1];
+    }
+
+    private static int compileModule(Resource moduleRes,
+                                     Map<Resource, Class<? extends Module>> res2ModuleClass,
+                                     Map<Resource, ModuleTemplate> res2Template,
+                                     List<ModuleTemplate> moduleTemplates) {
+        ModuleTemplate template = res2Template.get(moduleRes);
+        if (template != null) {
+            if (template.index < 0) {
+                throw new IllegalArgumentException("Pipeline of module " + moduleRes + " contains a cycle.");
+            }
+            return template.index;
+        }
+        template = new ModuleTemplate(moduleRes, res2ModuleClass.get(moduleRes));
+        res2Template.put(moduleRes, template);
+
+        List<Integer> inputIndexes = new ArrayList<>();
+        for (Resource inputRes : moduleRes.getModel().listSubjectsWithProperty(SM.next, moduleRes).toList()) {
+            if (res2ModuleClass.containsKey(inputRes)) {
+                inputIndexes.add(compileModule(inputRes, res2ModuleClass, res2Template, moduleTemplates));
+            }
+        }
+        template.inputIndexes = inputIndexes.stream().mapToInt(Integer::intValue).toArray();
+        template.index = moduleTemplates.size();
+        moduleTemplates.add(template);
+        return template.index;
+    }
+
+    private static class ModuleTemplate {
+
+        private final Resource moduleRes;
+        private final Class<? extends Module> moduleClass;
+        private int[] inputIndexes;
+        private int index = -1;
+
+        ModuleTemplate(Resource moduleRes, Class<? extends Module> moduleClass) {
+            this.moduleRes = moduleRes;
+            this.moduleClass = moduleClass;
+        }
+    }
+}
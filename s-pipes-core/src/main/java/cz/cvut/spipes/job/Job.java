@@ -0,0 +1,104 @@
+package cz.cvut.spipes.job;
+
+import org.apache.jena.atlas.json.JsonObject;
+
+import java.nio.file.Path;
+
+/**
+ * Handle of an asynchronous execution submitted to {@link JobManager}.
+ */
+public class Job {
+
+    private final String id;
+    private final long submitTimeMillis = System.currentTimeMillis();
+    private volatile JobStatus status = JobStatus.queued;
+    private volatile long startTimeMillis = -1;
+    private volatile long finishTimeMillis = -1;
+    private volatile String errorMessage;
+    private volatile Path resultFile;
+
+    Job(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public long getSubmitTimeMillis() {
+        return submitTimeMillis;
+    }
+
+    /**
+     * @return time of start of the execution, -1 if the job was not started yet
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * @return time of end of the execution, -1 if the job is not finished yet
+     */
+    public long getFinishTimeMillis() {
+        return finishTimeMillis;
+    }
+
+    /**
+     * @return message of the failure, null if the job did not fail
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * @return file with the result of the job, null if the job did not succeed
+     */
+    public Path getResultFile() {
+        return resultFile;
+    }
+
+    void started() {
+        startTimeMillis = System.currentTimeMillis();
+        status = JobStatus.running;
+    }
+
+    void succeeded(Path resultFile) {
+        this.resultFile = resultFile;
+        finishTimeMillis = System.currentTimeMillis();
+        status = JobStatus.succeeded;
+    }
+
+    void failed(String errorMessage) {
+        this.errorMessage = errorMessage;
+        finishTimeMillis = System.currentTimeMillis();
+        status = JobStatus.failed;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.put("id", id);
+        json.put("status", status.name());
+        json.put("submitTime", submitTimeMillis);
+        // finish time is read first, so that start time of a finished job is always known
+        long finishTime = finishTimeMillis;
+        long startTime = startTimeMillis;
+        if (startTime >= 0) {
+            json.put("startTime", startTime);
+            json.put("waitTimeMillis", startTime - submitTimeMillis);
+        } else {
+            json.put("waitTimeMillis", System.currentTimeMillis() - submitTimeMillis);
+        }
+        if (finishTime >= 0) {
+            json.put("finishTime", finishTime);
+            json.put("durationMillis", finishTime - startTime);
+        }
+        if (errorMessage != null) {
+            json.put("error", errorMessage);
+        }
+        return json;
+    }
+}
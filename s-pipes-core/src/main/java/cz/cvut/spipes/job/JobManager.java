@@ -0,0 +1,313 @@
+package cz.cvut.spipes.job;
+
+import cz.cvut.spipes.config.JobsConfig;
+import cz.cvut.spipes.metrics.Histogram;
+import cz.cvut.spipes.util.StreamingModelWriter;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes jobs, i.e. computations of result models (e.g. pipeline executions), asynchronously on a bounded pool
+ * of worker threads. Jobs waiting for a worker are kept in a bounded queue, jobs submitted to the full queue
+ * are rejected.
+ * <p>
+ * Results are stored in files of {@link JobsConfig#getResultDirectoryPath()} and removed together with the job
+ * {@link JobsConfig#getResultTimeToLiveMillis()} after the job is finished.
+ */
+public class JobManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JobManager.class);
+
+    private static final double[] EXPOSED_QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final Path resultDirectory;
+    private final long resultTimeToLiveMillis;
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final Histogram waitTimeHistogram = new Histogram();
+
+    /**
+     * @param workerThreads number of threads executing jobs
+     * @param queueCapacity maximal number of jobs waiting for a worker thread
+     * @param resultDirectory directory of files with results of jobs
+     * @param resultTimeToLiveMillis time after a job is finished when it is removed, 0 if jobs are not removed
+     */
+    JobManager(int workerThreads, int queueCapacity, Path resultDirectory, long resultTimeToLiveMillis) {
+        this.queueCapacity = queueCapacity;
+        this.resultDirectory = resultDirectory;
+        this.resultTimeToLiveMillis = resultTimeToLiveMillis;
+        this.executor = new ThreadPoolExecutor(
+            workerThreads,
+            workerThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new WorkerThreadFactory()
+        );
+    }
+
+    public static JobManager getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Submits the task to be executed by a worker thread.
+     *
+     * @param task computation of the result model
+     * @return handle of the submitted job
+     * @throws RejectedExecutionException if the queue of jobs is full
+     */
+    public Job submit(Callable<Model> task) {
+        Job job = new Job(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new RejectedExecutionException(
+                "Job queue is full, " + getQueueDepth() + " of " + queueCapacity + " jobs are waiting.", e
+            );
+        }
+        LOG.debug("Job {} submitted.", job.getId());
+        return job;
+    }
+
+    /**
+     * @return the job, null if no job with the id exists
+     */
+    public Job getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return result model of the job
+     * @throws IllegalStateException if the job did not succeed
+     */
+    public Model loadResult(Job job) {
+        checkSucceeded(job);
+        Model model = ModelFactory.createDefaultModel();
+        RDFDataMgr.read(model, job.getResultFile().toString(), Lang.RDFTHRIFT);
+        return model;
+    }
+
+    /**
+     * Writes result of the job without loading it into a model if the language can be streamed,
+     * see {@link StreamingModelWriter#isStreamable(Lang)}.
+     *
+     * @param lang language of the written result
+     * @throws IllegalStateException if the job did not succeed
+     */
+    public void writeResult(Job job, OutputStream os, Lang lang) throws IOException {
+        checkSucceeded(job);
+        Path file = job.getResultFile();
+        if (Lang.RDFTHRIFT.equals(lang)) {
+            // results are stored in thrift
+            Files.copy(file, os);
+            os.flush();
+        } else if (StreamingModelWriter.isStreamable(lang)) {
+            try (InputStream is = new BufferedInputStream(Files.newInputStream(file))) {
+                StreamingModelWriter.write(is, Lang.RDFTHRIFT, os, lang);
+            }
+        } else {
+            RDFDataMgr.write(os, loadResult(job), lang);
+        }
+    }
+
+    /**
+     * @return number of jobs waiting for a worker thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of jobs being executed
+     */
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    /**
+     * @return histogram of times in milliseconds that jobs waited for a worker thread
+     */
+    public Histogram getWaitTimeHistogram() {
+        return waitTimeHistogram;
+    }
+
+    /**
+     * @return JSON with queue depth, number of running jobs and quantiles of wait times
+     */
+    public JsonObject statisticsToJson() {
+        JsonObject waitTime = new JsonObject();
+        waitTime.put("count", waitTimeHistogram.getCount());
+        if (waitTimeHistogram.getCount() > 0) {
+            for (double quantile : EXPOSED_QUANTILES) {
+                waitTime.put("p" + Math.round(quantile * 100), waitTimeHistogram.getValueAtQuantile(quantile));
+            }
+            waitTime.put("max", waitTimeHistogram.getMax());
+        }
+
+        JsonObject json = new JsonObject();
+        json.put("workerThreads", executor.getMaximumPoolSize());
+        json.put("running", getRunningCount());
+        json.put("queueCapacity", queueCapacity);
+        json.put("queueDepth", getQueueDepth());
+        json.put("waitTimeMillis", waitTime);
+        return json;
+    }
+
+    /**
+     * Writes queue depth, number of running jobs and wait times in the Prometheus text exposition format.
+     */
+    public void writeTextExposition(Writer writer) throws IOException {
+        writer.write("# HELP spipes_jobs_queued Number of jobs waiting for a worker thread.\n");
+        writer.write("# TYPE spipes_jobs_queued gauge\n");
+        writer.write("spipes_jobs_queued " + getQueueDepth() + "\n");
+        writer.write("# HELP spipes_jobs_running Number of jobs being executed.\n");
+        writer.write("# TYPE spipes_jobs_running gauge\n");
+        writer.write("spipes_jobs_running " + getRunningCount() + "\n");
+        writer.write("# HELP spipes_job_wait_seconds Time jobs waited for a worker thread.\n");
+        writer.write("# TYPE spipes_job_wait_seconds summary\n");
+        if (waitTimeHistogram.getCount() > 0) {
+            for (double quantile : EXPOSED_QUANTILES) {
+                writer.write("spipes_job_wait_seconds{quantile=\"" + quantile + "\"} "
+                    + waitTimeHistogram.getValueAtQuantile(quantile) * 1e-3 + "\n");
+            }
+        }
+        writer.write("spipes_job_wait_seconds_sum " + waitTimeHistogram.getSum() * 1e-3 + "\n");
+        writer.write("spipes_job_wait_seconds_count " + waitTimeHistogram.getCount() + "\n");
+        writer.flush();
+    }
+
+    /**
+     * Removes jobs finished before more than the time to live, together with their results.
+     */
+    void evictJobs(long currentTimeMillis) {
+        if (resultTimeToLiveMillis <= 0) {
+            return;
+        }
+        jobs.forEach((id, job) -> {
+            if (job.getStatus().isFinished()
+                && job.getFinishTimeMillis() < currentTimeMillis - resultTimeToLiveMillis
+                && jobs.remove(id, job)) {
+                LOG.debug("Removing expired job {}.", id);
+                deleteResult(job);
+            }
+        });
+    }
+
+    private void run(Job job, Callable<Model> task) {
+        job.started();
+        waitTimeHistogram.record(job.getStartTimeMillis() - job.getSubmitTimeMillis());
+        runningCount.incrementAndGet();
+        try {
+            Model result = task.call();
+            job.succeeded(storeResult(job, result));
+            LOG.debug("Job {} succeeded.", job.getId());
+        } catch (Throwable e) {
+            // errors (e.g. OutOfMemoryError) are caught as well, otherwise the job would stay running forever
+            LOG.error("Job {} failed.", job.getId(), e);
+            job.failed(e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        } finally {
+            runningCount.decrementAndGet();
+        }
+    }
+
+    private static void checkSucceeded(Job job) {
+        if (job.getStatus() != JobStatus.succeeded) {
+            throw new IllegalStateException("Job " + job.getId() + " has no result, its status is " + job.getStatus() + ".");
+        }
+    }
+
+    private Path storeResult(Job job, Model result) throws IOException {
+        Files.createDirectories(resultDirectory);
+        Path file = resultDirectory.resolve("job-" + job.getId() + ".rt");
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+            StreamingModelWriter.write(result, os, Lang.RDFTHRIFT);
+        }
+        return file;
+    }
+
+    private void deleteResult(Job job) {
+        Path file = job.getResultFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Could not delete result file {} of job {}.", file, job.getId(), e);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "spipes-job-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class InstanceHolder {
+        private static final JobManager INSTANCE = createInstance();
+
+        private static JobManager createInstance() {
+            JobManager jobManager = new JobManager(
+                JobsConfig.getWorkerThreads(),
+                JobsConfig.getQueueCapacity(),
+                JobsConfig.getResultDirectoryPath(),
+                JobsConfig.getResultTimeToLiveMillis()
+            );
+            long evictionIntervalMillis = JobsConfig.getEvictionIntervalMillis();
+            ScheduledExecutorService evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "spipes-job-eviction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictionExecutor.scheduleWithFixedDelay(
+                () -> {
+                    try {
+                        jobManager.evictJobs(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        LOG.warn("Eviction of jobs failed.", e);
+                    }
+                },
+                evictionIntervalMillis,
+                evictionIntervalMillis,
+                TimeUnit.MILLISECONDS
+            );
+            return jobManager;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package cz.cvut.spipes.job;
+
+public enum JobStatus {
+    queued,
+    running,
+    succeeded,
+    failed;
+
+    public boolean isFinished() {
+        return this == succeeded || this == failed;
+    }
+}
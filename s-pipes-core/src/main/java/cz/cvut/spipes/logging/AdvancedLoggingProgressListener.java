@@ -5,6 +5,7 @@ import cz.cvut.kbss.jopa.model.EntityManagerFactory;
 import cz.cvut.kbss.jopa.model.JOPAPersistenceProperties;
 import cz.cvut.kbss.jopa.model.descriptors.EntityDescriptor;
 import cz.cvut.spipes.Vocabulary;
+import cz.cvut.spipes.config.AuditConfig;
 import cz.cvut.spipes.constants.SPIPES;
 import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.engine.ProgressListener;
@@ -13,6 +14,7 @@ import cz.cvut.spipes.model.Thing;
 import cz.cvut.spipes.model.Transformation;
 import cz.cvut.spipes.modules.Module;
 import cz.cvut.spipes.util.DateUtils;
+import cz.cvut.spipes.util.ModelSnapshotWriter;
 import cz.cvut.spipes.util.Rdf4jUtils;
 import cz.cvut.spipes.util.TempFileUtils;
 import org.apache.jena.rdf.model.Model;
@@ -20,7 +22,6 @@ import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.riot.RDFLanguages;
-import org.apache.jena.util.FileUtils;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.repository.Repository;
@@ -44,17 +45,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Logs metadata of pipeline executions to RDF4J repository and snapshots of module inputs and outputs to files.
+ * <p>
+ * If {@link AuditConfig#isWriteBehind()} is true, callbacks only capture references to models and metadata
+ * of the execution, while the serialization and persistence run on a shared background pool. Logging of
+ * a pipeline execution is flushed when the pipeline execution finishes. Models of modules must not be modified
+ * after they were passed to the next module, otherwise the snapshots might contain the modifications.
+ */
 public class AdvancedLoggingProgressListener implements ProgressListener {
     private static final Logger LOG =
         LoggerFactory.getLogger(AdvancedLoggingProgressListener.class);
-    /**
-     * Maps pipeline executions and module executions to the transformation object.
-     */
-    private static final Map<String, Object> executionMap = new HashMap<>();
-    private static final Map<String, Object> metadataMap = new HashMap<>();
-    private static final Map<String, EntityManager> entityManagerMap = new HashMap<>();
-    private static final Map<Long, Path> logDir = new HashMap<>();
     private static final String P_HAS_PART =
         Vocabulary.ONTOLOGY_IRI_dataset_descriptor + "/has-part";
     private static final String P_HAS_NEXT =
@@ -82,6 +88,10 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
     private String pipelineExecutionGroupId;
     private EntityManagerFactory metadataEmf = null;
     private EntityManagerFactory dataEmf = null;
+    /**
+     * State of pipeline executions that did not finish yet.
+     */
+    private final Map<Long, PipelineExecution> pipelineExecutions = new ConcurrentHashMap<>();
 
     public AdvancedLoggingProgressListener(Resource configResource) {
         rdf4jServerUrl = getStringPropertyValue(configResource, P_RDF4J_SERVER_URL);
@@ -108,17 +118,21 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
         Thing pipelineExecution = new Thing();
         pipelineExecution.setId(getPipelineExecutionIri(pipelineExecutionId));
         pipelineExecution.setTypes(Collections.singleton(Vocabulary.s_c_transformation));
+        final Date startDate = new Date();
 
-        executionMap.put(pipelineExecution.getId(), pipelineExecution);
         final Path pipelineExecutionDir = FileSystemLogger.resolvePipelineExecution(pipelineExecutionId);
         pipelineExecutionDir.toFile().mkdir();
-        logDir.put(pipelineExecutionId, pipelineExecutionDir);
+        final PipelineExecution execution = new PipelineExecution(
+            pipelineExecutionDir,
+            createWriteBehindQueue(),
+            ModelSnapshotWriter.createFromConfig(pipelineExecutionDir)
+        );
+        pipelineExecutions.put(pipelineExecutionId, execution);
 
-        final EntityManager metadataEM = getMetadataEmf().createEntityManager();
-        synchronized (metadataEM) {
-            persistPipelineExecutionStarted(metadataEM, pipelineExecutionId, pipelineExecution);
-            entityManagerMap.put(pipelineExecution.getId(), metadataEM);
-        }
+        execution.queue.submitOrdered(() -> {
+            execution.entityManager = getMetadataEmf().createEntityManager();
+            persistPipelineExecutionStarted(execution.entityManager, startDate, pipelineExecution);
+        });
 
 //        final EntityManager em = PersistenceFactory.createEntityManager();
 //        synchronized (em) {
@@ -127,11 +141,10 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
 //        entityManagerMap.put(pipelineExecution.getId(), em);
     }
 
-    private void persistPipelineExecutionStarted(final EntityManager em, long pipelineExecutionId, Thing pipelineExecution) {
+    private void persistPipelineExecutionStarted(final EntityManager em, Date startDate, Thing pipelineExecution) {
         em.getTransaction().begin();
 
         // new
-        Date startDate = new Date();
         addProperty(pipelineExecution, SPIPES.has_pipeline_execution_start_date, startDate);
         addProperty(pipelineExecution, SPIPES.has_pipeline_execution_start_date_unix, startDate.getTime());
         if (pipelineExecutionGroupId != null) {
@@ -148,10 +161,11 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
     }
 
     private void persistPipelineExecutionFinished2(final EntityManager em, final long pipelineExecutionId) {
+        final PipelineExecution execution = pipelineExecutions.get(pipelineExecutionId);
         if (em.isOpen()) {
             final TurtleWriterFactory factory = new TurtleWriterFactory();
             try (FileOutputStream fos = new FileOutputStream(
-                Files.createFile(getDir(pipelineExecutionId).resolve("log.ttl")).toFile())) {
+                Files.createFile(execution.dir.resolve("log.ttl")).toFile())) {
                 final TurtleWriter writer = (TurtleWriter) factory.getWriter(fos);
                 writer.startRDF();
                 RepositoryConnection con = em.unwrap(SailRepository.class).getConnection();
@@ -165,16 +179,16 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
             } catch (IOException e) {
                 e.printStackTrace();
             }
-            entityManagerMap.remove(em);
             em.close();
-            logDir.remove(pipelineExecutionId);
         }
     }
 
-    private void persistPipelineExecutionFinished(final EntityManager em, final long pipelineExecutionId) {
+    private void persistPipelineExecutionFinished(final EntityManager em,
+                                                  final long pipelineExecutionId,
+                                                  final Date finishDate,
+                                                  final String pipelineName) {
         if (em.isOpen()) {
             LOG.debug("Saving metadata about finished pipeline execution {}.", pipelineExecutionId);
-            Date finishDate = new Date();
             em.getTransaction().begin();
 
             String pipelineExecutionIri = getPipelineExecutionIri(pipelineExecutionId);
@@ -187,7 +201,9 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
             addProperty(pipelineExecution, SPIPES.has_pipeline_execution_finish_date, finishDate);
             addProperty(pipelineExecution, SPIPES.has_pipeline_execution_finish_date_unix, finishDate.getTime());
             addProperty(pipelineExecution, SPIPES.has_pipeline_execution_duration, computeDuration(startDate, finishDate));
-            addProperty(pipelineExecution, SPIPES.has_pipeline_name, metadataMap.get(SPIPES.has_pipeline_name.toString()));
+            if (pipelineName != null) {
+                addProperty(pipelineExecution, SPIPES.has_pipeline_name, pipelineName);
+            }
 
             em.getTransaction().commit();
             em.close();
@@ -210,13 +226,14 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
 
     @Override
     public void pipelineExecutionFinished(final long pipelineExecutionId) {
-        final EntityManager em = entityManagerMap.get(getPipelineExecutionIri(pipelineExecutionId));
+        final PipelineExecution execution = pipelineExecutions.get(pipelineExecutionId);
+        final Date finishDate = new Date();
 
-        synchronized (em) {
-            persistPipelineExecutionFinished(em, pipelineExecutionId);
-            entityManagerMap.remove(em);
-            executionMap.remove(getPipelineExecutionIri(pipelineExecutionId));
-        }
+        execution.queue.submitOrdered(() ->
+            persistPipelineExecutionFinished(execution.entityManager, pipelineExecutionId, finishDate, execution.pipelineName)
+        );
+        execution.queue.flush();
+        pipelineExecutions.remove(pipelineExecutionId);
     }
 
     @Override
@@ -248,26 +265,30 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
         Date startDate = new Date();
         addProperty(moduleExecution, SPIPES.has_module_execution_start_date, startDate);
         addProperty(moduleExecution, SPIPES.has_module_execution_start_date_unix, startDate.getTime());
-        addProperty(moduleExecution, SPIPES.has_input_model_triple_count, inputContext.getDefaultModel().size());
 
         // put model to map
-        executionMap.put(moduleExecution.getId(), moduleExecution);
+        final PipelineExecution execution = pipelineExecutions.get(pipelineExecutionId);
+        execution.moduleExecutions.put(moduleExecution.getId(), moduleExecution);
 
         // save metadata
+        final Model inputModel = inputContext.getDefaultModel();
+        execution.queue.submitOrdered(() ->
+            addProperty(moduleExecution, SPIPES.has_input_model_triple_count, inputModel.size())
+        );
 
         // save data
-        saveModelToFile(moduleExecution.getHas_input().getId(), inputContext.getDefaultModel());
+        execution.queue.submit(() -> saveModelToFile(execution, moduleExecution.getHas_input().getId(), inputModel));
     }
 
     @Override
     public void moduleExecutionFinished(long pipelineExecutionId, final String moduleExecutionId,
                                         final Module module) {
 
-        final EntityManager em = entityManagerMap.get(getPipelineExecutionIri(pipelineExecutionId));
+        final PipelineExecution execution = pipelineExecutions.get(pipelineExecutionId);
 
         // retrieve model
         Transformation moduleExecution =
-            (Transformation) executionMap.get(getModuleExecutionIri(moduleExecutionId));
+            execution.moduleExecutions.get(getModuleExecutionIri(moduleExecutionId));
 
         // construct model
         Map<String, Set<Object>> properties = new HashMap<>();
@@ -279,9 +300,18 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
         );
         moduleExecution.setHas_output(Collections.singleton(output));
 
-        synchronized (em) {
+        // snapshot references to data of the module, they are serialized later
+        final Date finishDate = new Date();
+        final Model outputModel = module.getOutputContext().getDefaultModel();
+        final Model ibModel = module.getExecutionContext().getVariablesBinding().getModel();
+        final String pipelineName = module.getResource().toString().replaceAll("\\/[^.]*$", "");
+        if (execution.pipelineName == null) {
+            execution.pipelineName = pipelineName;
+        }
+
+        execution.queue.submitOrdered(() -> {
+            final EntityManager em = execution.entityManager;
             if (em.isOpen()) {
-                Date finishDate = new Date();
                 em.getTransaction().begin();
                 String pipelineExecutionIri = getPipelineExecutionIri(pipelineExecutionId);
                 final EntityDescriptor pd = new EntityDescriptor(URI.create(pipelineExecutionIri));
@@ -304,11 +334,8 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
                 addProperty(moduleExecution, SPIPES.has_module_execution_finish_date, finishDate);
                 addProperty(moduleExecution, SPIPES.has_module_execution_finish_date_unix, finishDate.getTime());
                 addProperty(moduleExecution, SPIPES.has_module_execution_duration, computeDuration(startDate, finishDate));
-                addProperty(moduleExecution, SPIPES.has_output_model_triple_count, module.getOutputContext().getDefaultModel().size());
-                addProperty(moduleExecution, SPIPES.has_pipeline_name, module.getResource().toString().replaceAll("\\/[^.]*$", ""));
-                if(!metadataMap.containsKey(SPIPES.has_pipeline_name.toString())){
-                    metadataMap.put(SPIPES.has_pipeline_name.toString(), module.getResource().toString().replaceAll("\\/[^.]*$", ""));
-                }
+                addProperty(moduleExecution, SPIPES.has_output_model_triple_count, outputModel.size());
+                addProperty(moduleExecution, SPIPES.has_pipeline_name, pipelineName);
 
                 // input binding
                 SourceDatasetSnapshot inputBindings = new SourceDatasetSnapshot(); //TODO type is not saved
@@ -329,17 +356,15 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
                 em.merge(inputBindings, pd);
 
                 // save metadata
-                Model ibModel = module.getExecutionContext().getVariablesBinding().getModel();
-
                 writeRawData(em, URI.create(inputBindings.getId()), ibModel);
 
 
                 em.getTransaction().commit();
             }
-        }
+        });
 
         // save data
-        saveModelToFile(output.getId(), module.getOutputContext().getDefaultModel());
+        execution.queue.submit(() -> saveModelToFile(execution, output.getId(), outputModel));
     }
 
     private void writeRawData(EntityManager em, URI contextUri, Model model) {
@@ -370,21 +395,27 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
 
     String getModulesSourceDatasetSnapshotUrl(final long pipelineExecutionId, final String moduleExecutionId, SnapshotRole snapshotRole) {
         try {
-            return new File(getDir(pipelineExecutionId) + "/" + TempFileUtils.createTimestampFileName("-module-" + moduleExecutionId + "-" + snapshotRole + ".ttl")).toURI().toURL().toString();
+            return new File(getDir(pipelineExecutionId) + "/" + TempFileUtils.createTimestampFileName("-module-" + moduleExecutionId + "-" + snapshotRole + AuditConfig.getSnapshotFormat().getFileExtension())).toURI().toURL().toString();
         } catch (MalformedURLException e) {
             throw new IllegalStateException(e);
         }
     }
 
     private Path getDir(final long pipelineExecutionId) {
-        return logDir.get(pipelineExecutionId);
+        return pipelineExecutions.get(pipelineExecutionId).dir;
+    }
+
+    private WriteBehindQueue createWriteBehindQueue() {
+        if (AuditConfig.isWriteBehind()) {
+            return new WriteBehindQueue(WriteBehindPool.EXECUTOR, WriteBehindPool.PENDING_TASK_PERMITS);
+        }
+        return WriteBehindQueue.createSynchronous();
     }
 
 
-    private void saveModelToFile(String filePath, Model model) {
-        File file = Paths.get(URI.create(filePath)).toFile();
-        try (OutputStream fileIs = new FileOutputStream(file)) {
-            model.write(fileIs, FileUtils.langTurtle);
+    private void saveModelToFile(PipelineExecution execution, String filePath, Model model) {
+        try {
+            execution.snapshotWriter.write(model, Paths.get(URI.create(filePath)));
         } catch (IOException e) {
             LOG.error("Error during dataset snapshot saving.", e);
         }
@@ -398,7 +429,7 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
         return Vocabulary.s_c_transformation + "/" + moduleExecutionId;
     }
 
-    private EntityManagerFactory getMetadataEmf() {
+    private synchronized EntityManagerFactory getMetadataEmf() {
         if (metadataEmf == null) {
             if ((rdf4jServerUrl != null) && (metadataRepositoryName != null)) {
                 Rdf4jUtils.createRdf4RepositoryIfNotExist(rdf4jServerUrl, metadataRepositoryName);
@@ -409,7 +440,7 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
         return metadataEmf;
     }
 
-    private EntityManagerFactory getDataEmf() {
+    private synchronized EntityManagerFactory getDataEmf() {
         if (dataEmf == null) {
             if ((rdf4jServerUrl != null) && (dataRepositoryName != null)) {
                 Rdf4jUtils.createRdf4RepositoryIfNotExist(rdf4jServerUrl, dataRepositoryName);
@@ -470,6 +501,41 @@ public class AdvancedLoggingProgressListener implements ProgressListener {
         return (newDate.getTime() - oldDate.getTime());
     }
 
+    /**
+     * State of a pipeline execution. Entity manager is accessed only by ordered tasks of the queue.
+     */
+    private static class PipelineExecution {
+        private final Path dir;
+        private final WriteBehindQueue queue;
+        private final ModelSnapshotWriter snapshotWriter;
+        /**
+         * Maps module executions to the transformation object.
+         */
+        private final Map<String, Transformation> moduleExecutions = new ConcurrentHashMap<>();
+        private EntityManager entityManager;
+        private volatile String pipelineName;
+
+        private PipelineExecution(Path dir, WriteBehindQueue queue, ModelSnapshotWriter snapshotWriter) {
+            this.dir = dir;
+            this.queue = queue;
+            this.snapshotWriter = snapshotWriter;
+        }
+    }
+
+    /**
+     * Background pool shared by all listeners, created on first use.
+     */
+    private static class WriteBehindPool {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            AuditConfig.getWriteBehindThreads(),
+            r -> {
+                Thread thread = new Thread(r, "spipes-advanced-logging");
+                thread.setDaemon(true);
+                return thread;
+            });
+        private static final Semaphore PENDING_TASK_PERMITS = new Semaphore(AuditConfig.getWriteBehindMaxPendingTasks());
+    }
+
     private enum SnapshotRole {
         INPUT_GRAPH("input"),
         OUTPUT_GRAPH("output"),
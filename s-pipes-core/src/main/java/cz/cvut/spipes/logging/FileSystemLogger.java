@@ -1,5 +1,6 @@
 package cz.cvut.spipes.logging;
 
+import cz.cvut.spipes.config.AuditConfig;
 import cz.cvut.spipes.util.TempFileUtils;
 
 import java.io.IOException;
@@ -23,10 +24,10 @@ class FileSystemLogger {
     }
 
     static String getModuleOutputFilename(final String moduleExecutionId) {
-        return "module-" + moduleExecutionId + "-output.ttl";
+        return "module-" + moduleExecutionId + "-output" + AuditConfig.getSnapshotFormat().getFileExtension();
     }
 
     static String getModuleInputFilename(final String moduleExecutionId) {
-        return "module-" + moduleExecutionId + "-input.ttl";
+        return "module-" + moduleExecutionId + "-input" + AuditConfig.getSnapshotFormat().getFileExtension();
     }
 }
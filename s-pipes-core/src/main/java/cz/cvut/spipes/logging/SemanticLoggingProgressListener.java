@@ -10,10 +10,10 @@ import cz.cvut.spipes.model.SourceDatasetSnapshot;
 import cz.cvut.spipes.model.Thing;
 import cz.cvut.spipes.model.Transformation;
 import cz.cvut.spipes.modules.Module;
+import cz.cvut.spipes.util.ModelSnapshotWriter;
 import cz.cvut.spipes.util.TempFileUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Resource;
-import org.apache.jena.util.FileUtils;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
@@ -24,10 +24,8 @@ import org.eclipse.rdf4j.rio.turtle.TurtleWriterFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -35,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SemanticLoggingProgressListener implements ProgressListener {
     private static final Logger LOG =
@@ -49,6 +48,8 @@ public class SemanticLoggingProgressListener implements ProgressListener {
 
     private static final Map<Long, Path> logDir= new HashMap<>();
 
+    private static final Map<Long, ModelSnapshotWriter> snapshotWriters = new ConcurrentHashMap<>();
+
     private static final String P_HAS_PART =
         Vocabulary.ONTOLOGY_IRI_dataset_descriptor + "/has-part";
     private static final String P_HAS_NEXT =
@@ -76,6 +77,7 @@ public class SemanticLoggingProgressListener implements ProgressListener {
         final Path pipelineExecutionDir = FileSystemLogger.resolvePipelineExecution(pipelineExecutionId);
         pipelineExecutionDir.toFile().mkdir();
         logDir.put(pipelineExecutionId, pipelineExecutionDir);
+        snapshotWriters.put(pipelineExecutionId, ModelSnapshotWriter.createFromConfig(pipelineExecutionDir));
 
         final EntityManager em = PersistenceFactory.createEntityManager();
         synchronized (em) {
@@ -110,6 +112,7 @@ public class SemanticLoggingProgressListener implements ProgressListener {
                 entityManagerMap.remove(em);
                 em.close();
                 logDir.remove(pipelineExecutionId);
+                snapshotWriters.remove(pipelineExecutionId);
             }
         }
     }
@@ -124,7 +127,7 @@ public class SemanticLoggingProgressListener implements ProgressListener {
 
         SourceDatasetSnapshot input = new SourceDatasetSnapshot();
         input.setId(
-            saveModelToFile(getDir(pipelineExecutionId), "module-" + moduleExecutionId + "-input.ttl", inputContext.getDefaultModel()));
+            saveModelToFile(pipelineExecutionId, FileSystemLogger.getModuleInputFilename(moduleExecutionId), inputContext.getDefaultModel()));
         moduleExecution.setHas_input(input);
 
         if (predecessorModuleExecutionId != null) {
@@ -145,7 +148,7 @@ public class SemanticLoggingProgressListener implements ProgressListener {
         properties.put(P_HAS_PART, Collections.singleton(URI.create(moduleExecution.getId())));
 
         Thing output = new Thing();
-        output.setId(saveModelToFile(getDir(pipelineExecutionId), FileSystemLogger.getModuleOutputFilename(moduleExecutionId), module.getOutputContext().getDefaultModel()));
+        output.setId(saveModelToFile(pipelineExecutionId, FileSystemLogger.getModuleOutputFilename(moduleExecutionId), module.getOutputContext().getDefaultModel()));
         moduleExecution.setHas_output(Collections.singleton(output));
 
         synchronized (em) {
@@ -179,18 +182,11 @@ public class SemanticLoggingProgressListener implements ProgressListener {
         return logDir.get(pipelineExecutionId);
     }
 
-    private String saveModelToFile(Path dir, String fileName, Model model) {
-        File file = null;
+    private String saveModelToFile(final long pipelineExecutionId, String fileName, Model model) {
+        final Path file = getDir(pipelineExecutionId).resolve(TempFileUtils.createTimestampFileName(fileName));
         try {
-            file =
-                Files.createFile(dir.resolve(TempFileUtils.createTimestampFileName(fileName))).toFile();
-        } catch (IOException e) {
-            LOG.error("Error during file creation.", e);
-            return null;
-        }
-        try (OutputStream fileIs = new FileOutputStream(file)) {
-            model.write(fileIs, FileUtils.langTurtle);
-            return file.toURI().toURL().toString();
+            snapshotWriters.get(pipelineExecutionId).write(model, file);
+            return file.toUri().toURL().toString();
         } catch (IOException e) {
             LOG.error("Error during dataset snapshot saving.", e);
             return null;
@@ -0,0 +1,85 @@
+package cz.cvut.spipes.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Queue of logging tasks of one pipeline execution.
+ * <p>
+ * Ordered tasks are executed one after another in the order they were submitted, so that they can share state
+ * that is not thread-safe (e.g. an entity manager). Other tasks are executed independently. Number of tasks
+ * waiting for execution is bounded by a semaphore that can be shared by multiple queues, submitting a task blocks
+ * while there are no permits left.
+ */
+class WriteBehindQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final Executor executor;
+    private final Semaphore pendingTaskPermits;
+    private final Set<CompletableFuture<Void>> pendingTasks = ConcurrentHashMap.newKeySet();
+    private CompletableFuture<Void> lastOrderedTask = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param executor executor of the tasks
+     * @param pendingTaskPermits permits for tasks waiting for execution or being executed
+     */
+    WriteBehindQueue(Executor executor, Semaphore pendingTaskPermits) {
+        this.executor = executor;
+        this.pendingTaskPermits = pendingTaskPermits;
+    }
+
+    /**
+     * @return queue that executes tasks immediately within the calling thread
+     */
+    static WriteBehindQueue createSynchronous() {
+        return new WriteBehindQueue(Runnable::run, new Semaphore(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Submits task that is executed after all previously submitted ordered tasks.
+     */
+    synchronized void submitOrdered(Runnable task) {
+        pendingTaskPermits.acquireUninterruptibly();
+        lastOrderedTask = track(lastOrderedTask.thenRunAsync(guard(task), executor));
+    }
+
+    /**
+     * Submits task that is executed independently of other tasks.
+     */
+    void submit(Runnable task) {
+        pendingTaskPermits.acquireUninterruptibly();
+        track(CompletableFuture.runAsync(guard(task), executor));
+    }
+
+    /**
+     * Waits until all submitted tasks are executed.
+     */
+    void flush() {
+        CompletableFuture.allOf(pendingTasks.toArray(new CompletableFuture[0])).join();
+    }
+
+    private CompletableFuture<Void> track(CompletableFuture<Void> future) {
+        pendingTasks.add(future);
+        future.whenComplete((r, e) -> pendingTasks.remove(future));
+        return future;
+    }
+
+    private Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                LOG.error("Logging of pipeline execution failed.", e);
+            } finally {
+                pendingTaskPermits.release();
+            }
+        };
+    }
+}
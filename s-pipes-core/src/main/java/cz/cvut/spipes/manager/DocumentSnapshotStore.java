@@ -0,0 +1,196 @@
+package cz.cvut.spipes.manager;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * On-disk snapshot of parsed script documents, so that unchanged documents do not need to be parsed again
+ * after restart.
+ * <p>
+ * Each document is stored in RDF Thrift format within a file named by SHA-256 hash of the document content.
+ * An index maps absolute path of a document to its size, last modification time and content hash.
+ * A document is loaded from the snapshot if its size and modification time did not change, or if its
+ * content hash did not change. Otherwise, the document is parsed and its snapshot is updated.
+ * <p>
+ * The store can be used from multiple threads, the index is persisted by {@link #save()}.
+ */
+class DocumentSnapshotStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DocumentSnapshotStore.class);
+    private static final String INDEX_FILE_NAME = "index.properties";
+    private static final String SNAPSHOT_FILE_EXTENSION = ".rt";
+
+    private final Path snapshotDirectory;
+    private final Properties index = new Properties();
+    private volatile boolean isIndexModified = false;
+
+    DocumentSnapshotStore(Path snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+        Path indexFile = snapshotDirectory.resolve(INDEX_FILE_NAME);
+        if (Files.exists(indexFile)) {
+            try (InputStream is = Files.newInputStream(indexFile)) {
+                index.load(is);
+            } catch (IOException e) {
+                LOG.warn("Could not read index of document snapshot {}, all documents will be parsed again.", indexFile, e);
+                index.clear();
+            }
+        }
+    }
+
+    /**
+     * Loads model of the document from the snapshot if the document did not change, otherwise parses the document
+     * and stores its model to the snapshot.
+     *
+     * @param file path to the document
+     * @param lang language of the document
+     * @return model of the document
+     */
+    Model loadModel(Path file, String lang) {
+        String key = file.toAbsolutePath().normalize().toString();
+        IndexEntry entry = IndexEntry.parse(index.getProperty(key));
+
+        BasicFileAttributes attributes;
+        byte[] content;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (entry != null && entry.matches(attributes)) {
+                Model model = readSnapshot(entry.contentHash);
+                if (model != null) {
+                    return model;
+                }
+            }
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not load file from path " + file, e);
+        }
+
+        String contentHash = computeHash(content);
+        IndexEntry newEntry = new IndexEntry(attributes.size(), attributes.lastModifiedTime().toMillis(), contentHash);
+
+        Model model = (entry != null && entry.contentHash.equals(contentHash)) ? readSnapshot(contentHash) : null;
+        if (model == null) {
+            model = ModelFactory.createDefaultModel().read(new ByteArrayInputStream(content), null, lang);
+            writeSnapshot(contentHash, model);
+        }
+        index.setProperty(key, newEntry.toString());
+        isIndexModified = true;
+        return model;
+    }
+
+    /**
+     * Persists the index of the snapshot if it was modified.
+     */
+    synchronized void save() {
+        if (!isIndexModified) {
+            return;
+        }
+        Path indexFile = snapshotDirectory.resolve(INDEX_FILE_NAME);
+        try {
+            Path tmpFile = Files.createTempFile(snapshotDirectory, INDEX_FILE_NAME, ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmpFile)) {
+                index.store(os, "Snapshot of script documents");
+            }
+            Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            isIndexModified = false;
+        } catch (IOException e) {
+            LOG.warn("Could not save index of document snapshot {}.", indexFile, e);
+        }
+    }
+
+    private Model readSnapshot(String contentHash) {
+        Path snapshotFile = getSnapshotFile(contentHash);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(snapshotFile))) {
+            Model model = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(model, is, Lang.RDFTHRIFT);
+            return model;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not read document snapshot {}, the document will be parsed again.", snapshotFile, e);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(String contentHash, Model model) {
+        Path snapshotFile = getSnapshotFile(contentHash);
+        try {
+            Files.createDirectories(snapshotDirectory);
+            Path tmpFile = Files.createTempFile(snapshotDirectory, contentHash, ".tmp");
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmpFile))) {
+                RDFDataMgr.write(os, model, Lang.RDFTHRIFT);
+            }
+            Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Could not write document snapshot {}.", snapshotFile, e);
+        }
+    }
+
+    private Path getSnapshotFile(String contentHash) {
+        return snapshotDirectory.resolve(contentHash + SNAPSHOT_FILE_EXTENSION);
+    }
+
+    private static String computeHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+
+    private static class IndexEntry {
+
+        private final long size;
+        private final long lastModifiedTime;
+        private final String contentHash;
+
+        IndexEntry(long size, long lastModifiedTime, String contentHash) {
+            this.size = size;
+            this.lastModifiedTime = lastModifiedTime;
+            this.contentHash = contentHash;
+        }
+
+        static IndexEntry parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            String[] parts = value.split(";");
+            if (parts.length != 3) {
+                return null;
+            }
+            return new IndexEntry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModifiedTime == attributes.lastModifiedTime().toMillis();
+        }
+
+        @Override
+        public String toString() {
+            return size + ";" + lastModifiedTime + ";" + contentHash;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package cz.cvut.spipes.manager;
 
 import cz.cvut.spipes.config.CompatibilityConfig;
+import cz.cvut.spipes.config.ContextLoaderConfig;
+import cz.cvut.spipes.exception.SPipesException;
 import cz.cvut.spipes.util.JenaUtils;
 import cz.cvut.spipes.util.SparqlMotionUtils;
 import org.apache.jena.atlas.web.HttpException;
@@ -9,15 +11,18 @@ import org.apache.jena.ontology.OntModel;
 import org.apache.jena.ontology.OntModelSpec;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.util.FileManager;
 import org.apache.jena.util.FileUtils;
 import org.apache.jena.util.LocationMapper;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.topbraid.spin.system.SPINModuleRegistry;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -30,6 +35,14 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 //import static cz.cvut.spipes.manager.OntologyDocumentManagerImpl.isFileNameSupported;
@@ -62,10 +75,20 @@ public class OntoDocManager implements OntologyDocumentManager {
     private static boolean reloadFiles = false;
 
     // TODO remove !!!!!!! this is workaround for registering SPIN related things.
-    private static Model allLoadedFilesModel = ModelFactory.createDefaultModel();
+    // models of files loaded since the last registration of SPIN modules
+    private static Map<String, Model> file2PendingSPINModel = new LinkedHashMap<>();
+    // models of files whose SPIN modules are registered
+    private static final Map<String, Model> file2RegisteredSPINModel = new LinkedHashMap<>();
+    private static boolean isSPINRegistryInitialized = false;
+    // set when files whose SPIN modules are registered were unregistered
+    private static boolean isSPINRegistryRebuildRequired = false;
+
+    private static DocumentSnapshotStore snapshotStore;
 
 
     OntDocumentManager ontDocumentManager;
+    private final Set<String> changedOntologyUris = new HashSet<>();
+    private final List<Consumer<String>> documentChangeListeners = new CopyOnWriteArrayList<>();
     static OntoDocManager sInstance;
     static String[] SUPPORTED_FILE_EXTENSIONS = {"n3", "nt", "ttl", "rdf", "owl"}; //TODO json-ld
 
@@ -112,12 +135,47 @@ public class OntoDocManager implements OntologyDocumentManager {
 
         // load it to document manager
         file2baseIRI.entrySet().forEach(e -> {
+                    boolean isRegistered = ontDocumentManager.getFileManager().getLocationMapper().getAltEntry(e.getKey()) != null;
+                    if (reloadFiles || isRegistered) {
+                        ontDocumentManager.getFileManager().removeCacheModel(e.getKey());
+                        synchronized (changedOntologyUris) {
+                            changedOntologyUris.add(e.getKey());
+                        }
+                    }
                     ontDocumentManager.addAltEntry(e.getKey(), e.getValue());
+                    documentChangeListeners.forEach(l -> l.accept(e.getKey()));
                 }
         );
         lastTime = Instant.now();
     }
 
+    @Override
+    public void unregisterDocuments(Path fileOrDirectoryPath) {
+        LocationMapper locationMapper = ontDocumentManager.getFileManager().getLocationMapper();
+        String location = fileOrDirectoryPath.toString();
+
+        List<String> ontoUris = new LinkedList<>();
+        locationMapper.listAltEntries().forEachRemaining(uri -> {
+            String altEntry = locationMapper.getAltEntry(uri);
+            if (altEntry.equals(location) || altEntry.startsWith(location + File.separator)) {
+                ontoUris.add(uri);
+            }
+        });
+
+        removeSPINRelevantModels(fileOrDirectoryPath.toAbsolutePath().toString());
+
+        ontoUris.forEach(uri -> {
+            LOG.info("Unregistering ontology {} of deleted file {}.", uri, locationMapper.getAltEntry(uri));
+            ontDocumentManager.forget(uri);
+            locationMapper.removeAltEntry(uri);
+            ontDocumentManager.getFileManager().removeCacheModel(uri);
+            synchronized (changedOntologyUris) {
+                changedOntologyUris.add(uri);
+            }
+            documentChangeListeners.forEach(l -> l.accept(uri));
+        });
+    }
+
     @Override
     public Set<String> getRegisteredOntologyUris() {
         Set<String> ontoUris = new HashSet<>();
@@ -125,6 +183,20 @@ public class OntoDocManager implements OntologyDocumentManager {
         return ontoUris;
     }
 
+    @Override
+    public Set<String> pollChangedOntologyUris() {
+        synchronized (changedOntologyUris) {
+            Set<String> ontoUris = new HashSet<>(changedOntologyUris);
+            changedOntologyUris.clear();
+            return ontoUris;
+        }
+    }
+
+    @Override
+    public void addDocumentChangeListener(Consumer<String> listener) {
+        documentChangeListeners.add(listener);
+    }
+
     @Override
     public OntModel getOntology(String uri) {
         return ontDocumentManager.getOntology(uri, OntModelSpec.OWL_MEM);
@@ -140,7 +212,9 @@ public class OntoDocManager implements OntologyDocumentManager {
      */
     @Override
     public void reset() {
+        Set<String> ontoUris = getRegisteredOntologyUris();
         getOntDocumentManager().reset();
+        ontoUris.forEach(uri -> documentChangeListeners.forEach(l -> l.accept(uri)));
     }
 
     public OntDocumentManager getOntDocumentManager() {
@@ -166,39 +240,111 @@ public class OntoDocManager implements OntologyDocumentManager {
     }
 
     public static Map<String, Model> getAllFile2Model(Path directoryOrFilePath) {
+        return getAllFile2Model(
+                directoryOrFilePath,
+                ContextLoaderConfig.isParallelLoading() ? ContextLoaderConfig.getLoadingParallelism() : 1
+        );
+    }
+
+    /**
+     * @param parallelism maximal number of threads used to parse the files, 1 means parsing on the calling thread
+     */
+    static Map<String, Model> getAllFile2Model(Path directoryOrFilePath, int parallelism) {
         Map<String, Model> file2Model = new HashMap<>();
 
+        List<Path> files;
         try (Stream<Path> stream = Files.walk(directoryOrFilePath)) {
-            stream
+            files = stream
                     .filter(f -> !Files.isDirectory(f))
                     .filter(f -> {
                         String fileName = f.getFileName().toString();
                         return isFileNameSupported(fileName);
                     })
-                    .forEach(file -> {
-                        if(reloadFiles && !wasModified(file)){
-                            return;
-                        }
-                        String lang = FileUtils.guessLang(file.getFileName().toString());
-
-                        LOG.debug("Loading model from {} ...", file.toUri().toString());
-                        Model model = loadModel(file, lang);
-
-                        if (model != null) {
-                            OntoDocManager.addSPINRelevantModel(file.toAbsolutePath().toString(), model);
-                        }
-
-                        file2Model.put(file.toString(), model);
-
-                    });
+                    .filter(f -> !reloadFiles || wasModified(f))
+                    .sorted()
+                    .collect(Collectors.toList());
         } catch (IOException | DirectoryIteratorException e) {
             // IOException can never be thrown by the iteration.
             // In this snippet, it can only be thrown by newDirectoryStream.
             LOG.error("Could not load ontologies from directory {} -- {} .", directoryOrFilePath, e);
+            return file2Model;
+        }
+
+        if (parallelism > 1 && files.size() > 1) {
+            loadModelsInParallel(files, parallelism).forEach((file, model) -> addLoadedModel(file2Model, file, model));
+        } else {
+            files.forEach(file -> addLoadedModel(file2Model, file, loadModelOfDocument(file)));
+        }
+
+        if (getSnapshotStore() != null) {
+            getSnapshotStore().save();
         }
         return file2Model;
     }
 
+    /**
+     * Loads models of the files on a bounded pool of worker threads.
+     * If loading of some files fails, all failures are logged and reported by single exception,
+     * so that no model is applied.
+     *
+     * @return map file -> model in the order of the files
+     */
+    private static Map<Path, Model> loadModelsInParallel(List<Path> files, int parallelism) {
+        int threadCount = Math.min(parallelism, files.size());
+        LOG.debug("Loading {} files using {} threads ...", files.size(), threadCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            Map<Path, Future<Model>> file2Future = new LinkedHashMap<>();
+            files.forEach(file -> file2Future.put(file, executor.submit(() -> loadModelOfDocument(file))));
+
+            Map<Path, Model> file2Model = new LinkedHashMap<>();
+            Map<Path, Throwable> file2Failure = new LinkedHashMap<>();
+            for (Map.Entry<Path, Future<Model>> e : file2Future.entrySet()) {
+                try {
+                    file2Model.put(e.getKey(), e.getValue().get());
+                } catch (ExecutionException ex) {
+                    LOG.error("Could not load model from {} -- {}", e.getKey(), ex.getCause().getMessage());
+                    file2Failure.put(e.getKey(), ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SPipesException("Loading of models was interrupted.", ex);
+                }
+            }
+            if (!file2Failure.isEmpty()) {
+                SPipesException exception = new SPipesException("Could not load models from files " + file2Failure.keySet() + ".");
+                file2Failure.values().forEach(exception::addSuppressed);
+                throw exception;
+            }
+            return file2Model;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Model loadModelOfDocument(Path file) {
+        String lang = FileUtils.guessLang(file.getFileName().toString());
+
+        LOG.debug("Loading model from {} ...", file.toUri().toString());
+        return (getSnapshotStore() != null)
+                ? getSnapshotStore().loadModel(file, lang)
+                : loadModel(file, lang);
+    }
+
+    private static void addLoadedModel(Map<String, Model> file2Model, Path file, Model model) {
+        if (model != null) {
+            OntoDocManager.addSPINRelevantModel(file.toAbsolutePath().toString(), model);
+        }
+        file2Model.put(file.toString(), model);
+    }
+
+    private static synchronized DocumentSnapshotStore getSnapshotStore() {
+        if (snapshotStore == null && ContextLoaderConfig.getSnapshotPath() != null) {
+            snapshotStore = new DocumentSnapshotStore(ContextLoaderConfig.getSnapshotPath());
+        }
+        return snapshotStore;
+    }
+
     // TODO remove this method !!!
     private static void addSPINRelevantModel(String fileName, Model model) {
         String baseURI = JenaUtils.getBaseUri(model);
@@ -213,14 +359,23 @@ public class OntoDocManager implements OntologyDocumentManager {
 //                    ) {
             //LOG.debug("Adding library ... " + baseURI);
 //                if (fileName.endsWith("spin-function.spin.ttl")) {
-            allLoadedFilesModel.add(model);
+            file2PendingSPINModel.put(fileName, model);
 //                }
 //            }
         }
     }
 
+    // SPIN modules of removed files are unregistered by the next rebuild of the registry
+    private static void removeSPINRelevantModels(String fileOrDirectoryName) {
+        Predicate<String> isRemoved = f -> f.equals(fileOrDirectoryName) || f.startsWith(fileOrDirectoryName + File.separator);
+        file2PendingSPINModel.keySet().removeIf(isRemoved);
+        if (file2RegisteredSPINModel.keySet().removeIf(isRemoved)) {
+            isSPINRegistryRebuildRequired = true;
+        }
+    }
+
     private static void clearSPINRelevantModel() {
-        allLoadedFilesModel = ModelFactory.createDefaultModel();
+        file2PendingSPINModel = new LinkedHashMap<>();
     }
 
     static Map<String, String> getAllBaseIris(Path directoryorFilePath) {
@@ -364,22 +519,45 @@ public class OntoDocManager implements OntologyDocumentManager {
         return model.listResourcesWithProperty(RDF.type, OWL.Ontology).nextResource().toString();
     }
 
+    /**
+     * Registers SPIN functions and templates of files loaded since the last call of this method.
+     * If none of the files was registered before, only the new functions and templates are registered,
+     * otherwise the registry is rebuilt from all loaded files. The registry is also rebuilt after files
+     * with registered functions or templates were unregistered, see {@link #unregisterDocuments(Path)}.
+     */
     public static void registerAllSPINModules() {
         LOG.warn("WORKAROUND -- Applying a workaround to register all SPIN modules ..."); // TODO remove this workaround
+        if (isSPINRegistryInitialized && !isSPINRegistryRebuildRequired && file2PendingSPINModel.isEmpty()) {
+            LOG.debug("No new files were loaded, keeping registered SPIN modules.");
+            return;
+        }
+        boolean isRebuildRequired = !isSPINRegistryInitialized
+                || isSPINRegistryRebuildRequired
+                || file2PendingSPINModel.keySet().stream().anyMatch(file2RegisteredSPINModel::containsKey);
+
         Model model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-        model.add(OntoDocManager.allLoadedFilesModel);
-        SPINModuleRegistry.get().reset();
-//        if (!SPINModuleRegistry.get().getFunctions().isEmpty()) {
-//            LOG.error("SPIN registry was not cleared.");
-//        }
-        SPINModuleRegistry.get().init();
+        if (isRebuildRequired) {
+            file2RegisteredSPINModel.putAll(file2PendingSPINModel);
+            file2RegisteredSPINModel.values().forEach(model::add);
+            SPINModuleRegistry.get().reset();
+            SPINModuleRegistry.get().init();
+        } else {
+            // class hierarchy of already registered files is needed to recognize new functions and templates
+            file2RegisteredSPINModel.values().forEach(
+                    m -> model.add(m.listStatements(null, RDFS.subClassOf, (RDFNode) null))
+            );
+            file2PendingSPINModel.values().forEach(model::add);
+            file2RegisteredSPINModel.putAll(file2PendingSPINModel);
+        }
+        LOG.debug("Registering SPIN modules of {} files ({}).",
+                isRebuildRequired ? file2RegisteredSPINModel.size() : file2PendingSPINModel.size(),
+                isRebuildRequired ? "full rebuild" : "incremental");
         SPINModuleRegistry.get().registerAll(model, null);
+        isSPINRegistryInitialized = true;
+        isSPINRegistryRebuildRequired = false;
         clearSPINRelevantModel();
-//        OntModel model = ModelFactory.createOntologyModel();
-//        model.add(OntoDocManager.allLoadedFilesModel);
-//        SPINModuleRegistry.get().registerAll(model, null);
-
     }
+
     class OntologyReadFailureHandler implements OntDocumentManager.ReadFailureHandler {
         @Override
         public void handleFailedRead(String url, Model model, Exception e) {
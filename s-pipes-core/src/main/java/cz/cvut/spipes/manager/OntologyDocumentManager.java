@@ -3,6 +3,7 @@ package cz.cvut.spipes.manager;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import org.apache.jena.ontology.OntDocumentManager;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.rdf.model.Model;
@@ -24,9 +25,32 @@ public interface OntologyDocumentManager {
      */
     void registerDocuments(Path fileOrDirectoryPath);
 
+    /**
+     * Unregisters ontology documents of a deleted file or of all files within a deleted directory.
+     *
+     * @param fileOrDirectoryPath path of the deleted file or directory, same as used for registration
+     */
+    void unregisterDocuments(Path fileOrDirectoryPath);
+
 
     Set<String> getRegisteredOntologyUris();
 
+    /**
+     * Returns uris of ontologies whose documents were registered again since the last call of this method
+     * because they were added or modified.
+     *
+     * @return set of ontology uris
+     */
+    Set<String> pollChangedOntologyUris();
+
+    /**
+     * Adds listener that is notified with uri of an ontology whenever its document is registered,
+     * i.e. added or modified, and for each registered ontology when this document manager is reset.
+     *
+     * @param listener listener of ontology uris
+     */
+    void addDocumentChangeListener(Consumer<String> listener);
+
     OntModel getOntology(String uri);
 
     Model getModel(String uri);
@@ -1,22 +1,36 @@
 package cz.cvut.spipes.manager;
 
+import cz.cvut.spipes.constants.KBSS_MODULE;
 import cz.cvut.spipes.engine.PipelineFactory;
+import cz.cvut.spipes.engine.PipelineTemplate;
 import cz.cvut.spipes.exception.ResourceNotFoundException;
 import cz.cvut.spipes.exception.ResourceNotUniqueException;
 import cz.cvut.spipes.modules.Module;
+import cz.cvut.spipes.modules.ModuleConstraints;
 import cz.cvut.spipes.registry.JenaResourceRegistry;
 import cz.cvut.spipes.registry.ResourceRegistry;
 import cz.cvut.spipes.repository.SMScriptCollectionRepository;
 import cz.cvut.spipes.repository.ScriptCollectionRepository;
 import cz.cvut.spipes.util.JenaPipelineUtils;
+import cz.cvut.spipes.util.ExpressionCache;
+import cz.cvut.spipes.util.QueryCache;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * Registers resources to contexts.
@@ -32,36 +46,134 @@ public class SPipesScriptManager {
     private static final Logger LOG = LoggerFactory.getLogger(SPipesScriptManager.class);
 
     // TODO instead of ontoDocManager should point to ScriptCollectionRepository
-    private Set<String> globalScripts;
     ///private final Map<String, OntModel> globalScriptsMap = new LinkedHashMap<>();
     //private final OntologyDocumentManager ontoDocManager;
     private ScriptCollectionRepository scriptsRepository;
-    private ResourceRegistry functionRegistry;
-    private ResourceRegistry moduleRegistry;
     private OntologyDocumentManager ontoDocManager;
+    // replaced as a whole, so that each request sees consistent state even during reload
+    private volatile RegisteredScripts registeredScripts;
+    private final AtomicLong scriptsVersionCounter = new AtomicLong();
+    // ontology document manager is not thread-safe, documents are read by request threads only under the read lock
+    private final ReadWriteLock documentsLock = new ReentrantReadWriteLock();
 
-    private void registerAll(OntologyDocumentManager ontoDocManager, Collection<String> globalScripts) {
+    private RegisteredScripts registerAll(Set<String> globalScripts) {
         List<Resource> functions = scriptsRepository.getFunctions(globalScripts);
         List<Resource> modules = scriptsRepository.getModules(globalScripts);
 
-        functionRegistry = new JenaResourceRegistry(functions);
-        moduleRegistry = new JenaResourceRegistry(modules);
+        RegisteredScripts scripts = new RegisteredScripts(
+            scriptsVersionCounter.incrementAndGet(),
+            globalScripts,
+            new JenaResourceRegistry(functions),
+            new JenaResourceRegistry(modules),
+            getContext2Dependencies(globalScripts)
+        );
 
         OntoDocManager.registerAllSPINModules();
+        return scripts;
     }
 
-    public void reloadScripts(Collection<String> globalScript) {
-        this.globalScripts = new HashSet<String>(globalScript);
-        registerAll(ontoDocManager, this.globalScripts);
+    /**
+     * Reloads all global scripts.
+     *
+     * @param globalScript uris of global scripts
+     */
+    public synchronized void reloadScripts(Collection<String> globalScript) {
+        documentsLock.writeLock().lock();
+        try {
+            QueryCache.get().invalidate();
+            ExpressionCache.get().invalidate();
+            ModuleConstraints.invalidate();
+            registeredScripts = registerAll(new HashSet<>(globalScript));
+        } finally {
+            documentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates registered documents and reloads global scripts affected by ontologies changed by the update
+     * (see {@link OntologyDocumentManager#pollChangedOntologyUris()}). Documents are not read by other threads
+     * during the update and the reload.
+     *
+     * @param documentsUpdate registration of changed documents that returns uris of global scripts after the update
+     */
+    public synchronized void reloadScripts(Supplier<Collection<String>> documentsUpdate) {
+        documentsLock.writeLock().lock();
+        try {
+            Collection<String> globalScripts = documentsUpdate.get();
+            reloadScripts(globalScripts, ontoDocManager.pollChangedOntologyUris());
+        } finally {
+            documentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads only global scripts affected by the changed ontologies, i.e. scripts that were added, removed
+     * or that depend on some of the changed ontologies. Registered modules and functions of other scripts are reused.
+     *
+     * @param globalScript uris of global scripts
+     * @param changedOntologyUris uris of ontologies whose documents changed since the last reload
+     */
+    public synchronized void reloadScripts(Collection<String> globalScript, Collection<String> changedOntologyUris) {
+        documentsLock.writeLock().lock();
+        try {
+            reloadAffectedScripts(globalScript, changedOntologyUris);
+        } finally {
+            documentsLock.writeLock().unlock();
+        }
+    }
+
+    private void reloadAffectedScripts(Collection<String> globalScript, Collection<String> changedOntologyUris) {
+        RegisteredScripts currentScripts = registeredScripts;
+        Set<String> globalScripts = new HashSet<>(globalScript);
+
+        Set<String> affectedScripts = new HashSet<>();
+        currentScripts.globalScripts.stream()
+            .filter(ctx -> !globalScripts.contains(ctx)
+                || !Collections.disjoint(currentScripts.context2Dependencies.get(ctx), changedOntologyUris))
+            .forEach(affectedScripts::add);
+        globalScripts.stream()
+            .filter(ctx -> !currentScripts.globalScripts.contains(ctx))
+            .forEach(affectedScripts::add);
+
+        if (affectedScripts.isEmpty()) {
+            LOG.debug("No global script is affected by changed ontologies {}.", changedOntologyUris);
+            OntoDocManager.registerAllSPINModules();
+            return;
+        }
+        LOG.info("Reloading global scripts {} affected by changed ontologies {}.", affectedScripts, changedOntologyUris);
+
+        affectedScripts.forEach(ctx -> ontoDocManager.getOntDocumentManager().getFileManager().removeCacheModel(ctx));
+        QueryCache.get().invalidate();
+        ExpressionCache.get().invalidate();
+        ModuleConstraints.invalidate();
+
+        Set<String> reloadedScripts = new HashSet<>(affectedScripts);
+        reloadedScripts.retainAll(globalScripts);
+
+        Map<String, Set<String>> context2Dependencies = new HashMap<>(currentScripts.context2Dependencies);
+        context2Dependencies.keySet().removeAll(affectedScripts);
+        context2Dependencies.putAll(getContext2Dependencies(reloadedScripts));
+
+        RegisteredScripts newScripts = new RegisteredScripts(
+            scriptsVersionCounter.incrementAndGet(),
+            globalScripts,
+            currentScripts.functionRegistry.withReplacedContexts(
+                affectedScripts, scriptsRepository.getFunctions(reloadedScripts)),
+            currentScripts.moduleRegistry.withReplacedContexts(
+                affectedScripts, scriptsRepository.getModules(reloadedScripts)),
+            context2Dependencies
+        );
+        newScripts.reuseTemplates(currentScripts, affectedScripts);
+        registeredScripts = newScripts;
+
+        OntoDocManager.registerAllSPINModules();
     }
 
     public SPipesScriptManager(OntologyDocumentManager ontoDocManager, Collection<String> globalScripts) {
         this.ontoDocManager = ontoDocManager;
         scriptsRepository = new SMScriptCollectionRepository(ontoDocManager);
 
-        this.globalScripts = new HashSet<>(globalScripts);
-
-        registerAll(ontoDocManager, globalScripts);
+        registeredScripts = registerAll(new HashSet<>(globalScripts));
     }
 
 
@@ -74,6 +186,9 @@ public class SPipesScriptManager {
             throw new UnsupportedOperationException();
         }
 
+        RegisteredScripts scripts = registeredScripts;
+        ResourceRegistry moduleRegistry = scripts.moduleRegistry;
+
         String resourceUri;
         String resourceContextUri;
 
@@ -88,21 +203,62 @@ public class SPipesScriptManager {
 
         // TODO check moduleTypeUri
 
-        return PipelineFactory.loadPipeline(scriptsRepository.getResource(resourceUri, resourceContextUri));
+        PipelineTemplate template = scripts.getTemplates(scripts.context2ModuleTemplates, resourceContextUri)
+            .computeIfAbsent(
+                resourceUri,
+                uri -> readDocuments(() -> PipelineTemplate.compile(scriptsRepository.getResource(uri, resourceContextUri)))
+            );
+        return (template != null && template.isOutputModule()) ? template.instantiate() : null;
     }
 
     public Module loadFunction(String functionId) {
 
+        RegisteredScripts scripts = registeredScripts;
+        ResourceRegistry functionRegistry = scripts.functionRegistry;
+
         // TODO interface to return URI+Context would be more appropriate (jena*.Resource ?)
         String resourceUri = functionRegistry.getResourceUri(functionId);
         String resourceContextUri = functionRegistry.getContexts(resourceUri).iterator().next();
-        Resource functionRes = scriptsRepository.getResource(resourceUri, resourceContextUri);
 
-        Resource returnModuleRes = getReturnModule(functionRes);
-        return PipelineFactory.loadModulePipeline(returnModuleRes);
+        PipelineTemplate template = scripts.getTemplates(scripts.context2FunctionTemplates, resourceContextUri)
+            .computeIfAbsent(resourceUri, uri -> readDocuments(() -> {
+                Resource functionRes = scriptsRepository.getResource(uri, resourceContextUri);
+                return PipelineTemplate.compile(getReturnModule(functionRes));
+            }));
+        return (template != null) ? template.instantiate() : null;
     }
 
 
+    /**
+     * @return uri of the function
+     */
+    public String getFunctionUri(String functionId) {
+        return registeredScripts.functionRegistry.getResourceUri(functionId);
+    }
+
+    /**
+     * Returns maximal age of cached results of the function, see {@link KBSS_MODULE#has_result_cache_max_age}.
+     *
+     * @return maximal age in seconds, 0 if results of the function should not be cached
+     */
+    public long getResultCacheMaxAgeSeconds(String functionId) {
+        RegisteredScripts scripts = registeredScripts;
+        String resourceUri = scripts.functionRegistry.getResourceUri(functionId);
+        return scripts.function2ResultCacheMaxAge.computeIfAbsent(resourceUri, uri -> {
+            String resourceContextUri = scripts.functionRegistry.getContexts(uri).iterator().next();
+            Statement maxAge = readDocuments(() -> scriptsRepository.getResource(uri, resourceContextUri)
+                .getProperty(KBSS_MODULE.has_result_cache_max_age));
+            return (maxAge == null) ? 0L : Math.max(0L, maxAge.getLong());
+        });
+    }
+
+    /**
+     * @return version of registered scripts that changes whenever scripts are reloaded
+     */
+    public long getScriptsVersion() {
+        return registeredScripts.version;
+    }
+
     //TODO !!!! shold not be implemented here
     private Resource getReturnModule(Resource functionResource) {
         return JenaPipelineUtils.getAllFunctionsWithReturnModules(functionResource.getModel()).get(functionResource);
@@ -113,7 +269,7 @@ public class SPipesScriptManager {
     }
 
     public Set<String> getGlobalScripts() {
-        return globalScripts;
+        return registeredScripts.globalScripts;
     }
 
 
@@ -143,4 +299,68 @@ public class SPipesScriptManager {
 
     // ----------------------------------- PRIVATE METHODS -----------------------------------
 
+    private <T> T readDocuments(Supplier<T> reader) {
+        documentsLock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            documentsLock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Set<String>> getContext2Dependencies(Collection<String> globalScripts) {
+        Map<String, Set<String>> context2Dependencies = new HashMap<>();
+        globalScripts.forEach(ctx -> context2Dependencies.put(ctx, scriptsRepository.getContextDependencies(ctx)));
+        return context2Dependencies;
+    }
+
+    private static class RegisteredScripts {
+
+        private final long version;
+        private final Set<String> globalScripts;
+        private final JenaResourceRegistry functionRegistry;
+        private final JenaResourceRegistry moduleRegistry;
+        // global script -> ontologies within its import closure
+        private final Map<String, Set<String>> context2Dependencies;
+        // global script -> (module uri -> compiled pipeline of the module)
+        private final Map<String, Map<String, PipelineTemplate>> context2ModuleTemplates = new ConcurrentHashMap<>();
+        // global script -> (function uri -> compiled pipeline of its return module)
+        private final Map<String, Map<String, PipelineTemplate>> context2FunctionTemplates = new ConcurrentHashMap<>();
+        // function uri -> maximal age of its cached results in seconds
+        private final Map<String, Long> function2ResultCacheMaxAge = new ConcurrentHashMap<>();
+
+        RegisteredScripts(long version,
+                          Set<String> globalScripts,
+                          JenaResourceRegistry functionRegistry,
+                          JenaResourceRegistry moduleRegistry,
+                          Map<String, Set<String>> context2Dependencies) {
+            this.version = version;
+            this.globalScripts = Collections.unmodifiableSet(globalScripts);
+            this.functionRegistry = functionRegistry;
+            this.moduleRegistry = moduleRegistry;
+            this.context2Dependencies = context2Dependencies;
+        }
+
+        private Map<String, PipelineTemplate> getTemplates(Map<String, Map<String, PipelineTemplate>> context2Templates,
+                                                           String context) {
+            return context2Templates.computeIfAbsent(context, ctx -> new ConcurrentHashMap<>());
+        }
+
+        /**
+         * Reuses compiled pipelines of the previous scripts except of those from the reloaded contexts.
+         */
+        private void reuseTemplates(RegisteredScripts previousScripts, Set<String> reloadedContexts) {
+            previousScripts.context2ModuleTemplates.forEach((ctx, templates) -> {
+                if (!reloadedContexts.contains(ctx)) {
+                    context2ModuleTemplates.put(ctx, templates);
+                }
+            });
+            previousScripts.context2FunctionTemplates.forEach((ctx, templates) -> {
+                if (!reloadedContexts.contains(ctx)) {
+                    context2FunctionTemplates.put(ctx, templates);
+                }
+            });
+        }
+    }
+
 }
@@ -0,0 +1,265 @@
+package cz.cvut.spipes.manager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watches script directories in a background thread and publishes changed script files to a listener,
+ * so that callers do not need to scan the file system to find out whether scripts changed.
+ * <p>
+ * Changes are detected by {@link WatchService}. Events are debounced, i.e. changed files are published
+ * only after no other change was observed for the debounce period. If the watch service is not available
+ * (or polling is requested), directories are scanned periodically and modification times of the files
+ * are compared with the previous scan.
+ * <p>
+ * Published set contains created, modified and deleted files with one of the supported extensions.
+ * The listener is always called from the watcher thread.
+ */
+public class ScriptDirectoryWatcher implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScriptDirectoryWatcher.class);
+
+    private final List<Path> rootPaths;
+    private final List<String> supportedFileExtensions;
+    private final Consumer<Set<Path>> changeListener;
+    private final long debounceMillis;
+    private final long pollIntervalMillis;
+    private final boolean isPollingForced;
+
+    private final Map<WatchKey, Path> key2Directory = new HashMap<>();
+    private WatchService watchService;
+    private Map<Path, FileTime> file2ModifiedTime;
+    private Thread watcherThread;
+    private volatile boolean isRunning = false;
+
+    /**
+     * @param rootPaths directories (or files) to be watched recursively
+     * @param supportedFileExtensions extensions of files whose changes are published
+     * @param changeListener listener of changed files
+     * @param debounceMillis quiet period after last change before changes are published
+     * @param pollIntervalMillis interval between scans when polling is used
+     * @param isPollingForced true to use polling even if watch service is available
+     */
+    public ScriptDirectoryWatcher(List<Path> rootPaths,
+                                  List<String> supportedFileExtensions,
+                                  Consumer<Set<Path>> changeListener,
+                                  long debounceMillis,
+                                  long pollIntervalMillis,
+                                  boolean isPollingForced) {
+        this.rootPaths = rootPaths;
+        this.supportedFileExtensions = supportedFileExtensions;
+        this.changeListener = changeListener;
+        this.debounceMillis = debounceMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.isPollingForced = isPollingForced;
+    }
+
+    /**
+     * Starts watching in a background daemon thread.
+     */
+    public synchronized void start() {
+        if (isRunning) {
+            return;
+        }
+        isRunning = true;
+
+        Runnable watchLoop = this::poll;
+        if (!isPollingForced) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                for (Path rootPath : rootPaths) {
+                    registerRecursively(Files.isDirectory(rootPath) ? rootPath : rootPath.getParent());
+                }
+                watchLoop = this::watch;
+            } catch (IOException | UnsupportedOperationException e) {
+                LOG.warn("Could not use watch service to watch script directories {}, falling back to polling every {} ms.",
+                    rootPaths, pollIntervalMillis, e);
+                closeWatchService();
+            }
+        }
+
+        if (watchService == null) {
+            file2ModifiedTime = scan();
+        }
+        watcherThread = new Thread(watchLoop, "spipes-script-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        LOG.info("Started watching script directories {} using {}.", rootPaths, (watchService != null) ? "watch service" : "polling");
+    }
+
+    @Override
+    public synchronized void close() {
+        isRunning = false;
+        closeWatchService();
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+    }
+
+    public boolean isPolling() {
+        return watchService == null;
+    }
+
+    private void watch() {
+        WatchService watchService = this.watchService;
+        Set<Path> changedFiles = new LinkedHashSet<>();
+        try {
+            while (isRunning) {
+                WatchKey key = changedFiles.isEmpty()
+                    ? watchService.take()
+                    : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+
+                if (key == null) { // no change within debounce period
+                    publish(changedFiles);
+                    changedFiles = new LinkedHashSet<>();
+                    continue;
+                }
+
+                Path directory = key2Directory.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        LOG.warn("Some changes of directory {} were lost, publishing all its files.", directory);
+                        changedFiles.addAll(listSupportedFiles(directory));
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                        try {
+                            registerRecursively(path);
+                        } catch (IOException e) {
+                            LOG.warn("Could not watch new directory {}.", path, e);
+                        }
+                        changedFiles.addAll(listSupportedFiles(path));
+                    } else if (isFileSupported(path)) {
+                        changedFiles.add(path);
+                    }
+                }
+                if (!key.reset()) {
+                    key2Directory.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOG.debug("Watching of script directories stopped.");
+        }
+    }
+
+    private void poll() {
+        try {
+            while (isRunning) {
+                Thread.sleep(pollIntervalMillis);
+                Map<Path, FileTime> newFile2ModifiedTime = scan();
+
+                Set<Path> changedFiles = new LinkedHashSet<>();
+                newFile2ModifiedTime.forEach((file, time) -> {
+                    if (!time.equals(file2ModifiedTime.get(file))) {
+                        changedFiles.add(file);
+                    }
+                });
+                file2ModifiedTime.keySet().stream()
+                    .filter(file -> !newFile2ModifiedTime.containsKey(file))
+                    .forEach(changedFiles::add);
+
+                file2ModifiedTime.clear();
+                file2ModifiedTime.putAll(newFile2ModifiedTime);
+                publish(changedFiles);
+            }
+        } catch (InterruptedException e) {
+            LOG.debug("Polling of script directories stopped.");
+        }
+    }
+
+    private void publish(Set<Path> changedFiles) {
+        if (changedFiles.isEmpty() || !isRunning) {
+            return;
+        }
+        LOG.info("Detected changes of script files {}.", changedFiles);
+        try {
+            changeListener.accept(Collections.unmodifiableSet(changedFiles));
+        } catch (RuntimeException e) {
+            LOG.error("Processing of changed script files {} failed.", changedFiles, e);
+        }
+    }
+
+    private Map<Path, FileTime> scan() {
+        Map<Path, FileTime> file2ModifiedTime = new HashMap<>();
+        rootPaths.forEach(rootPath -> listSupportedFiles(rootPath).forEach(file -> {
+            try {
+                file2ModifiedTime.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                LOG.debug("Could not read modification time of {}, ignoring the file.", file);
+            }
+        }));
+        return file2ModifiedTime;
+    }
+
+    private Set<Path> listSupportedFiles(Path path) {
+        if (!Files.exists(path)) {
+            return Collections.emptySet();
+        }
+        try (Stream<Path> stream = Files.walk(path)) {
+            return stream
+                .filter(f -> !Files.isDirectory(f))
+                .filter(this::isFileSupported)
+                .collect(Collectors.toSet());
+        } catch (IOException e) {
+            LOG.warn("Could not list files of {}.", path, e);
+            return new HashSet<>();
+        }
+    }
+
+    private void registerRecursively(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.walk(directory)) {
+            for (Path d : stream.filter(Files::isDirectory).collect(Collectors.toList())) {
+                WatchKey key = d.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE
+                );
+                key2Directory.put(key, d);
+            }
+        }
+    }
+
+    private boolean isFileSupported(Path path) {
+        String fileName = Objects.toString(path.getFileName(), "");
+        return supportedFileExtensions.stream().anyMatch(ext -> fileName.endsWith("." + ext));
+    }
+
+    private void closeWatchService() {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close watch service.", e);
+        }
+        watchService = null;
+    }
+}
@@ -0,0 +1,153 @@
+package cz.cvut.spipes.metrics;
+
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonNumber;
+import org.apache.jena.atlas.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trace of one pipeline execution. Module executions form a tree -- children of a module execution are executions
+ * of its input modules, which are executed before the module. The critical path, i.e. chain of module executions
+ * that determined the duration of the pipeline execution, is marked in the JSON representation.
+ */
+public class ExecutionTrace {
+
+    private final long pipelineExecutionId;
+    private final long startTimeMillis;
+    private volatile long finishTimeMillis = -1;
+    private final Map<String, ModuleSpan> spans = new LinkedHashMap<>();
+
+    public ExecutionTrace(long pipelineExecutionId) {
+        this.pipelineExecutionId = pipelineExecutionId;
+        this.startTimeMillis = System.currentTimeMillis();
+    }
+
+    public long getPipelineExecutionId() {
+        return pipelineExecutionId;
+    }
+
+    synchronized void moduleStarted(String moduleExecutionId,
+                                    String moduleType,
+                                    String moduleIri,
+                                    String predecessorModuleExecutionId,
+                                    long inputTriples) {
+        spans.put(
+            moduleExecutionId,
+            new ModuleSpan(moduleExecutionId, moduleType, moduleIri, predecessorModuleExecutionId, inputTriples)
+        );
+    }
+
+    /**
+     * @param statistics statistics of the module execution, null if not available
+     * @return true if the module execution was started and not finished yet
+     */
+    synchronized boolean moduleFinished(String moduleExecutionId, ModuleExecutionStatistics statistics, long outputTriples) {
+        ModuleSpan span = spans.get(moduleExecutionId);
+        if (span == null || span.finishTimeMillis >= 0) {
+            return false;
+        }
+        span.finishTimeMillis = System.currentTimeMillis();
+        span.statistics = statistics;
+        span.outputTriples = outputTriples;
+        if (statistics != null) {
+            span.startTimeMillis = statistics.getStartTimeMillis();
+            span.finishTimeMillis = statistics.getStartTimeMillis() + statistics.getWallTimeNanos() / 1_000_000;
+        }
+        return true;
+    }
+
+    void finish() {
+        finishTimeMillis = System.currentTimeMillis();
+    }
+
+    public synchronized JsonObject toJson() {
+        Map<String, List<ModuleSpan>> predecessorId2Spans = new HashMap<>();
+        List<ModuleSpan> rootSpans = new ArrayList<>();
+        for (ModuleSpan span : spans.values()) {
+            if (span.predecessorId != null && spans.containsKey(span.predecessorId)) {
+                predecessorId2Spans.computeIfAbsent(span.predecessorId, k -> new ArrayList<>()).add(span);
+            } else {
+                rootSpans.add(span);
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.put("pipelineExecutionId", pipelineExecutionId);
+        json.put("startTime", startTimeMillis);
+        if (finishTimeMillis >= 0) {
+            json.put("durationMillis", finishTimeMillis - startTimeMillis);
+        }
+        json.put("modules", toJson(rootSpans, predecessorId2Spans, true));
+        return json;
+    }
+
+    private JsonArray toJson(List<ModuleSpan> spans, Map<String, List<ModuleSpan>> predecessorId2Spans, boolean isOnCriticalPath) {
+        // the input finished last delayed the module the most
+        ModuleSpan criticalSpan = spans.stream()
+            .max(Comparator.comparingLong(s -> s.finishTimeMillis))
+            .orElse(null);
+
+        JsonArray array = new JsonArray();
+        for (ModuleSpan span : spans) {
+            boolean isCritical = isOnCriticalPath && span == criticalSpan;
+            JsonObject json = span.toJson(isCritical);
+            json.put(
+                "inputs",
+                toJson(predecessorId2Spans.getOrDefault(span.moduleExecutionId, new ArrayList<>()), predecessorId2Spans, isCritical)
+            );
+            array.add(json);
+        }
+        return array;
+    }
+
+    private static class ModuleSpan {
+        private final String moduleExecutionId;
+        private final String moduleType;
+        private final String moduleIri;
+        private final String predecessorId;
+        private final long inputTriples;
+        private long startTimeMillis = System.currentTimeMillis();
+        private long finishTimeMillis = -1;
+        private long outputTriples = -1;
+        private ModuleExecutionStatistics statistics;
+
+        private ModuleSpan(String moduleExecutionId, String moduleType, String moduleIri, String predecessorId, long inputTriples) {
+            this.moduleExecutionId = moduleExecutionId;
+            this.moduleType = moduleType;
+            this.moduleIri = moduleIri;
+            this.predecessorId = predecessorId;
+            this.inputTriples = inputTriples;
+        }
+
+        private JsonObject toJson(boolean isCritical) {
+            JsonObject json = new JsonObject();
+            json.put("moduleExecutionId", moduleExecutionId);
+            json.put("moduleType", String.valueOf(moduleType));
+            json.put("module", String.valueOf(moduleIri));
+            json.put("startTime", startTimeMillis);
+            if (statistics == null && finishTimeMillis >= 0) {
+                json.put("wallTimeMillis", finishTimeMillis - startTimeMillis);
+            }
+            if (statistics != null) {
+                json.put("wallTimeMillis", JsonNumber.value(statistics.getWallTimeNanos() / 1e6));
+                if (statistics.getCpuTimeNanos() >= 0) {
+                    json.put("cpuTimeMillis", JsonNumber.value(statistics.getCpuTimeNanos() / 1e6));
+                }
+                if (statistics.getAllocatedBytes() >= 0) {
+                    json.put("allocatedBytes", statistics.getAllocatedBytes());
+                }
+                json.put("constraintValidationTimeMillis", JsonNumber.value(statistics.getConstraintValidationTimeNanos() / 1e6));
+            }
+            json.put("inputTriples", inputTriples);
+            json.put("outputTriples", outputTriples);
+            json.put("critical", isCritical);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package cz.cvut.spipes.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative long values with fixed memory and bounded relative error, similar to HdrHistogram.
+ * <p>
+ * Values are counted in buckets whose width grows with the magnitude of the value -- each power of two is divided
+ * into {@value #SUB_BUCKET_COUNT} buckets, thus a quantile is reported with relative error lower than
+ * 1/{@value #SUB_BUCKET_COUNT}. Values lower than {@value #SUB_BUCKET_COUNT} are counted exactly. Recording is
+ * lock-free and can be done from multiple threads, reading while values are recorded returns approximate results.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value value to be recorded, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        bucketCounts.incrementAndGet(getBucketIndex(v));
+        count.increment();
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile quantile from interval [0, 1]
+     * @return upper bound of the bucket containing the value at the quantile, 0 if no values were recorded
+     */
+    public long getValueAtQuantile(double quantile) {
+        long totalCount = getCount();
+        if (totalCount == 0) {
+            return 0;
+        }
+        long targetCount = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulativeCount += bucketCounts.get(i);
+            if (cumulativeCount >= targetCount) {
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long getBucketUpperBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        int shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+        long subBucket = bucketIndex % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
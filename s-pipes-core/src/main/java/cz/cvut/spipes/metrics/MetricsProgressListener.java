@@ -0,0 +1,104 @@
+package cz.cvut.spipes.metrics;
+
+import cz.cvut.spipes.engine.ExecutionContext;
+import cz.cvut.spipes.engine.ProgressListener;
+import cz.cvut.spipes.modules.AbstractModule;
+import cz.cvut.spipes.modules.Module;
+import org.apache.jena.rdf.model.Resource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records metrics of module executions to {@link MetricsRegistry} and builds {@link ExecutionTrace} of each
+ * pipeline execution.
+ * <p>
+ * Wall time, CPU time, allocated bytes and constraint validation time are measured by modules themselves
+ * (see {@link AbstractModule#getExecutionStatistics()}), thus they are correct also for parallel executions.
+ * Other modules are recorded only with triple counts.
+ */
+public class MetricsProgressListener implements ProgressListener {
+
+    private final MetricsRegistry registry;
+    private final Map<Long, ExecutionTrace> runningTraces = new ConcurrentHashMap<>();
+
+    public MetricsProgressListener() {
+        this(MetricsRegistry.getInstance());
+    }
+
+    public MetricsProgressListener(Resource configResource) {
+        this();
+    }
+
+    MetricsProgressListener(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void pipelineExecutionStarted(long pipelineExecutionId) {
+        runningTraces.put(pipelineExecutionId, new ExecutionTrace(pipelineExecutionId));
+    }
+
+    @Override
+    public void pipelineExecutionFinished(long pipelineExecutionId) {
+        ExecutionTrace trace = runningTraces.remove(pipelineExecutionId);
+        if (trace != null) {
+            trace.finish();
+            registry.addTrace(trace);
+        }
+    }
+
+    @Override
+    public void moduleExecutionStarted(long pipelineExecutionId,
+                                       String moduleExecutionId,
+                                       Module outputModule,
+                                       ExecutionContext inputContext,
+                                       String predecessorModuleExecutionId) {
+        ExecutionTrace trace = runningTraces.get(pipelineExecutionId);
+        if (trace == null) {
+            return;
+        }
+        String moduleType = outputModule.getTypeURI();
+        String moduleIri = getModuleIri(outputModule);
+        long inputTriples = inputContext.getDefaultModel().size();
+        trace.moduleStarted(moduleExecutionId, moduleType, moduleIri, predecessorModuleExecutionId, inputTriples);
+        registry.record(moduleType, moduleIri, ModuleMetric.inputTriples, inputTriples);
+    }
+
+    @Override
+    public void moduleExecutionFinished(long pipelineExecutionId, String moduleExecutionId, Module outputModule) {
+        ExecutionTrace trace = runningTraces.get(pipelineExecutionId);
+        if (trace == null) {
+            return;
+        }
+        ModuleExecutionStatistics statistics = (outputModule instanceof AbstractModule)
+            ? ((AbstractModule) outputModule).getExecutionStatistics()
+            : null;
+        long outputTriples = outputModule.getOutputContext().getDefaultModel().size();
+        if (!trace.moduleFinished(moduleExecutionId, statistics, outputTriples)) {
+            // module was executed earlier within the pipeline execution, its output is only reused
+            return;
+        }
+        String moduleType = outputModule.getTypeURI();
+        String moduleIri = getModuleIri(outputModule);
+        registry.record(moduleType, moduleIri, ModuleMetric.outputTriples, outputTriples);
+        if (statistics != null) {
+            registry.record(moduleType, moduleIri, ModuleMetric.wallTime, statistics.getWallTimeNanos());
+            if (statistics.getCpuTimeNanos() >= 0) {
+                registry.record(moduleType, moduleIri, ModuleMetric.cpuTime, statistics.getCpuTimeNanos());
+            }
+            if (statistics.getAllocatedBytes() >= 0) {
+                registry.record(moduleType, moduleIri, ModuleMetric.allocatedBytes, statistics.getAllocatedBytes());
+            }
+            registry.record(moduleType, moduleIri, ModuleMetric.constraintValidationTime, statistics.getConstraintValidationTimeNanos());
+        }
+    }
+
+    private static String getModuleIri(Module module) {
+        Resource resource = module.getResource();
+        if (resource == null) {
+            return null;
+        }
+        return resource.isURIResource() ? resource.getURI() : resource.toString();
+    }
+}
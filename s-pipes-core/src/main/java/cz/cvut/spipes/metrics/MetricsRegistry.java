@@ -0,0 +1,148 @@
+package cz.cvut.spipes.metrics;
+
+import cz.cvut.spipes.config.MetricsConfig;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of module executions aggregated per module type and module IRI, and traces of latest pipeline executions.
+ * <p>
+ * Metrics are exposed in the Prometheus text exposition format as summaries with quantiles computed
+ * from {@link Histogram}s. Registry is shared within the application, see {@link #getInstance()}.
+ */
+public class MetricsRegistry {
+
+    private static final double[] EXPOSED_QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry(MetricsConfig.getMaxRetainedTraces());
+
+    private final Map<ModuleKey, Map<ModuleMetric, Histogram>> moduleHistograms = new ConcurrentHashMap<>();
+    private final Map<Long, ExecutionTrace> traces;
+
+    /**
+     * @param maxRetainedTraces number of latest traces that are kept
+     */
+    MetricsRegistry(int maxRetainedTraces) {
+        this.traces = new LinkedHashMap<Long, ExecutionTrace>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ExecutionTrace> eldest) {
+                return size() > maxRetainedTraces;
+            }
+        };
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(String moduleType, String moduleIri, ModuleMetric metric, long value) {
+        moduleHistograms
+            .computeIfAbsent(new ModuleKey(moduleType, moduleIri), k -> createHistograms())
+            .get(metric)
+            .record(value);
+    }
+
+    /**
+     * @return histogram of the metric, null if no execution of the module was recorded
+     */
+    public Histogram getHistogram(String moduleType, String moduleIri, ModuleMetric metric) {
+        Map<ModuleMetric, Histogram> histograms = moduleHistograms.get(new ModuleKey(moduleType, moduleIri));
+        return (histograms == null) ? null : histograms.get(metric);
+    }
+
+    public synchronized void addTrace(ExecutionTrace trace) {
+        traces.put(trace.getPipelineExecutionId(), trace);
+    }
+
+    /**
+     * @return trace of the pipeline execution, null if the execution is not finished or its trace is not retained
+     */
+    public synchronized ExecutionTrace getTrace(long pipelineExecutionId) {
+        return traces.get(pipelineExecutionId);
+    }
+
+    public synchronized void clear() {
+        moduleHistograms.clear();
+        traces.clear();
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public void writeTextExposition(Writer writer) throws IOException {
+        List<Map.Entry<ModuleKey, Map<ModuleMetric, Histogram>>> entries = moduleHistograms.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey(
+                Comparator.comparing((ModuleKey k) -> k.moduleType).thenComparing(k -> k.moduleIri)
+            ))
+            .collect(Collectors.toList());
+
+        for (ModuleMetric metric : ModuleMetric.values()) {
+            String name = metric.getExposedName();
+            writer.write("# HELP " + name + " " + metric.getDescription() + "\n");
+            writer.write("# TYPE " + name + " summary\n");
+            for (Map.Entry<ModuleKey, Map<ModuleMetric, Histogram>> e : entries) {
+                Histogram histogram = e.getValue().get(metric);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                String labels = "module_type=\"" + escapeLabelValue(e.getKey().moduleType)
+                    + "\",module=\"" + escapeLabelValue(e.getKey().moduleIri) + "\"";
+                for (double quantile : EXPOSED_QUANTILES) {
+                    writer.write(name + "{" + labels + ",quantile=\"" + quantile + "\"} "
+                        + histogram.getValueAtQuantile(quantile) * metric.getExposedUnitScale() + "\n");
+                }
+                writer.write(name + "_sum{" + labels + "} " + histogram.getSum() * metric.getExposedUnitScale() + "\n");
+                writer.write(name + "_count{" + labels + "} " + histogram.getCount() + "\n");
+            }
+        }
+        writer.flush();
+    }
+
+    private static Map<ModuleMetric, Histogram> createHistograms() {
+        Map<ModuleMetric, Histogram> histograms = new EnumMap<>(ModuleMetric.class);
+        for (ModuleMetric metric : ModuleMetric.values()) {
+            histograms.put(metric, new Histogram());
+        }
+        return histograms;
+    }
+
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class ModuleKey {
+        private final String moduleType;
+        private final String moduleIri;
+
+        private ModuleKey(String moduleType, String moduleIri) {
+            this.moduleType = String.valueOf(moduleType);
+            this.moduleIri = String.valueOf(moduleIri);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ModuleKey)) {
+                return false;
+            }
+            ModuleKey that = (ModuleKey) o;
+            return moduleType.equals(that.moduleType) && moduleIri.equals(that.moduleIri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(moduleType, moduleIri);
+        }
+    }
+}
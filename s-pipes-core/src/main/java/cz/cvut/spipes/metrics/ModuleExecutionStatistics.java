@@ -0,0 +1,93 @@
+package cz.cvut.spipes.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Resources consumed by one execution of a module. Statistics are measured on the thread that executes the module,
+ * thus CPU time and allocated bytes do not include work of other threads the module delegates to
+ * (e.g. parallel validation of constraints).
+ * <p>
+ * CPU time and allocated bytes are -1 if the JVM does not support their measurement.
+ */
+public class ModuleExecutionStatistics {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long startTimeMillis;
+    private final long startWallTime;
+    private final long startCpuTime;
+    private final long startAllocatedBytes;
+
+    private long wallTimeNanos = -1;
+    private long cpuTimeNanos = -1;
+    private long allocatedBytes = -1;
+    private long constraintValidationTimeNanos;
+
+    private ModuleExecutionStatistics() {
+        startTimeMillis = System.currentTimeMillis();
+        startWallTime = System.nanoTime();
+        startCpuTime = getCurrentThreadCpuTime();
+        startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Starts measurement of an execution on the current thread.
+     */
+    public static ModuleExecutionStatistics start() {
+        return new ModuleExecutionStatistics();
+    }
+
+    public void addConstraintValidationTime(long nanos) {
+        constraintValidationTimeNanos += nanos;
+    }
+
+    /**
+     * Finishes measurement of the execution, must be called on the thread that started it.
+     */
+    public void finish() {
+        wallTimeNanos = System.nanoTime() - startWallTime;
+        long cpuTime = getCurrentThreadCpuTime();
+        cpuTimeNanos = (startCpuTime < 0 || cpuTime < 0) ? -1 : cpuTime - startCpuTime;
+        long allocated = getCurrentThreadAllocatedBytes();
+        allocatedBytes = (startAllocatedBytes < 0 || allocated < 0) ? -1 : allocated - startAllocatedBytes;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    public long getCpuTimeNanos() {
+        return cpuTimeNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getConstraintValidationTimeNanos() {
+        return constraintValidationTimeNanos;
+    }
+
+    private static long getCurrentThreadCpuTime() {
+        if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() || !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+
+    private static long getCurrentThreadAllocatedBytes() {
+        if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        if (!threadMXBean.isThreadAllocatedMemorySupported() || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,40 @@
+package cz.cvut.spipes.metrics;
+
+/**
+ * Metrics recorded for each executed module, see {@link MetricsRegistry}.
+ */
+public enum ModuleMetric {
+    wallTime("spipes_module_wall_time_seconds", "Wall time of module executions.", 1e-9),
+    cpuTime("spipes_module_cpu_time_seconds", "CPU time of threads executing modules.", 1e-9),
+    allocatedBytes("spipes_module_allocated_bytes", "Bytes allocated by threads executing modules.", 1),
+    inputTriples("spipes_module_input_triples", "Number of triples in input models of modules.", 1),
+    outputTriples("spipes_module_output_triples", "Number of triples in output models of modules.", 1),
+    constraintValidationTime("spipes_module_constraint_validation_seconds", "Time spent by validation of module constraints.", 1e-9);
+
+    private final String exposedName;
+    private final String description;
+    private final double exposedUnitScale;
+
+    /**
+     * @param exposedName name of the metric in the text exposition format
+     * @param description human readable description of the metric
+     * @param exposedUnitScale factor converting recorded values to exposed values (e.g. nanoseconds to seconds)
+     */
+    ModuleMetric(String exposedName, String description, double exposedUnitScale) {
+        this.exposedName = exposedName;
+        this.description = description;
+        this.exposedUnitScale = exposedUnitScale;
+    }
+
+    public String getExposedName() {
+        return exposedName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getExposedUnitScale() {
+        return exposedUnitScale;
+    }
+}
@@ -1,6 +1,7 @@
 package cz.cvut.spipes.modules;
 
 import cz.cvut.spipes.config.AuditConfig;
+import cz.cvut.spipes.config.ConstraintValidationMode;
 import cz.cvut.spipes.config.Environment;
 import cz.cvut.spipes.config.ExecutionConfig;
 import cz.cvut.spipes.constants.KBSS_MODULE;
@@ -8,9 +9,10 @@ import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.engine.ExecutionContextFactory;
 import cz.cvut.spipes.engine.VariablesBinding;
 import cz.cvut.spipes.exception.ValidationConstraintFailedException;
+import cz.cvut.spipes.metrics.ModuleExecutionStatistics;
+import cz.cvut.spipes.util.ExpressionCache;
 import cz.cvut.spipes.util.JenaUtils;
-import cz.cvut.spipes.util.QueryUtils;
-import org.apache.jena.atlas.lib.NotImplemented;
+import cz.cvut.spipes.util.ModelSnapshotWriter;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
@@ -20,12 +22,9 @@ import org.apache.jena.vocabulary.RDFS;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.topbraid.spin.arq.ARQFactory;
 import org.topbraid.spin.model.Ask;
 import org.topbraid.spin.model.Construct;
-import org.topbraid.spin.model.SPINFactory;
 import org.topbraid.spin.model.Select;
-import org.topbraid.spin.util.SPINExpressions;
 import org.topbraid.spin.vocabulary.SP;
 
 import java.io.*;
@@ -44,10 +43,10 @@ public abstract class AbstractModule implements Module {
     List<Module> inputModules = new LinkedList<>();
     ExecutionContext executionContext;
     ExecutionContext outputContext;
-    private List<Resource> inputConstraintQueries;
-    private List<Resource> outputConstraintQueries;
+    private ModuleConstraints constraints;
     protected boolean isInDebugMode;
     private boolean isTargetModule;
+    private ModuleExecutionStatistics executionStatistics;
 
 
     // load each properties
@@ -59,6 +58,7 @@ public abstract class AbstractModule implements Module {
 
     @Override
     public ExecutionContext execute() {
+        final ModuleExecutionStatistics statistics = ModuleExecutionStatistics.start();
         loadModuleFlags();
         loadConfiguration();
         loadModuleConstraints();
@@ -68,7 +68,9 @@ public abstract class AbstractModule implements Module {
             LOG.debug("Saving module's execution input to file {}.", inputModelFilePath);
         }
         if (ExecutionConfig.isCheckValidationConstrains()) {
+            final long validationStartTime = System.nanoTime();
             checkInputConstraints();
+            statistics.addConstraintValidationTime(System.nanoTime() - validationStartTime);
         }
         outputContext = executeSelf();
         if (AuditConfig.isEnabled() || isInDebugMode) {
@@ -76,13 +78,17 @@ public abstract class AbstractModule implements Module {
         }
 
         if (ExecutionConfig.isCheckValidationConstrains()) {
+            final long validationStartTime = System.nanoTime();
             checkOutputConstraints();
+            statistics.addConstraintValidationTime(System.nanoTime() - validationStartTime);
         }
 
         if (ExecutionConfig.getEnvironment().equals(Environment.development)) {
             generateLinkToRerunExecution(inputModelFilePath);
         }
 
+        statistics.finish();
+        executionStatistics = statistics;
         return outputContext;
     }
 
@@ -162,6 +168,13 @@ public abstract class AbstractModule implements Module {
         return inputModules;
     }
 
+    /**
+     * @return statistics of the last finished execution of this module, null if the module was not executed yet
+     */
+    public ModuleExecutionStatistics getExecutionStatistics() {
+        return executionStatistics;
+    }
+
     @Override
     public void setInputModules(List<Module> inputModules) {
         this.inputModules = inputModules;
@@ -170,19 +183,15 @@ public abstract class AbstractModule implements Module {
 
     /* ------------------ PRIVATE METHODS --------------------- */
 
-    // TODO revise
+    /**
+     * Saves the model in the format of {@link AuditConfig#getSnapshotFormat()}, a model with content that
+     * was already saved is not saved again.
+     *
+     * @return absolute path to the file with the content of the model
+     */
     protected String saveModelToTemporaryFile(Model model) {
-        File tempFile = null;
         try {
-            tempFile = Files.createTempFile("formgen-", ".ttl").toFile();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
-        try (OutputStream tempFileIs = new FileOutputStream(tempFile)) {
-            model.write(tempFileIs, FileUtils.langTurtle);
-
-            return tempFile.getAbsolutePath();
+            return ModelSnapshotWriter.getTemporaryFileWriter().write(model, "formgen-").toAbsolutePath().toString();
         } catch (IOException e) {
             e.printStackTrace();
             return null;
@@ -208,8 +217,7 @@ public abstract class AbstractModule implements Module {
     }
 
     private void loadModuleConstraints() {
-        inputConstraintQueries = getResourcesByProperty(KBSS_MODULE.has_input_graph_constraint);
-        outputConstraintQueries = getResourcesByProperty(KBSS_MODULE.has_output_graph_constraint);
+        constraints = ModuleConstraints.forModule(resource);
     }
 
     private void loadModuleFlags() {
@@ -225,9 +233,9 @@ public abstract class AbstractModule implements Module {
         VariablesBinding mergedVarsBinding = new VariablesBinding(executionContext.getVariablesBinding().asQuerySolution());
         mergedVarsBinding.extendConsistently(outputContext.getVariablesBinding());
 
-        if (!outputConstraintQueries.isEmpty()) {
+        if (!constraints.getOutputConstraints().isEmpty()) {
             LOG.debug("Validating module's output constraints ...");
-            checkConstraints(defaultModel, mergedVarsBinding.asQuerySolution(), outputConstraintQueries);
+            checkConstraints(defaultModel, mergedVarsBinding.asQuerySolution(), constraints.getOutputConstraints());
         }
     }
 
@@ -236,86 +244,72 @@ public abstract class AbstractModule implements Module {
 
         QuerySolution bindings = executionContext.getVariablesBinding().asQuerySolution();
 
-        if (!inputConstraintQueries.isEmpty()) {
+        if (!constraints.getInputConstraints().isEmpty()) {
             LOG.debug("Validating module's input constraints ...");
-            checkConstraints(defaultModel, bindings, inputConstraintQueries);
+            checkConstraints(defaultModel, bindings, constraints.getInputConstraints());
         }
     }
 
 
-    private void checkConstraints(Model model, QuerySolution bindings, List<Resource> constraintQueries) {
-
-        // sort queries based on order specified by comments within query
-        constraintQueries = sortConstraintQueries(constraintQueries);
-
-        //      set up variable bindings
-        for (Resource queryRes : constraintQueries) {
-            org.topbraid.spin.model.Query spinQuery = SPINFactory.asQuery(queryRes);
-
-            // TODO template call
-//            if (spinQuery == null) {
-//                TemplateCall templateCall = SPINFactory.asTemplateCall(queryRes);
-//            }
-
-            Query query = ARQFactory.get().createQuery(spinQuery);
-
-            QueryExecution execution = QueryExecutionFactory.create(query, model, bindings);
-
-            boolean constraintViolated;
-            StringBuilder evidence = new StringBuilder();
+    /**
+     * Validates constraints in the mode configured by properties of the module
+     * or by {@link ExecutionConfig} if the module does not specify them.
+     */
+    private void checkConstraints(Model model, QuerySolution bindings, List<ModuleConstraints.Constraint> constraints) {
+        ConstraintValidationMode mode = ConstraintValidationMode.valueOf(getPropertyValue(
+            KBSS_MODULE.has_constraint_validation_mode, ExecutionConfig.getConstraintValidationMode().toString()
+        ));
+        int maxViolations = (ExecutionConfig.isExitOnError() || ExecutionConfig.isConstraintValidationFailFast())
+            ? 1
+            : getPropertyValue(KBSS_MODULE.has_constraint_validation_max_violations, ExecutionConfig.getConstraintValidationMaxViolations());
+        int timeBudgetMillis = getPropertyValue(
+            KBSS_MODULE.has_constraint_validation_time_budget, ExecutionConfig.getConstraintValidationTimeBudgetMillis()
+        );
 
-            if (spinQuery instanceof Ask) {
-                constraintViolated = execution.execAsk();
-            } else if (spinQuery instanceof Select) { //TODO implement
-                ResultSet rs = execution.execSelect();
-                constraintViolated = rs.hasNext();
+        Model validatedModel = model;
+        String modeDescription = mode.toString();
+        if (mode == ConstraintValidationMode.sample) {
+            int sampleSize = getPropertyValue(
+                KBSS_MODULE.has_constraint_validation_sample_size, ExecutionConfig.getConstraintValidationSampleSize()
+            );
+            validatedModel = JenaUtils.sample(model, sampleSize, ExecutionConfig.getConstraintValidationSampleSeed());
+            modeDescription = String.format("%s (%d of %d statements)", mode, validatedModel.size(), model.size());
+        }
 
-                if(constraintViolated){
-                    evidence.append("Evidence of the violation: \n");
-                    for(int i = 0; i < 3 && rs.hasNext(); i++){
-                        QuerySolution solution = rs.next() ;
-                        evidence.append(solution.toString());
-                    }
-                }
-            } else if (spinQuery instanceof Construct) {
-                throw new NotImplemented("Constraints for objects " + query + " not implemented.");
-            } else {
-                throw new NotImplemented("Constraints for objects " + query + " not implemented.");
-            }
+        boolean isSampled = validatedModel != model;
+        ModuleConstraints.ValidationResult result = ModuleConstraints.validate(
+            constraints,
+            validatedModel,
+            bindings,
+            ExecutionConfig.getConstraintValidationParallelism(),
+            // violations found on the sample need not be confirmed, so the sample is not limited by their number
+            isSampled ? 0 : maxViolations,
+            timeBudgetMillis
+        );
+        if (isSampled) {
+            result = ModuleConstraints.confirmViolations(result, model, bindings, maxViolations);
+        }
+        LOG.info("Validated {} of {} constraints of module {} in {} mode, {} violation(s) found.",
+            result.getValidatedCount(),
+            constraints.size(),
+            resource,
+            modeDescription,
+            result.getViolations().size());
+        if (result.getSkippedCount() > 0) {
+            LOG.warn("Validation of {} constraints of module {} skipped, limit of {} violation(s) or {} ms reached.",
+                result.getSkippedCount(), resource, maxViolations, timeBudgetMillis);
+        }
 
-            if (constraintViolated) {
-
-                String mainErrorMsg = String.format("Validation of constraint failed for the constraint \"%s\".", getQueryComment(spinQuery));
-                String failedQueryMsg = String.format("Failed validation constraint : \n %s", spinQuery.toString());
-                String mergedMsg = new StringBuffer()
-                        .append(mainErrorMsg).append("\n")
-                        .append(failedQueryMsg).append("\n")
-                        .append(evidence).append("\n")
-                        .toString();
-                LOG.error(mergedMsg);
-                if (ExecutionConfig.isExitOnError()) {
-                    throw new ValidationConstraintFailedException(mergedMsg, this);
-                }
-            } else {
-                LOG.debug("Constraint validated for exception \"{}\".", getQueryComment(spinQuery));
+        for (String violation : result.getViolations()) {
+            LOG.error(violation);
+            if (ExecutionConfig.isExitOnError()) {
+                throw new ValidationConstraintFailedException(violation, this);
             }
         }
-
     }
 
     protected String getQueryComment(org.topbraid.spin.model.Query query) {
-        if (query.getComment() != null) {
-            return query.getComment();
-        }
-        String comment = QueryUtils.getQueryComment(query.toString());
-        if (comment != null) {
-            return comment;
-        }
-//        Resource obj = query.getPropertyResourceValue(RDFS.comment);
-//        if (obj == null) {
-//            return query.getURI();
-//        }
-        return query.getURI();
+        return ModuleConstraints.getQueryComment(query);
     }
 
     private org.topbraid.spin.model.Query getQuery(Resource queryResource) {
@@ -413,10 +407,13 @@ public abstract class AbstractModule implements Module {
             .map(r -> r.getProperty(valueProperty))
             .map(Statement::getObject)
             .orElse(null);
-        if (SPINExpressions.isExpression(valueNode)) {
-            Resource expr = (Resource) SPINFactory.asExpression(valueNode);
+        ExpressionCache.CompiledExpression expr = ExpressionCache.get().getExpression(valueNode);
+        if (expr != null) {
+            if (expr.isConstant()) {
+                return expr.evaluate(resource.getModel(), null);
+            }
             QuerySolution bindings = executionContext.getVariablesBinding().asQuerySolution();
-            RDFNode node = SPINExpressions.evaluate(expr, resource.getModel(), bindings); //TODO resource.getModel() should be part o context
+            RDFNode node = expr.evaluate(resource.getModel(), bindings); //TODO resource.getModel() should be part o context
             if (node == null) {
                 LOG.error("SPIN expression {} for bindings {} evaluated to null.", expr, bindings);
             }
@@ -460,15 +457,6 @@ public abstract class AbstractModule implements Module {
     }
 
 
-    private List<Resource> sortConstraintQueries(List<Resource> constraintQueries) {
-        return constraintQueries.stream().sorted((resource1, resource2) -> {
-            org.topbraid.spin.model.Query spinQuery1 = SPINFactory.asQuery(resource1);
-            org.topbraid.spin.model.Query spinQuery2 = SPINFactory.asQuery(resource2);
-
-            return spinQuery1.toString().compareTo(spinQuery2.toString());
-        }).collect(Collectors.toList());
-    }
-
 //    @Override
 //    public String toString() {
 //        String resourceId = (resource  != null) ? ( " (" + resource.getId() + ")") : "";
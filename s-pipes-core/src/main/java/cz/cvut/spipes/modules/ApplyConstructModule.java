@@ -7,16 +7,18 @@ import cz.cvut.spipes.constants.KBSS_MODULE;
 import cz.cvut.spipes.constants.SML;
 import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.util.JenaUtils;
+import cz.cvut.spipes.util.QueryCache;
 import cz.cvut.spipes.util.QueryUtils;
+import cz.cvut.spipes.util.SemiNaiveQueryUtils;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.Query;
-import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.topbraid.spin.arq.ARQFactory;
 import org.topbraid.spin.model.Construct;
 import org.topbraid.spin.system.SPINModuleRegistry;
 import org.topbraid.spin.vocabulary.SP;
@@ -61,6 +63,15 @@ public class ApplyConstructModule extends AbstractModule {
      */
     private int iterationCount;
 
+    //kbss:isSemiNaive
+    /**
+     * Whether iterations after the first one should use semi-naive evaluation, i.e. compute only inferences
+     * that depend on triples inferred in the previous iteration. Queries that cannot be rewritten
+     * (e.g. containing OPTIONAL, MINUS or NOT EXISTS) are evaluated fully, unless none of their triple patterns
+     * matches the newly inferred triples.
+     */
+    private boolean isSemiNaive;
+
     public ApplyConstructModule() {
         // TODO move elsewhere
         SPINModuleRegistry.get().init(); //TODO -- downloads spin from the web (should be cached instead)
@@ -82,6 +93,14 @@ public class ApplyConstructModule extends AbstractModule {
         this.iterationCount = iterationCount;
     }
 
+    public boolean isSemiNaive() {
+        return isSemiNaive;
+    }
+
+    public void setSemiNaive(boolean semiNaive) {
+        isSemiNaive = semiNaive;
+    }
+
     public boolean isReplace() {
         return isReplace;
     }
@@ -110,11 +129,19 @@ public class ApplyConstructModule extends AbstractModule {
 
         Model inferredModel = ModelFactory.createDefaultModel();
 
+        // triples inferred in the previous iteration and the model they were inferred from (semi-naive evaluation)
+        Model deltaModel = null;
+        Model previousModel = null;
+
         List<Construct> constructQueriesSorted = constructQueries
             .stream().map(r -> r.as(Construct.class))
             .sorted(Comparator.comparing(this::getQueryComment))
             .collect(Collectors.toList());
 
+        List<Query> queries = constructQueriesSorted.stream()
+            .map(this::getQuery)
+            .collect(Collectors.toList());
+
         while (inferredTriplesCount > 0 && count++ < iterationCount) {
             //      set up variable bindings
 
@@ -132,15 +159,15 @@ public class ApplyConstructModule extends AbstractModule {
                     );
                 }
 
-                Query query;
-                if (parseText) {
-                    query = QueryFactory.create(spinConstructRes.getProperty(SP.text).getLiteral().getString());
+                Query query = queries.get(i);
+
+                Model constructedModel;
+                if (isSemiNaive && deltaModel != null) {
+                    constructedModel = execConstructSemiNaive(query, extendedInferredModel, deltaModel, previousModel, bindings);
                 } else {
-                    query = ARQFactory.get().createQuery(spinConstructRes);
+                    constructedModel = QueryUtils.execConstruct(query, extendedInferredModel, bindings);
                 }
 
-                Model constructedModel = QueryUtils.execConstruct(query, extendedInferredModel, bindings);
-
                 if (LOG.isTraceEnabled()) {
                     LOG.trace("... the query returned {} triples.", constructedModel.size());
                 }
@@ -149,12 +176,19 @@ public class ApplyConstructModule extends AbstractModule {
                     LOG.debug("... saving module's partially computed output to file {}.", saveModelToTemporaryFile(constructedModel));
                 }
 
-                inferredInSingleIterationModel = ModelFactory.createUnion(inferredInSingleIterationModel, constructedModel);
+                inferredInSingleIterationModel.add(constructedModel);
             }
 
-            Model newModel = JenaUtils.createUnion(inferredModel, inferredInSingleIterationModel);
+            // materialized, so that unions do not nest over iterations
+            Model newModel = ModelFactory.createDefaultModel().add(inferredModel).add(inferredInSingleIterationModel);
 
-            inferredTriplesCount = newModel.size() - inferredModel.size();
+            if (isSemiNaive) {
+                deltaModel = inferredInSingleIterationModel.difference(extendedInferredModel);
+                previousModel = extendedInferredModel;
+                inferredTriplesCount = deltaModel.size();
+            } else {
+                inferredTriplesCount = newModel.size() - inferredModel.size();
+            }
             LOG.trace("Iteration {}/{} inferred {} new triples.", count, iterationCount, inferredTriplesCount);
 
             inferredModel = newModel;
@@ -163,6 +197,32 @@ public class ApplyConstructModule extends AbstractModule {
         return this.createOutputContext(isReplace, inferredModel);
     }
 
+    private Query getQuery(Construct spinConstructRes) {
+        if (parseText) {
+            return QueryCache.get().getQuery(spinConstructRes.getProperty(SP.text).getLiteral().getString());
+        }
+        return QueryCache.get().getQuery(spinConstructRes);
+    }
+
+    private Model execConstructSemiNaive(Query query, Model model, Model deltaModel, Model previousModel, QuerySolution bindings) {
+        if (SemiNaiveQueryUtils.isRewritable(query)) {
+            Dataset dataset = DatasetFactory.create(model);
+            dataset.addNamedModel(SemiNaiveQueryUtils.DELTA_GRAPH_URI, deltaModel);
+            dataset.addNamedModel(SemiNaiveQueryUtils.PREVIOUS_GRAPH_URI, previousModel);
+
+            Model constructedModel = ModelFactory.createDefaultModel();
+            SemiNaiveQueryUtils.createDeltaQueries(query)
+                .forEach(q -> constructedModel.add(QueryUtils.execConstruct(q, dataset, bindings)));
+            return constructedModel;
+        }
+        if (SemiNaiveQueryUtils.mayMatch(query, deltaModel)) {
+            LOG.trace("... the query cannot be evaluated semi-naively, evaluating it fully.");
+            return QueryUtils.execConstruct(query, model, bindings);
+        }
+        LOG.trace("... the query does not match any newly inferred triple, skipping it.");
+        return ModelFactory.createDefaultModel();
+    }
+
     @Override
     public String getTypeURI() {
         return SML.ApplyConstruct.getURI();
@@ -184,5 +244,6 @@ public class ApplyConstructModule extends AbstractModule {
 
         parseText = this.getPropertyValue(KBSS_MODULE.is_parse_text, false);
         iterationCount = this.getPropertyValue(KBSS_MODULE.has_max_iteration_count, 1);
+        isSemiNaive = this.getPropertyValue(KBSS_MODULE.is_semi_naive, false);
     }
 }
@@ -4,6 +4,7 @@ import cz.cvut.spipes.constants.SML;
 import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.engine.ExecutionContextFactory;
 import cz.cvut.spipes.engine.VariablesBinding;
+import cz.cvut.spipes.util.QueryCache;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
@@ -12,7 +13,6 @@ import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.topbraid.spin.arq.ARQFactory;
 import org.topbraid.spin.model.Select;
 
 public class BindBySelectModule extends AbstractModule  {
@@ -26,7 +26,7 @@ public class BindBySelectModule extends AbstractModule  {
     @Override
     public ExecutionContext executeSelf() {
 
-        Query query = ARQFactory.get().createQuery(selectQuery);
+        Query query = QueryCache.get().getQuery(selectQuery);
 
         QuerySolution inputBindings = executionContext.getVariablesBinding().asQuerySolution();
 
@@ -0,0 +1,139 @@
+package cz.cvut.spipes.modules;
+
+import org.apache.jena.rdf.model.AnonId;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.RDFVisitor;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds configuration of a module to its fields annotated by {@link Parameter}.
+ * <p>
+ * Annotated fields are scanned only once per module class. For each parameter, the binder keeps its property
+ * and a method handle that sets the field, so binding of configuration within each execution does not use
+ * reflection.
+ */
+final class ConfigurationBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigurationBinder.class);
+
+    private static final Map<Class<?>, ConfigurationBinder> class2Binder = new ConcurrentHashMap<>();
+
+    private static final RDFVisitor VALUE_EXTRACTOR = new RDFVisitor() {
+        @Override
+        public Object visitBlank(Resource r, AnonId id) {
+            return null;
+        }
+
+        @Override
+        public Object visitURI(Resource r, String uri) {
+            return r;
+        }
+
+        @Override
+        public Object visitLiteral(Literal l) {
+            return l.getValue();
+        }
+    };
+
+    private final List<ParameterBinding> parameterBindings;
+
+    private ConfigurationBinder(List<ParameterBinding> parameterBindings) {
+        this.parameterBindings = Collections.unmodifiableList(parameterBindings);
+    }
+
+    /**
+     * @param moduleClass class of the module
+     * @return binder of the module class, created on first use
+     */
+    static ConfigurationBinder forClass(Class<? extends AbstractModule> moduleClass) {
+        return class2Binder.computeIfAbsent(moduleClass, ConfigurationBinder::create);
+    }
+
+    /**
+     * Sets fields of the module to effective values of its parameters.
+     * Fields of parameters whose value is not specified are not changed.
+     *
+     * @param module module whose configuration resource and execution context are already set
+     */
+    void bind(AbstractModule module) {
+        for (ParameterBinding binding : parameterBindings) {
+            RDFNode node = module.getEffectiveValue(binding.property);
+            if (node == null) {
+                continue;
+            }
+            Object value = node.visitWith(VALUE_EXTRACTOR);
+            try {
+                binding.setter.invokeExact((Object) module, value);
+            } catch (ClassCastException | NullPointerException e) {
+                throw new IllegalArgumentException(
+                    String.format("Cannot set value %s of parameter %s to field %s.", node, binding.property, binding.fieldName),
+                    e
+                );
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not set field " + binding.fieldName + ".", e);
+            }
+        }
+    }
+
+    private static ConfigurationBinder create(Class<?> moduleClass) {
+        Set<String> names = new HashSet<>();
+        List<ParameterBinding> parameterBindings = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for (final Field f : moduleClass.getDeclaredFields()) {
+            final Parameter p = f.getAnnotation(Parameter.class);
+            if (p == null) {
+                continue;
+            } else if (!names.add(p.name())) {
+                throw new RuntimeException(String.format("Two parameters are named the same %s, except prefix", p.name()));
+            }
+
+            LOG.trace("Processing parameter {} ", f.getName());
+
+            try {
+                f.setAccessible(true);
+                MethodHandle setter = lookup.unreflectSetter(f)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                parameterBindings.add(new ParameterBinding(
+                    ResourceFactory.createProperty(p.urlPrefix() + p.name()),
+                    setter,
+                    moduleClass.getSimpleName() + "." + f.getName()
+                ));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Could not access field " + f + ".", e);
+            }
+        }
+        return new ConfigurationBinder(parameterBindings);
+    }
+
+    private static class ParameterBinding {
+
+        private final Property property;
+        // (Object module, Object value) -> void
+        private final MethodHandle setter;
+        private final String fieldName;
+
+        ParameterBinding(Property property, MethodHandle setter, String fieldName) {
+            this.property = property;
+            this.setter = setter;
+            this.fieldName = fieldName;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import cz.cvut.spipes.constants.SML;
 import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.engine.ExecutionContextFactory;
 import cz.cvut.spipes.engine.VariablesBinding;
+import cz.cvut.spipes.registry.StreamResource;
+import cz.cvut.spipes.registry.StreamResourceRegistry;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -37,7 +39,7 @@ public class ImportFileFromURLModule extends AbstractModule {
         Path computedTargetFilePath = null;
 
         LOG.debug("Importing file from url {}.", url);
-        try (InputStream inputStream = url.openStream()) {
+        try (InputStream inputStream = openStream()) {
 
             computedTargetFilePath =
                     Optional.ofNullable(targetFilePath)
@@ -60,6 +62,19 @@ public class ImportFileFromURLModule extends AbstractModule {
         );
     }
 
+    /**
+     * Opens stream of the url, content of registered stream resources (e.g. uploaded files) is read
+     * from the registry.
+     */
+    private InputStream openStream() throws IOException {
+        StreamResource res = StreamResourceRegistry.getInstance().getResourceByUrl(url.toString());
+        if (res != null) {
+            LOG.debug("Reading content of registered stream resource {}.", res.getUri());
+            return res.getInputStream();
+        }
+        return url.openStream();
+    }
+
     @Override
     public String getTypeURI() {
         return SML.ImportFileFromURL.getURI();
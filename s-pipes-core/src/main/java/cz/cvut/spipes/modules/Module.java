@@ -9,6 +9,11 @@ import java.util.List;
 /**
  * Module should be initialized with setConfigurationResource and setInputContext.
  * Then loadConfiguration() and execute() method can be called.
+ * <p>
+ * Module instance holds state of its execution (input and output context, loaded configuration), thus it must not
+ * be executed by multiple threads at the same time. It can be executed again, each execution overrides the state
+ * of the previous one. Pipeline definition that can be shared by concurrent executions is
+ * {@link cz.cvut.spipes.engine.PipelineTemplate}, which creates new module instances for each execution.
  * TODO
  */
 public interface Module {
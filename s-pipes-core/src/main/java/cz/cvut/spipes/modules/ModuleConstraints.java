@@ -0,0 +1,378 @@
+package cz.cvut.spipes.modules;
+
+import cz.cvut.spipes.config.ExecutionConfig;
+import cz.cvut.spipes.constants.KBSS_MODULE;
+import cz.cvut.spipes.exception.SPipesException;
+import cz.cvut.spipes.util.QueryCache;
+import cz.cvut.spipes.util.QueryUtils;
+import org.apache.jena.atlas.lib.NotImplemented;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.topbraid.spin.model.Ask;
+import org.topbraid.spin.model.SPINFactory;
+import org.topbraid.spin.model.Select;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Validation constraints of a module, i.e. SPIN queries referenced by
+ * {@link KBSS_MODULE#has_input_graph_constraint} and {@link KBSS_MODULE#has_output_graph_constraint}.
+ * <p>
+ * Constraints are parsed and sorted only once per module configuration resource. Constraint queries only read
+ * the validated model, thus they can be executed concurrently. Violations are always reported in the order of
+ * the sorted constraints, regardless of the order in which the queries finished.
+ * <p>
+ * Parsed constraints keep only the parsed query and its text, so that the cache does not keep the configuration
+ * graph reachable.
+ */
+public final class ModuleConstraints {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModuleConstraints.class);
+
+    private static final ModuleConstraints NO_CONSTRAINTS = new ModuleConstraints(
+        Collections.emptyList(), Collections.emptyList()
+    );
+
+    private static final Map<Graph, Map<Node, ModuleConstraints>> graph2Constraints = new WeakHashMap<>();
+
+    // marks constraints that were not validated
+    private static final String SKIPPED = new String("skipped");
+
+    private final List<Constraint> inputConstraints;
+    private final List<Constraint> outputConstraints;
+
+    private ModuleConstraints(List<Constraint> inputConstraints, List<Constraint> outputConstraints) {
+        this.inputConstraints = inputConstraints;
+        this.outputConstraints = outputConstraints;
+    }
+
+    /**
+     * @param moduleResource configuration resource of the module
+     * @return constraints of the module, parsed on first use
+     */
+    static ModuleConstraints forModule(Resource moduleResource) {
+        if (moduleResource == null || moduleResource.getModel() == null) {
+            return NO_CONSTRAINTS;
+        }
+        Map<Node, ModuleConstraints> node2Constraints;
+        synchronized (graph2Constraints) {
+            node2Constraints = graph2Constraints.computeIfAbsent(
+                moduleResource.getModel().getGraph(), g -> new ConcurrentHashMap<>()
+            );
+        }
+        return node2Constraints.computeIfAbsent(moduleResource.asNode(), n -> new ModuleConstraints(
+            compile(moduleResource, KBSS_MODULE.has_input_graph_constraint),
+            compile(moduleResource, KBSS_MODULE.has_output_graph_constraint)
+        ));
+    }
+
+    /**
+     * Removes all parsed constraints.
+     */
+    public static void invalidate() {
+        synchronized (graph2Constraints) {
+            graph2Constraints.clear();
+        }
+    }
+
+    List<Constraint> getInputConstraints() {
+        return inputConstraints;
+    }
+
+    List<Constraint> getOutputConstraints() {
+        return outputConstraints;
+    }
+
+    /**
+     * Executes constraint queries against the model.
+     *
+     * @param constraints constraints to validate
+     * @param model validated model, it must not be modified during the validation
+     * @param bindings variable bindings of constraint queries
+     * @param parallelism maximal number of constraint queries executed at the same time
+     * @param maxViolations number of violations after which the validation stops, 0 means no limit
+     * @param timeBudgetMillis time after which no other constraint query is started, 0 means no limit
+     * @return violations in the order of the constraints
+     */
+    static ValidationResult validate(List<Constraint> constraints,
+                                     Model model,
+                                     QuerySolution bindings,
+                                     int parallelism,
+                                     int maxViolations,
+                                     long timeBudgetMillis) {
+        final long deadline = (timeBudgetMillis > 0) ? System.nanoTime() + timeBudgetMillis * 1_000_000 : Long.MAX_VALUE;
+        final AtomicBoolean isStopped = new AtomicBoolean(false);
+        final ValidationResult result = new ValidationResult(constraints.size());
+
+        if (parallelism <= 1 || constraints.size() <= 1) {
+            for (Constraint constraint : constraints) {
+                if (result.add(constraint, validate(constraint, model, bindings, deadline, isStopped), maxViolations)) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        final List<CompletableFuture<String>> futures = new ArrayList<>(constraints.size());
+        for (int i = 0; i < constraints.size(); i++) {
+            futures.add(new CompletableFuture<>());
+        }
+        // at most `parallelism` workers of the shared executor pick up constraints of this validation
+        final AtomicInteger nextConstraint = new AtomicInteger();
+        final int workerCount = Math.min(parallelism, constraints.size());
+        for (int w = 0; w < workerCount; w++) {
+            SharedValidationExecutorHolder.EXECUTOR.execute(() -> {
+                int i;
+                while ((i = nextConstraint.getAndIncrement()) < constraints.size()) {
+                    try {
+                        futures.get(i).complete(validate(constraints.get(i), model, bindings, deadline, isStopped));
+                    } catch (Throwable e) {
+                        futures.get(i).completeExceptionally(e);
+                    }
+                }
+            });
+        }
+        try {
+            for (int i = 0; i < constraints.size(); i++) {
+                if (result.add(constraints.get(i), awaitViolation(futures.get(i)), maxViolations)) {
+                    break;
+                }
+            }
+        } finally {
+            // constraints that were not started yet are skipped by the workers
+            isStopped.set(true);
+        }
+        return result;
+    }
+
+    /**
+     * Validates constraints violated on a sample of the model again against the whole model. Constraints joining
+     * statements of different subjects can be violated on the sample, although they are satisfied by the whole model.
+     *
+     * @param sampleResult result of validation of the sample
+     * @param model the whole model
+     * @param bindings variable bindings of constraint queries
+     * @param maxViolations number of confirmed violations after which the validation stops, 0 means no limit
+     * @return violations found on both the sample and the whole model
+     */
+    static ValidationResult confirmViolations(ValidationResult sampleResult,
+                                              Model model,
+                                              QuerySolution bindings,
+                                              int maxViolations) {
+        ValidationResult result = new ValidationResult(sampleResult.constraintCount);
+        result.validatedCount = sampleResult.validatedCount;
+        for (Constraint constraint : sampleResult.violatedConstraints) {
+            String violation = constraint.validate(model, bindings);
+            if (violation == null) {
+                LOG.debug("Violation of constraint \"{}\" found in the sample is not confirmed by the whole model.", constraint);
+                continue;
+            }
+            result.violatedConstraints.add(constraint);
+            result.violations.add(violation);
+            if (maxViolations > 0 && result.violations.size() >= maxViolations) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static String validate(Constraint constraint,
+                                   Model model,
+                                   QuerySolution bindings,
+                                   long deadline,
+                                   AtomicBoolean isStopped) {
+        if (isStopped.get() || System.nanoTime() > deadline) {
+            return SKIPPED;
+        }
+        return constraint.validate(model, bindings);
+    }
+
+    private static String awaitViolation(Future<String> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SPipesException("Interrupted while waiting for validation of a constraint.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SPipesException("Validation of a constraint failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Executor shared by all validations, it runs at most {@link ExecutionConfig#getConstraintValidationParallelism()}
+     * constraint queries at the same time.
+     */
+    private static class SharedValidationExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, ExecutionConfig.getConstraintValidationParallelism()),
+            new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "spipes-constraint-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+    }
+
+    private static List<Constraint> compile(Resource moduleResource, Property constraintProperty) {
+        return moduleResource.listProperties(constraintProperty).toList().stream()
+            .map(st -> SPINFactory.asQuery(st.getObject().asResource()))
+            // sort queries based on order specified by comments within query
+            .sorted(Comparator.comparing(org.topbraid.spin.model.Query::toString))
+            .map(Constraint::new)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Violations found by validation of constraints.
+     */
+    static class ValidationResult {
+
+        private final int constraintCount;
+        private final List<Constraint> violatedConstraints = new ArrayList<>();
+        private final List<String> violations = new ArrayList<>();
+        private int validatedCount;
+
+        private ValidationResult(int constraintCount) {
+            this.constraintCount = constraintCount;
+        }
+
+        /**
+         * @return true if the validation should stop
+         */
+        private boolean add(Constraint constraint, String violation, int maxViolations) {
+            if (violation == SKIPPED) {
+                return false;
+            }
+            validatedCount++;
+            if (violation != null) {
+                violatedConstraints.add(constraint);
+                violations.add(violation);
+            }
+            return maxViolations > 0 && violations.size() >= maxViolations;
+        }
+
+        /**
+         * @return messages describing violations in the order of the constraints
+         */
+        List<String> getViolations() {
+            return violations;
+        }
+
+        int getValidatedCount() {
+            return validatedCount;
+        }
+
+        int getSkippedCount() {
+            return constraintCount - validatedCount;
+        }
+    }
+
+    /**
+     * Constraint query parsed from its SPIN representation.
+     */
+    static class Constraint {
+
+        // the SPIN query is not kept, it is bound to the configuration graph
+        private final String queryText;
+        private final boolean isAsk;
+        private final boolean isSelect;
+        private final Query query;
+        private final String comment;
+
+        private Constraint(org.topbraid.spin.model.Query spinQuery) {
+            this.queryText = spinQuery.toString();
+            this.isAsk = spinQuery instanceof Ask;
+            this.isSelect = spinQuery instanceof Select;
+            this.query = QueryCache.get().getQuery(spinQuery);
+            this.comment = getQueryComment(spinQuery);
+        }
+
+        /**
+         * @return message describing the violation or null if the constraint is satisfied
+         */
+        String validate(Model model, QuerySolution bindings) {
+            boolean constraintViolated;
+            StringBuilder evidence = new StringBuilder();
+
+            try (QueryExecution execution = QueryExecutionFactory.create(query, model, bindings)) {
+                if (isAsk) {
+                    constraintViolated = execution.execAsk();
+                } else if (isSelect) { //TODO implement
+                    ResultSet rs = execution.execSelect();
+                    constraintViolated = rs.hasNext();
+
+                    if (constraintViolated) {
+                        evidence.append("Evidence of the violation: \n");
+                        for (int i = 0; i < 3 && rs.hasNext(); i++) {
+                            QuerySolution solution = rs.next();
+                            evidence.append(solution.toString());
+                        }
+                    }
+                } else {
+                    throw new NotImplemented("Constraints for objects " + query + " not implemented.");
+                }
+            }
+
+            if (!constraintViolated) {
+                LOG.debug("Constraint validated for exception \"{}\".", comment);
+                return null;
+            }
+            String mainErrorMsg = String.format("Validation of constraint failed for the constraint \"%s\".", comment);
+            String failedQueryMsg = String.format("Failed validation constraint : \n %s", queryText);
+            return new StringBuilder()
+                .append(mainErrorMsg).append("\n")
+                .append(failedQueryMsg).append("\n")
+                .append(evidence).append("\n")
+                .toString();
+        }
+
+        @Override
+        public String toString() {
+            return comment;
+        }
+    }
+
+    static String getQueryComment(org.topbraid.spin.model.Query query) {
+        if (query.getComment() != null) {
+            return query.getComment();
+        }
+        String comment = QueryUtils.getQueryComment(query.toString());
+        if (comment != null) {
+            return comment;
+        }
+        return query.getURI();
+    }
+}
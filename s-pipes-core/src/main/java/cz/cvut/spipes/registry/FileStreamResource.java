@@ -0,0 +1,62 @@
+package cz.cvut.spipes.registry;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stream resource whose content is stored in a file.
+ */
+public class FileStreamResource implements StreamResource {
+
+    private final String uri;
+    private final Path file;
+    private final String contentType;
+    private final long contentLength;
+
+    public FileStreamResource(String uri, Path file, String contentType, long contentLength) {
+        this.uri = uri;
+        this.file = file;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Reads whole content of the file into memory.
+     */
+    @Override
+    public byte[] getContent() {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read content of stream resource " + uri + " from " + file, e);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new BufferedInputStream(Files.newInputStream(file));
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -4,6 +4,7 @@ package cz.cvut.spipes.registry;
 import cz.cvut.spipes.exception.ResourceNotFoundException;
 import cz.cvut.spipes.exception.ResourceNotUniqueException;
 import cz.cvut.spipes.util.JenaUtils;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -25,26 +26,63 @@ public class JenaResourceRegistry implements  ResourceRegistry {
     Map<String, Map<String, String>> context2PrefixMappingMap = new HashMap<>();
 
     public JenaResourceRegistry(List<Resource> resourceList) {
+        resourceList.forEach(this::register);
+    }
+
+    private JenaResourceRegistry(JenaResourceRegistry registry) {
+        registry.local2fullNamesMap.forEach((k, v) -> local2fullNamesMap.put(k, new HashSet<>(v)));
+        registry.fullName2ContextsMap.forEach((k, v) -> fullName2ContextsMap.put(k, new HashSet<>(v)));
+        context2PrefixMappingMap.putAll(registry.context2PrefixMappingMap);
+    }
+
+    /**
+     * Creates new registry in which resources of the given contexts are replaced by the given resources.
+     * This registry is not modified, so it can be used concurrently until the new registry replaces it.
+     *
+     * @param contexts contexts whose resources should be removed
+     * @param resourceList resources to be registered
+     * @return new registry
+     */
+    public JenaResourceRegistry withReplacedContexts(Collection<String> contexts, List<Resource> resourceList) {
+        JenaResourceRegistry registry = new JenaResourceRegistry(this);
+        contexts.forEach(registry::unregisterContext);
+        resourceList.forEach(registry::register);
+        return registry;
+    }
+
+    private void register(Resource res) {
+        String resUri = res.getURI();
+        String localName = res.getLocalName();
+        Map<String, String> prefixMap = res.getModel().getNsPrefixMap();
 
-        resourceList.stream()
-                .forEach(res -> {
-                    String resUri = res.getURI();
-                    String localName = res.getLocalName();
-                    Map<String, String> prefixMap = res.getModel().getNsPrefixMap();
+        String contextUri = JenaUtils.getBaseUri(res.getModel());
 
-                    String contextUri = JenaUtils.getBaseUri(res.getModel());
+        local2fullNamesMap
+                .compute(localName, (k, v) -> (v == null) ? new HashSet<>() : v)
+                .add(resUri);
 
-                    local2fullNamesMap
-                            .compute(localName, (k, v) -> (v == null) ? new HashSet<>() : v)
-                            .add(resUri);
+        fullName2ContextsMap
+                .compute(resUri, (k, v) -> (v == null) ? new HashSet<>() : v)
+                .add(contextUri);
 
-                    fullName2ContextsMap
-                            .compute(resUri, (k, v) -> (v == null) ? new HashSet<>() : v)
-                            .add(contextUri);
+        context2PrefixMappingMap
+                .putIfAbsent(contextUri, new HashMap<>(prefixMap));
+    }
 
-                    context2PrefixMappingMap
-                            .putIfAbsent(contextUri, new HashMap<>(prefixMap));
-                });
+    private void unregisterContext(String contextUri) {
+        Set<String> removedFullNames = new HashSet<>();
+        fullName2ContextsMap.entrySet().removeIf(e -> {
+            if (e.getValue().remove(contextUri) && e.getValue().isEmpty()) {
+                removedFullNames.add(e.getKey());
+                return true;
+            }
+            return false;
+        });
+        local2fullNamesMap.entrySet().removeIf(e -> {
+            e.getValue().removeAll(removedFullNames);
+            return e.getValue().isEmpty();
+        });
+        context2PrefixMappingMap.remove(contextUri);
     }
 
 
@@ -1,11 +1,31 @@
 package cz.cvut.spipes.registry;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 public interface StreamResource {
 
     String getUri();
 
+    /**
+     * Returns whole content of the resource. Prefer {@link #getInputStream()} for resources that might be large.
+     */
     byte[] getContent();
 
     String getContentType();
 
+    /**
+     * @return new stream of the content of the resource, it must be closed by the caller
+     */
+    default InputStream getInputStream() throws IOException {
+        return new ByteArrayInputStream(getContent());
+    }
+
+    /**
+     * @return size of the content in bytes
+     */
+    default long getContentLength() {
+        return getContent().length;
+    }
 }
@@ -1,30 +1,75 @@
 package cz.cvut.spipes.registry;
 
+import cz.cvut.spipes.config.StreamResourceConfig;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.ref.WeakReference;
-import java.util.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+/**
+ * Registry of stream resources (e.g. files uploaded to the service) that can be used from multiple threads.
+ * <p>
+ * Content of a resource larger than {@link StreamResourceConfig#getMemoryThresholdBytes()} is stored in a temporary
+ * file instead of memory and consumers should read it by {@link StreamResource#getInputStream()}. Resources are
+ * removed by a background task when they were not accessed for {@link StreamResourceConfig#getTimeToLiveMillis()}
+ * or when total size of resources exceeds {@link StreamResourceConfig#getMaxTotalBytes()}, or explicitly
+ * by {@link #unregisterResource(String)}.
+ * <p>
+ * Resources used by a running execution should be pinned by {@link #pinResources(Collection)}. Pinned resources
+ * are not evicted and content of a pinned resource that is unregistered or replaced is released only after
+ * the lease is closed.
+ */
 public class StreamResourceRegistry {
     private static final Logger LOG = LoggerFactory.getLogger(StreamResourceRegistry.class);
 
-    private static StreamResourceRegistry instance;
-    private Set<String> resourcePrefixMap = new HashSet<>();
     private static final String PERSISTENT_CONTEXT_PREFIX = "http://onto.fel.cvut.cz/resources/";
-    private Map<String, WeakReference<StreamResource>> id2resourcesMap = new HashMap<>();
+    private final Set<String> resourcePrefixMap = ConcurrentHashMap.newKeySet();
+    private final Map<String, RegisteredResource> id2resourcesMap = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
 
-    private StreamResourceRegistry() {
+    private final long memoryThresholdBytes;
+    private final Path spillDirectory;
+    private final long timeToLiveMillis;
+    private final long maxTotalBytes;
+
+    /**
+     * @param memoryThresholdBytes maximal size of a resource kept in memory
+     * @param spillDirectory directory of temporary files with content of larger resources
+     * @param timeToLiveMillis time after the last access of a resource when it is removed, 0 if resources do not expire
+     * @param maxTotalBytes maximal total size of resources, 0 if the size is not limited
+     */
+    StreamResourceRegistry(long memoryThresholdBytes, Path spillDirectory, long timeToLiveMillis, long maxTotalBytes) {
+        this.memoryThresholdBytes = memoryThresholdBytes;
+        this.spillDirectory = spillDirectory;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxTotalBytes = maxTotalBytes;
+        resourcePrefixMap.add(PERSISTENT_CONTEXT_PREFIX);
     }
 
     public static StreamResourceRegistry getInstance() {
-        if (instance == null) {
-            instance = new StreamResourceRegistry();
-            instance.resourcePrefixMap.add(PERSISTENT_CONTEXT_PREFIX);
-            return instance;
-        }
-        return instance;
+        return InstanceHolder.INSTANCE;
     }
 
     public void registerResourcePrefix(String resourcePrefix) {
@@ -35,48 +80,331 @@ public class StreamResourceRegistry {
         return PERSISTENT_CONTEXT_PREFIX;
     }
 
+    /**
+     * @return the resource, null if no resource with the id is registered
+     */
     public StreamResource getResourceById(String id) {
-        return id2resourcesMap.get(id).get();
+        RegisteredResource registeredResource = id2resourcesMap.get(id);
+        if (registeredResource == null) {
+            return null;
+        }
+        registeredResource.touch();
+        return registeredResource.resource;
     }
 
     public StreamResource getResourceByUrl(String url) {
         LOG.debug("Trying to find resource with url {}", url);
         if (LOG.isTraceEnabled()) {
-            LOG.trace("Resource map content: {}", id2resourcesMap);
+            LOG.trace("Resource map content: {}", id2resourcesMap.keySet());
         }
-        String id = resourcePrefixMap.stream()
-                .filter(url::startsWith)
-                .findAny().map(p -> url.substring(p.length()))
-                .orElse(null);
+        String id = getIdByUrl(url);
         LOG.debug("- found {}", id);
-        StreamResource res = id2resourcesMap.get(id).get();
+        StreamResource res = (id == null) ? null : getResourceById(id);
         if (res == null) {
             return null;
         }
-        return new StringStreamResource(url, res.getContent(), res.getContentType()); //TODO remove
+        return withUri(res, url); //TODO remove
+    }
+
+    /**
+     * Pins registered resources referenced by the urls, so that they are not evicted and their content is not released
+     * until the returned lease is closed. Urls that do not reference a registered resource are ignored.
+     *
+     * @param urls urls of resources, e.g. all values of parameters of a request
+     * @return lease of the pinned resources
+     */
+    public Lease pinResources(Collection<String> urls) {
+        List<RegisteredResource> pinnedResources = new ArrayList<>();
+        for (String url : urls) {
+            String id = (url == null) ? null : getIdByUrl(url);
+            RegisteredResource registeredResource = (id == null) ? null : id2resourcesMap.get(id);
+            if (registeredResource != null && registeredResource.pin()) {
+                LOG.trace("Pinned resource with id {}", id);
+                pinnedResources.add(registeredResource);
+            }
+        }
+        return new Lease(pinnedResources);
     }
 
     public StreamResource registerResource(String id, byte[] content, String contentType) {
         LOG.debug("Registering resource with id {}", id);
         StreamResource res = new StringStreamResource(id, content, contentType);
-        id2resourcesMap.put(id, new WeakReference<>(res));
+        if (content.length > memoryThresholdBytes) {
+            try {
+                res = spillToFile(id, new ByteArrayInputStream(content), contentType);
+            } catch (IOException e) {
+                LOG.warn("Could not store resource {} to a temporary file, keeping it in memory.", id, e);
+            }
+        }
+        return register(id, res);
+    }
+
+    /**
+     * Registers resource with content read from the stream. Content up to the memory threshold is kept in memory,
+     * larger content is streamed to a temporary file without loading it into memory.
+     *
+     * @param id id of the resource
+     * @param content stream of the content, it is read fully but not closed
+     * @param contentType content type of the resource
+     * @return registered resource
+     * @throws IOException if the content could not be read or stored
+     */
+    public StreamResource registerResource(String id, InputStream content, String contentType) throws IOException {
+        LOG.debug("Registering resource with id {} from stream", id);
+        // head is kept in chunks, so that it is not copied again when spilled to the file
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        long headLength = head.write(new BoundedInputStream(content, memoryThresholdBytes + 1));
+        if (headLength <= memoryThresholdBytes) {
+            return register(id, new StringStreamResource(id, head.toByteArray(), contentType));
+        }
+        return register(id, spillToFile(id, new SequenceInputStream(head.toInputStream(), content), contentType));
+    }
+
+    /**
+     * Registers resource with content stored in the file, e.g. an upload written directly to disk. The registry takes
+     * ownership of the file, i.e. the file is deleted when the resource is removed.
+     *
+     * @param id id of the resource
+     * @param file file with the content, preferably created by {@link #createTemporaryFile()}
+     * @param contentType content type of the resource
+     * @return registered resource
+     * @throws IOException if size of the file could not be read
+     */
+    public StreamResource registerResource(String id, Path file, String contentType) throws IOException {
+        LOG.debug("Registering resource with id {} from file {}", id, file);
+        return register(id, new FileStreamResource(id, file, contentType, Files.size(file)));
+    }
+
+    /**
+     * Creates an empty temporary file in the directory used for content of large resources.
+     */
+    public Path createTemporaryFile() throws IOException {
+        Files.createDirectories(spillDirectory);
+        return Files.createTempFile(spillDirectory, "stream-resource-", ".tmp");
+    }
+
+    /**
+     * Removes the resource and releases its content.
+     */
+    public void unregisterResource(String id) {
+        RegisteredResource registeredResource = id2resourcesMap.remove(id);
+        if (registeredResource != null) {
+            LOG.debug("Unregistering resource with id {}", id);
+            removed(registeredResource);
+        }
+    }
+
+    /**
+     * @return total size of content of registered resources in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Removes expired resources and least recently accessed resources exceeding the maximal total size.
+     */
+    void evictResources(long currentTimeMillis) {
+        if (timeToLiveMillis > 0) {
+            id2resourcesMap.forEach((id, r) -> {
+                if (r.lastAccessTime < currentTimeMillis - timeToLiveMillis && evict(id, r)) {
+                    LOG.debug("Removed expired resource with id {}", id);
+                }
+            });
+        }
+        if (maxTotalBytes > 0 && totalBytes.get() > maxTotalBytes) {
+            // access times are copied, so that they do not change while sorting
+            List<Map.Entry<Long, Map.Entry<String, RegisteredResource>>> entries = id2resourcesMap.entrySet().stream()
+                .map(e -> new AbstractMap.SimpleImmutableEntry<Long, Map.Entry<String, RegisteredResource>>(e.getValue().lastAccessTime, e))
+                .sorted(Map.Entry.comparingByKey())
+                .collect(Collectors.toList());
+            for (Map.Entry<Long, Map.Entry<String, RegisteredResource>> timedEntry : entries) {
+                if (totalBytes.get() <= maxTotalBytes) {
+                    break;
+                }
+                Map.Entry<String, RegisteredResource> e = timedEntry.getValue();
+                if (evict(e.getKey(), e.getValue())) {
+                    LOG.debug("Removed least recently used resource with id {}", e.getKey());
+                }
+            }
+        }
+    }
+
+    private StreamResource register(String id, StreamResource res) {
+        RegisteredResource registeredResource = new RegisteredResource(res);
+        totalBytes.addAndGet(registeredResource.size);
+        RegisteredResource previous = id2resourcesMap.put(id, registeredResource);
+        if (previous != null) {
+            removed(previous);
+        }
         if (LOG.isTraceEnabled()) {
-            LOG.trace("Resource map after the registration has {} entries: {}", id2resourcesMap.size(), id2resourcesMap);
+            LOG.trace("Resource map after the registration has {} entries: {}", id2resourcesMap.size(), id2resourcesMap.keySet());
         }
-        cleanUpUnusedResources();
         return res;
     }
 
-    private void cleanUpUnusedResources() {
-        List<String> keys = id2resourcesMap.entrySet().stream()
-            .filter(e -> e.getValue().get() == null)
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toList());
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("Clearing {} resources from resource map: {}", keys.size(), keys);
+    private StreamResource spillToFile(String id, InputStream content, String contentType) throws IOException {
+        Path file = createTemporaryFile();
+        try (OutputStream os = Files.newOutputStream(file)) {
+            IOUtils.copyLarge(content, os);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        LOG.debug("Content of resource {} is stored in temporary file {}", id, file);
+        return new FileStreamResource(id, file, contentType, Files.size(file));
+    }
+
+    /**
+     * Removes the resource unless it is pinned.
+     *
+     * @return true if the resource was removed
+     */
+    private boolean evict(String id, RegisteredResource registeredResource) {
+        synchronized (registeredResource) {
+            if (registeredResource.pinCount > 0 || !id2resourcesMap.remove(id, registeredResource)) {
+                return false;
+            }
+            registeredResource.isRemoved = true;
+        }
+        release(registeredResource);
+        return true;
+    }
+
+    /**
+     * Releases content of the resource removed from the map, or defers it until the resource is unpinned.
+     */
+    private void removed(RegisteredResource registeredResource) {
+        if (registeredResource.markRemoved()) {
+            release(registeredResource);
+        }
+    }
+
+    private String getIdByUrl(String url) {
+        return resourcePrefixMap.stream()
+                .filter(url::startsWith)
+                .findAny().map(p -> url.substring(p.length()))
+                .orElse(null);
+    }
+
+    private void release(RegisteredResource registeredResource) {
+        totalBytes.addAndGet(-registeredResource.size);
+        if (registeredResource.resource instanceof FileStreamResource) {
+            Path file = ((FileStreamResource) registeredResource.resource).getFile();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.warn("Could not delete temporary file {} of a stream resource.", file, e);
+            }
+        }
+    }
+
+    private static StreamResource withUri(StreamResource res, String uri) {
+        if (res instanceof FileStreamResource) {
+            FileStreamResource fileResource = (FileStreamResource) res;
+            return new FileStreamResource(uri, fileResource.getFile(), res.getContentType(), res.getContentLength());
+        }
+        return new StringStreamResource(uri, res.getContent(), res.getContentType());
+    }
+
+    private static class RegisteredResource {
+        private final StreamResource resource;
+        private final long size;
+        private volatile long lastAccessTime = System.currentTimeMillis();
+        // guarded by this
+        private int pinCount;
+        private boolean isRemoved;
+
+        private RegisteredResource(StreamResource resource) {
+            this.resource = resource;
+            this.size = resource.getContentLength();
+        }
+
+        private void touch() {
+            lastAccessTime = System.currentTimeMillis();
+        }
+
+        /**
+         * @return false if the resource was already removed
+         */
+        private synchronized boolean pin() {
+            if (isRemoved) {
+                return false;
+            }
+            pinCount++;
+            return true;
+        }
+
+        /**
+         * @return true if content of the resource should be released
+         */
+        private synchronized boolean unpin() {
+            pinCount--;
+            return isRemoved && pinCount == 0;
+        }
+
+        /**
+         * @return true if content of the resource should be released
+         */
+        private synchronized boolean markRemoved() {
+            isRemoved = true;
+            return pinCount == 0;
+        }
+    }
+
+    /**
+     * Pinned resources, which are unpinned when the lease is closed.
+     */
+    public class Lease implements AutoCloseable {
+        private final List<RegisteredResource> pinnedResources;
+        private final AtomicBoolean isClosed = new AtomicBoolean();
+
+        private Lease(List<RegisteredResource> pinnedResources) {
+            this.pinnedResources = pinnedResources;
+        }
+
+        @Override
+        public void close() {
+            if (!isClosed.compareAndSet(false, true)) {
+                return;
+            }
+            for (RegisteredResource registeredResource : pinnedResources) {
+                if (registeredResource.unpin()) {
+                    release(registeredResource);
+                }
+            }
+        }
+    }
+
+    private static class InstanceHolder {
+        private static final StreamResourceRegistry INSTANCE = createInstance();
+
+        private static StreamResourceRegistry createInstance() {
+            StreamResourceRegistry registry = new StreamResourceRegistry(
+                StreamResourceConfig.getMemoryThresholdBytes(),
+                StreamResourceConfig.getSpillDirectoryPath(),
+                StreamResourceConfig.getTimeToLiveMillis(),
+                StreamResourceConfig.getMaxTotalBytes()
+            );
+            long evictionIntervalMillis = StreamResourceConfig.getEvictionIntervalMillis();
+            ScheduledExecutorService evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "spipes-stream-resource-eviction");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictionExecutor.scheduleWithFixedDelay(
+                () -> {
+                    try {
+                        registry.evictResources(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        LOG.warn("Eviction of stream resources failed.", e);
+                    }
+                },
+                evictionIntervalMillis,
+                evictionIntervalMillis,
+                TimeUnit.MILLISECONDS
+            );
+            return registry;
         }
-        keys.forEach(
-            k -> id2resourcesMap.remove(k)
-        );
     }
 }
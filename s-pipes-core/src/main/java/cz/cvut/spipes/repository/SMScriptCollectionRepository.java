@@ -11,14 +11,21 @@ import org.slf4j.LoggerFactory;
 
 import java.net.URL;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * Know nothing about alternative entity ids -- e.g. prefixed-names, local-names.
  * <p>
+ * Import closures of contexts are memoized. Each closure is an ontology model whose imports share graphs
+ * of documents cached by the document manager, so the closure is not copied. A closure is dropped whenever
+ * document of the context or of any of its (transitive) imports is registered again.
  */
 public class SMScriptCollectionRepository implements ScriptCollectionRepository {
     private static final Logger LOG = LoggerFactory.getLogger(SMScriptCollectionRepository.class);
@@ -26,10 +33,14 @@ public class SMScriptCollectionRepository implements ScriptCollectionRepository
 
     private final OntologyDocumentManager ontoDocManager;
     //private final Set<String> contexts;
+    private final Map<String, ContextClosure> context2Closure = new ConcurrentHashMap<>();
+    // incremented on each invalidation, so that closure computed concurrently with invalidation is not cached
+    private final AtomicLong invalidationCount = new AtomicLong();
 
 
     public SMScriptCollectionRepository(OntologyDocumentManager ontoDocManager) {
         this.ontoDocManager = ontoDocManager;
+        ontoDocManager.addDocumentChangeListener(this::invalidateContextClosures);
 
        // contexts = ontoDocManager.getRegisteredOntologyUris();
     }
@@ -71,13 +82,54 @@ public class SMScriptCollectionRepository implements ScriptCollectionRepository
         return getContextClosure(context).getResource(resourceUri);
     }
 
+    @Override
+    public @NotNull Set<String> getContextDependencies(@NotNull String context) {
+        return new HashSet<>(getCachedContextClosure(context).dependencies);
+    }
+
     @Override
     public Map<String, Set<String>> getAlternativeEntityIds() {
         throw new UnsupportedOperationException();
     }
 
 
-    private OntModel getContextClosure(@NotNull  String context) {
+    /**
+     * Drops memoized closures that contain the ontology.
+     *
+     * @param ontologyUri uri of added or modified ontology
+     */
+    public void invalidateContextClosures(@NotNull String ontologyUri) {
+        synchronized (context2Closure) {
+            invalidationCount.incrementAndGet();
+            context2Closure.values().removeIf(closure -> closure.dependencies.contains(ontologyUri));
+        }
+    }
+
+    private OntModel getContextClosure(@NotNull String context) {
+        return getCachedContextClosure(context).model;
+    }
+
+    private ContextClosure getCachedContextClosure(@NotNull String context) {
+        ContextClosure closure = context2Closure.get(context);
+        if (closure != null) {
+            return closure;
+        }
+        long count = invalidationCount.get();
+        OntModel model = loadContextClosure(context);
+
+        Set<String> dependencies = new HashSet<>(model.listImportedOntologyURIs(true));
+        dependencies.add(context);
+        closure = new ContextClosure(model, Collections.unmodifiableSet(dependencies));
+
+        synchronized (context2Closure) {
+            if (invalidationCount.get() == count) {
+                context2Closure.put(context, closure);
+            }
+        }
+        return closure;
+    }
+
+    private OntModel loadContextClosure(@NotNull  String context) {
         OntModel model = ontoDocManager.getOntology(context);
 
         model.getNsPrefixMap().forEach((name, url) -> {
@@ -90,6 +142,16 @@ public class SMScriptCollectionRepository implements ScriptCollectionRepository
         return model;
     }
 
+    private static class ContextClosure {
+        private final OntModel model;
+        private final Set<String> dependencies;
+
+        ContextClosure(OntModel model, Set<String> dependencies) {
+            this.model = model;
+            this.dependencies = dependencies;
+        }
+    }
+
     private boolean isValidURL(String url)
     {
         try {
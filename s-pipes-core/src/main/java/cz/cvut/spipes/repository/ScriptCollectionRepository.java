@@ -24,6 +24,14 @@ public interface ScriptCollectionRepository extends Repository {
 
     Resource getResource(@NotNull String resourceUri, String context);
 
+    /**
+     * Returns uris of ontologies that the context depends on, i.e. the context itself and ontologies it imports
+     * directly or indirectly.
+     * @param context uri of the context
+     * @return set of ontology uris
+     */
+    @NotNull Set<String> getContextDependencies(@NotNull String context);
+
 
 
     /**
@@ -0,0 +1,83 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+/**
+ * Graph that reads through to a base graph until it is modified for the first time.
+ * On the first modification, content of the base graph is copied to a new in-memory graph
+ * that is used from then on, so the base graph is never modified through this graph.
+ * <p>
+ * The base graph is expected not to change while it is shared by this graph.
+ */
+public class CopyOnWriteGraph extends GraphBase {
+
+    private Graph baseGraph;
+    private Graph copiedGraph;
+
+    public CopyOnWriteGraph(Graph baseGraph) {
+        this.baseGraph = baseGraph;
+    }
+
+    /**
+     * @return true if content of the base graph was already copied due to a modification.
+     */
+    public boolean isMaterialized() {
+        return copiedGraph != null;
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+        if (isMaterialized()) {
+            return copiedGraph.find(triplePattern);
+        }
+        return WrappedIterator.createNoRemove(baseGraph.find(triplePattern));
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple triple) {
+        return getReadGraph().contains(triple);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return getReadGraph().size();
+    }
+
+    @Override
+    public void performAdd(Triple triple) {
+        getWriteGraph().add(triple);
+    }
+
+    @Override
+    public void performDelete(Triple triple) {
+        getWriteGraph().delete(triple);
+    }
+
+    @Override
+    public void clear() {
+        copiedGraph = GraphFactory.createDefaultGraph();
+        baseGraph = null;
+        getEventManager().notifyEvent(this, GraphEvents.removeAll);
+    }
+
+    Graph getReadGraph() {
+        return isMaterialized() ? copiedGraph : baseGraph;
+    }
+
+    private Graph getWriteGraph() {
+        if (!isMaterialized()) {
+            Graph graph = GraphFactory.createDefaultGraph();
+            GraphUtil.addInto(graph, baseGraph);
+            copiedGraph = graph;
+            baseGraph = null;
+        }
+        return copiedGraph;
+    }
+}
@@ -0,0 +1,230 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
+import org.apache.jena.sparql.core.VarExprList;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.binding.BindingUtils;
+import org.apache.jena.sparql.engine.main.QC;
+import org.apache.jena.sparql.expr.E_BNode;
+import org.apache.jena.sparql.expr.E_Function;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprEvalException;
+import org.apache.jena.sparql.expr.ExprFunction;
+import org.apache.jena.sparql.expr.ExprFunction0;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.expr.ExprVar;
+import org.apache.jena.sparql.expr.NodeValue;
+import org.apache.jena.sparql.function.FunctionEnv;
+import org.apache.jena.sparql.util.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.topbraid.spin.arq.ARQFactory;
+import org.topbraid.spin.model.SPINFactory;
+import org.topbraid.spin.model.Variable;
+import org.topbraid.spin.util.SPINExpressions;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of SPIN expressions compiled to ARQ expressions.
+ * <p>
+ * An expression is compiled once per node of the model it is defined in. Expression that does not mention
+ * any variable and calls only deterministic built-in functions is evaluated already during compilation,
+ * other expressions are evaluated against the current variable bindings by {@link CompiledExpression#evaluate}
+ * without building and executing a query.
+ * <p>
+ * Compiled expressions of a model are released together with the model. The cache should be invalidated whenever
+ * scripts are reloaded, as compiled expressions keep functions they were bound to.
+ */
+public class ExpressionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExpressionCache.class);
+
+    private static final ExpressionCache INSTANCE = new ExpressionCache();
+
+    // marks nodes that are not expressions
+    private static final CompiledExpression NOT_EXPRESSION = new CompiledExpression(null, null, null, false);
+
+    private final Map<Graph, Map<Node, CompiledExpression>> graph2Expressions = new WeakHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    ExpressionCache() {
+    }
+
+    public static ExpressionCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns compiled expression of a node.
+     *
+     * @param node value of a module parameter
+     * @return compiled expression or null if the node is not a SPIN expression
+     */
+    public CompiledExpression getExpression(RDFNode node) {
+        if (node == null || !node.isResource() || node.getModel() == null) {
+            return null;
+        }
+        Map<Node, CompiledExpression> node2Expression;
+        synchronized (graph2Expressions) {
+            node2Expression = graph2Expressions.computeIfAbsent(node.getModel().getGraph(), g -> new ConcurrentHashMap<>());
+        }
+        CompiledExpression expression = node2Expression.get(node.asNode());
+        if (expression != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+            expression = compile(node);
+            node2Expression.put(node.asNode(), expression);
+        }
+        return (expression != NOT_EXPRESSION) ? expression : null;
+    }
+
+    /**
+     * Removes all compiled expressions.
+     */
+    public void invalidate() {
+        synchronized (graph2Expressions) {
+            graph2Expressions.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static CompiledExpression compile(RDFNode node) {
+        if (!SPINExpressions.isExpression(node)) {
+            return NOT_EXPRESSION;
+        }
+        Resource spinExpression = (Resource) SPINFactory.asExpression(node);
+        if (spinExpression instanceof Variable) {
+            String varName = ((Variable) spinExpression).getName();
+            return new CompiledExpression("?" + varName, new ExprVar(varName), null, false);
+        }
+        if (spinExpression.isURIResource()) {
+            return new CompiledExpression(spinExpression.getURI(), null, spinExpression.asNode(), false);
+        }
+
+        String expressionString = ARQFactory.get().createExpressionString(spinExpression);
+        Query query = ARQFactory.get().createExpressionQuery(expressionString);
+        VarExprList project = query.getProject();
+        Expr expr = project.getExpr(project.getVars().get(0));
+
+        if (isConstant(expr)) {
+            try {
+                NodeValue value = expr.eval(BindingFactory.binding(), createFunctionEnv(node.getModel().getGraph()));
+                LOG.debug("Folded constant SPIN expression {} to {}.", expressionString, value);
+                return new CompiledExpression(expressionString, null, value.asNode(), false);
+            } catch (ExprEvalException e) {
+                LOG.debug("Constant SPIN expression {} could not be folded, it will be evaluated each time.", expressionString);
+            }
+        }
+        return new CompiledExpression(expressionString, expr, null, containsFunctionCall(expr));
+    }
+
+    private static boolean containsFunctionCall(Expr expr) {
+        if (expr instanceof E_Function || expr instanceof ExprFunctionOp) {
+            return true;
+        }
+        if (expr instanceof ExprFunction) {
+            return ((ExprFunction) expr).getArgs().stream().anyMatch(ExpressionCache::containsFunctionCall);
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the expression mentions no variables and calls only deterministic built-in functions
+     */
+    private static boolean isConstant(Expr expr) {
+        if (expr.isConstant()) {
+            return true;
+        }
+        if (expr.isVariable()
+            || expr instanceof ExprFunction0 // NOW(), RAND(), UUID(), ...
+            || expr instanceof E_BNode
+            || expr instanceof E_Function // extension functions might read data or have side effects
+            || expr instanceof ExprFunctionOp) {
+            return false;
+        }
+        if (expr instanceof ExprFunction) {
+            return ((ExprFunction) expr).getArgs().stream().allMatch(ExpressionCache::isConstant);
+        }
+        return false;
+    }
+
+    private static FunctionEnv createFunctionEnv(Graph activeGraph) {
+        Context context = ARQ.getContext().copy();
+        return new ExecutionContext(context, activeGraph, DatasetGraphFactory.wrap(activeGraph), QC.getFactory(context));
+    }
+
+    /**
+     * SPIN expression compiled to ARQ expression or folded to a constant.
+     */
+    public static class CompiledExpression {
+
+        private final String expressionString;
+        private final Expr expr;
+        private final Node constantValue;
+        // extension functions are bound to expression on first evaluation, so such expression is not shared
+        private final boolean isCopiedForEvaluation;
+
+        private CompiledExpression(String expressionString, Expr expr, Node constantValue, boolean isCopiedForEvaluation) {
+            this.expressionString = expressionString;
+            this.expr = expr;
+            this.constantValue = constantValue;
+            this.isCopiedForEvaluation = isCopiedForEvaluation;
+        }
+
+        /**
+         * @return true if the expression was evaluated during compilation
+         */
+        public boolean isConstant() {
+            return constantValue != null;
+        }
+
+        /**
+         * Evaluates the expression.
+         *
+         * @param model model used as active graph and to create the result node
+         * @param bindings current variable bindings
+         * @return value of the expression or null if it could not be evaluated
+         */
+        public RDFNode evaluate(Model model, QuerySolution bindings) {
+            if (constantValue != null) {
+                return model.asRDFNode(constantValue);
+            }
+            Binding binding = (bindings != null) ? BindingUtils.asBinding(bindings) : BindingFactory.binding();
+            try {
+                Expr evaluatedExpr = isCopiedForEvaluation ? expr.deepCopy() : expr;
+                return model.asRDFNode(evaluatedExpr.eval(binding, createFunctionEnv(model.getGraph())).asNode());
+            } catch (ExprEvalException e) {
+                LOG.trace("Evaluation of SPIN expression {} failed -- {}", expressionString, e.getMessage());
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return expressionString;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.AllCapabilities;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.AddDeniedException;
+import org.apache.jena.shared.DeleteDeniedException;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NullIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only union of graphs that does not copy content of its members.
+ * <p>
+ * Each find is dispatched to indexes of the member graphs. A triple found in a member graph
+ * is returned only if none of the preceding member graphs contains it, so duplicates are removed
+ * by index lookups instead of remembering already returned triples. The same holds for {@link #size()}
+ * that counts triples without materializing the union.
+ * <p>
+ * Member graphs are expected not to change while they are shared by this graph.
+ * To obtain a modifiable union, wrap this graph in {@link CopyOnWriteGraph}.
+ */
+public class IndexedUnionGraph extends GraphBase {
+
+    private final List<Graph> memberGraphs;
+
+    /**
+     * @param memberGraphs graphs to be merged, nested unions that were not modified are flattened
+     */
+    public IndexedUnionGraph(List<Graph> memberGraphs) {
+        List<Graph> graphs = new ArrayList<>(memberGraphs.size());
+        Set<Graph> addedGraphs = Collections.newSetFromMap(new IdentityHashMap<>());
+        memberGraphs.forEach(g -> addMemberGraph(graphs, addedGraphs, g));
+        this.memberGraphs = Collections.unmodifiableList(graphs);
+    }
+
+    public List<Graph> getMemberGraphs() {
+        return memberGraphs;
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple triplePattern) {
+        ExtendedIterator<Triple> it = NullIterator.instance();
+        for (int i = 0; i < memberGraphs.size(); i++) {
+            final List<Graph> precedingGraphs = memberGraphs.subList(0, i);
+            ExtendedIterator<Triple> memberIt = WrappedIterator.createNoRemove(memberGraphs.get(i).find(triplePattern));
+            if (!precedingGraphs.isEmpty()) {
+                memberIt = memberIt.filterDrop(t -> containedInAny(precedingGraphs, t));
+            }
+            it = it.andThen(memberIt);
+        }
+        return it;
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple triple) {
+        return containedInAny(memberGraphs, triple);
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        if (memberGraphs.size() == 1) {
+            return memberGraphs.get(0).size();
+        }
+        int size = 0;
+        for (int i = 0; i < memberGraphs.size(); i++) {
+            final List<Graph> precedingGraphs = memberGraphs.subList(0, i);
+            ExtendedIterator<Triple> it = memberGraphs.get(i).find(Triple.ANY);
+            try {
+                while (it.hasNext()) {
+                    if (!containedInAny(precedingGraphs, it.next())) {
+                        size++;
+                    }
+                }
+            } finally {
+                it.close();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return memberGraphs.stream().allMatch(Graph::isEmpty);
+    }
+
+    @Override
+    public void performAdd(Triple triple) {
+        throw new AddDeniedException("Union of graphs is read-only.", triple);
+    }
+
+    @Override
+    public void performDelete(Triple triple) {
+        throw new DeleteDeniedException("Union of graphs is read-only.", triple);
+    }
+
+    @Override
+    public Capabilities getCapabilities() {
+        if (capabilities == null) {
+            capabilities = new ReadOnlyCapabilities();
+        }
+        return capabilities;
+    }
+
+    private static boolean containedInAny(List<Graph> graphs, Triple triple) {
+        for (Graph g : graphs) {
+            if (g.contains(triple)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addMemberGraph(List<Graph> graphs, Set<Graph> addedGraphs, Graph graph) {
+        if (graph instanceof CopyOnWriteGraph && !((CopyOnWriteGraph) graph).isMaterialized()) {
+            addMemberGraph(graphs, addedGraphs, ((CopyOnWriteGraph) graph).getReadGraph());
+            return;
+        }
+        if (graph instanceof IndexedUnionGraph) {
+            ((IndexedUnionGraph) graph).getMemberGraphs().forEach(g -> addMemberGraph(graphs, addedGraphs, g));
+            return;
+        }
+        if (addedGraphs.add(graph)) {
+            graphs.add(graph);
+        }
+    }
+
+    private static class ReadOnlyCapabilities extends AllCapabilities {
+
+        @Override
+        public boolean addAllowed(boolean everyTriple) {
+            return false;
+        }
+
+        @Override
+        public boolean deleteAllowed(boolean everyTriple) {
+            return false;
+        }
+
+        @Override
+        public boolean iteratorRemoveAllowed() {
+            return false;
+        }
+    }
+}
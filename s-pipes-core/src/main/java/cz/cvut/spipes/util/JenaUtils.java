@@ -1,11 +1,16 @@
 package cz.cvut.spipes.util;
 
 import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.compose.MultiUnion;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.sparql.graph.GraphFactory;
 import org.apache.jena.util.FileUtils;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
@@ -18,14 +23,20 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class JenaUtils {
 
     private static Logger LOG = LoggerFactory.getLogger(JenaUtils.class);
 
+    static final int MAX_UNION_MEMBER_GRAPHS = 16;
+
     public static Model readModelFromString(String modelText, String lang) {
         Model model = ModelFactory.createDefaultModel();
 
@@ -97,13 +108,151 @@ public class JenaUtils {
         return DigestUtils.md5Hex(modelMetadataBuff.toString());
     }
 
-    // TODO  due to performance issues ModelFactory.createUnion is not used (see jena-experiments) repository
+    /**
+     * Creates union of models without copying their content. Statements are read from indexes of the models
+     * (see {@link IndexedUnionGraph}) and the models are copied only when the union is modified for the first time
+     * (see {@link CopyOnWriteGraph}), thus the union never modifies the models.
+     * The models must not be modified while the union is in use.
+     * <p>
+     * Unions with more than {@value #MAX_UNION_MEMBER_GRAPHS} member graphs (e.g. after flattening of nested unions)
+     * are copied into a single graph, as reading from them is slower than reading from a copy. Callers merging
+     * models repeatedly (e.g. in each iteration) should rather add them to one modifiable model.
+     *
+     * @param model models to be merged
+     * @return model containing all statements of given models
+     */
     public static Model createUnion(Model... model) {
-        Model outputModel = ModelFactory.createDefaultModel();
-        Stream.of(model).forEach(
-            m -> outputModel.add(m)
-        );
-        return outputModel;
+        Graph baseGraph;
+        if (model.length == 1) {
+            baseGraph = model[0].getGraph();
+        } else {
+            IndexedUnionGraph unionGraph = new IndexedUnionGraph(
+                Stream.of(model).map(Model::getGraph).collect(Collectors.toList())
+            );
+            if (unionGraph.getMemberGraphs().size() > MAX_UNION_MEMBER_GRAPHS) {
+                baseGraph = GraphFactory.createDefaultGraph();
+                GraphUtil.addInto(baseGraph, unionGraph);
+            } else {
+                baseGraph = unionGraph;
+            }
+        }
+        return ModelFactory.createModelForGraph(new CopyOnWriteGraph(baseGraph));
+    }
+
+    /**
+     * Creates deterministic sample of a model. Subjects are selected by a seeded hash of their node,
+     * thus all statements of a selected subject are part of the sample and the same model is always sampled
+     * the same way regardless of the order of its statements.
+     * <p>
+     * Labels of blank nodes differ each time a model is parsed, thus blank nodes connected by statements form a group
+     * that is selected together with the smallest non-blank subject referencing any of them. Groups that are not
+     * referenced by a non-blank subject are selected by a hash of their statements.
+     *
+     * @param model sampled model
+     * @param sampleSize expected number of statements within the sample
+     * @param seed seed of the sampling
+     * @return new model with approximately sampleSize statements or the model itself if it is not larger
+     */
+    public static Model sample(Model model, long sampleSize, long seed) {
+        long size = model.size();
+        if (size <= sampleSize) {
+            return model;
+        }
+        double ratio = (double) sampleSize / size;
+        Model sample = ModelFactory.createDefaultModel();
+        Map<Node, String> blankNode2Key = computeBlankNodeSampleKeys(model.getGraph());
+        model.listStatements().forEachRemaining(st -> {
+            Node subject = st.getSubject().asNode();
+            String key = subject.isBlank() ? blankNode2Key.get(subject) : NodeFmtLib.str(subject);
+            if (toUnitInterval(key.hashCode(), seed) < ratio) {
+                sample.add(st);
+            }
+        });
+        return sample;
+    }
+
+    // stable representations of blank nodes that are independent of their labels, see sample(Model, long, long)
+    private static Map<Node, String> computeBlankNodeSampleKeys(Graph graph) {
+        // union-find of blank nodes connected by statements
+        Map<Node, Node> node2Parent = new HashMap<>();
+        Map<Node, String> node2ReferenceKey = new HashMap<>();
+        graph.find().forEachRemaining(t -> {
+            Node subject = t.getSubject();
+            Node object = t.getObject();
+            if (subject.isBlank()) {
+                node2Parent.putIfAbsent(subject, subject);
+            }
+            if (object.isBlank()) {
+                node2Parent.putIfAbsent(object, object);
+                if (subject.isBlank()) {
+                    union(node2Parent, subject, object);
+                } else {
+                    node2ReferenceKey.merge(object, NodeFmtLib.str(subject), JenaUtils::min);
+                }
+            }
+        });
+
+        Map<Node, String> root2Key = new HashMap<>();
+        node2ReferenceKey.forEach((node, key) -> root2Key.merge(find(node2Parent, node), key, JenaUtils::min));
+
+        // groups without a non-blank reference are described by their statements
+        Map<Node, List<String>> root2Statements = new HashMap<>();
+        graph.find().forEachRemaining(t -> {
+            if (!t.getSubject().isBlank()) {
+                return;
+            }
+            Node root = find(node2Parent, t.getSubject());
+            if (!root2Key.containsKey(root)) {
+                root2Statements.computeIfAbsent(root, r -> new ArrayList<>()).add(
+                    NodeFmtLib.str(t.getPredicate()) + " " + (t.getObject().isBlank() ? "[]" : NodeFmtLib.str(t.getObject()))
+                );
+            }
+        });
+        root2Statements.forEach((root, statements) -> {
+            Collections.sort(statements);
+            root2Key.put(root, statements.stream().collect(Collectors.joining(" ; ", "[ ", " ]")));
+        });
+
+        Map<Node, String> blankNode2Key = new HashMap<>();
+        for (Node node : node2Parent.keySet()) {
+            blankNode2Key.put(node, root2Key.getOrDefault(find(node2Parent, node), "[]"));
+        }
+        return blankNode2Key;
+    }
+
+    private static Node find(Map<Node, Node> node2Parent, Node node) {
+        Node root = node;
+        while (!node2Parent.get(root).equals(root)) {
+            root = node2Parent.get(root);
+        }
+        // path compression
+        while (!node.equals(root)) {
+            Node parent = node2Parent.get(node);
+            node2Parent.put(node, root);
+            node = parent;
+        }
+        return root;
+    }
+
+    private static void union(Map<Node, Node> node2Parent, Node node1, Node node2) {
+        Node root1 = find(node2Parent, node1);
+        Node root2 = find(node2Parent, node2);
+        if (!root1.equals(root2)) {
+            node2Parent.put(root1, root2);
+        }
+    }
+
+    private static String min(String s1, String s2) {
+        return (s1.compareTo(s2) <= 0) ? s1 : s2;
+    }
+
+    // mixes hash with the seed (finalizer of SplitMix64) and maps it to [0, 1)
+    private static double toUnitInterval(int hash, long seed) {
+        long z = seed + hash * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
     }
 
     public static void saveModelToTemporaryFile(@NotNull Model model) {
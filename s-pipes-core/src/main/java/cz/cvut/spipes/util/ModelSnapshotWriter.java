@@ -0,0 +1,221 @@
+package cz.cvut.spipes.util;
+
+import cz.cvut.spipes.config.AuditConfig;
+import cz.cvut.spipes.config.ExecutionConfig;
+import cz.cvut.spipes.config.SnapshotFormat;
+import org.apache.commons.codec.digest.MurmurHash3;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes snapshots of models to files in configured {@link SnapshotFormat}. Models are streamed from their graphs
+ * without intermediate copies.
+ * <p>
+ * If deduplication is enabled, a model whose content was already written by this writer is not serialized again.
+ * Content of a model is identified by a hash that does not depend on the order of triples, thus a model
+ * that flows unchanged through several modules is stored only once. Named snapshot files are hard links
+ * to the stored file (or its copy if the file system does not support links). Only files of
+ * {@link #MAX_INDEXED_FILES} least recently used contents are remembered, so that a writer shared by
+ * a long-running application does not grow without bound.
+ */
+public class ModelSnapshotWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelSnapshotWriter.class);
+
+    /**
+     * Maximal number of contents whose files are remembered for deduplication.
+     */
+    static final int MAX_INDEXED_FILES = 1024;
+
+    private final Path directory;
+    private final SnapshotFormat format;
+    private final boolean isDeduplicated;
+    private final Map<String, Path> contentHash2File;
+
+    /**
+     * @param directory directory of files written by {@link #write(Model, String)}
+     * @param format format of the files
+     * @param isDeduplicated true if models with same content should be stored only once
+     */
+    public ModelSnapshotWriter(Path directory, SnapshotFormat format, boolean isDeduplicated) {
+        this(directory, format, isDeduplicated, MAX_INDEXED_FILES);
+    }
+
+    ModelSnapshotWriter(Path directory, SnapshotFormat format, boolean isDeduplicated, int maxIndexedFiles) {
+        this.directory = directory;
+        this.format = format;
+        this.isDeduplicated = isDeduplicated;
+        this.contentHash2File = Collections.synchronizedMap(new LinkedHashMap<String, Path>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+                return size() > maxIndexedFiles;
+            }
+        });
+    }
+
+    /**
+     * @param directory directory of files written by {@link #write(Model, String)}
+     * @return writer configured by {@link AuditConfig}
+     */
+    public static ModelSnapshotWriter createFromConfig(Path directory) {
+        return new ModelSnapshotWriter(directory, AuditConfig.getSnapshotFormat(), AuditConfig.isSnapshotDeduplication());
+    }
+
+    /**
+     * @return writer of temporary files shared within the application
+     */
+    public static ModelSnapshotWriter getTemporaryFileWriter() {
+        return TemporaryFileWriterHolder.INSTANCE;
+    }
+
+    public SnapshotFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Writes the model to a new file within the directory of this writer. If a model with the same content was
+     * already written, its file is returned instead.
+     *
+     * @param model model to be written
+     * @param fileNamePrefix prefix of name of the new file
+     * @return path to the file with content of the model
+     * @throws IOException if the file could not be written
+     */
+    public Path write(Model model, String fileNamePrefix) throws IOException {
+        if (!isDeduplicated) {
+            return writeNewFile(model.getGraph(), fileNamePrefix);
+        }
+        String contentHash = computeContentHash(model.getGraph());
+        Path file = contentHash2File.get(contentHash);
+        if (file != null && Files.exists(file)) {
+            LOG.trace("Model with content hash {} is already stored in {}.", contentHash, file);
+            return file;
+        }
+        file = writeNewFile(model.getGraph(), fileNamePrefix);
+        contentHash2File.put(contentHash, file);
+        return file;
+    }
+
+    /**
+     * Writes the model to the given file. If a model with the same content was already written, the file is linked
+     * to the existing file instead.
+     *
+     * @param model model to be written
+     * @param file file to be created, its name should end with extension of the format
+     * @throws IOException if the file could not be written
+     */
+    public void write(Model model, Path file) throws IOException {
+        if (!isDeduplicated) {
+            writeFile(model.getGraph(), file);
+            return;
+        }
+        String contentHash = computeContentHash(model.getGraph());
+        Path existingFile = contentHash2File.get(contentHash);
+        if (existingFile != null && Files.exists(existingFile)) {
+            link(file, existingFile);
+            return;
+        }
+        writeFile(model.getGraph(), file);
+        contentHash2File.put(contentHash, file);
+    }
+
+    /**
+     * Computes hash of the content of the graph that does not depend on the order of triples. Graphs with same
+     * triples (including labels of blank nodes) have same hash.
+     *
+     * @param graph graph to compute hash of
+     * @return hexadecimal hash
+     */
+    public static String computeContentHash(Graph graph) {
+        long hash1 = 0;
+        long hash2 = 0;
+        long size = 0;
+        ExtendedIterator<Triple> it = graph.find();
+        try {
+            while (it.hasNext()) {
+                Triple t = it.next();
+                byte[] bytes = (NodeFmtLib.str(t.getSubject()) + " " + NodeFmtLib.str(t.getPredicate()) + " "
+                    + NodeFmtLib.str(t.getObject())).getBytes(StandardCharsets.UTF_8);
+                long[] tripleHash = MurmurHash3.hash128x64(bytes);
+                // sum is commutative, so the hash does not depend on iteration order
+                hash1 += tripleHash[0];
+                hash2 += tripleHash[1];
+                size++;
+            }
+        } finally {
+            it.close();
+        }
+        return String.format("%016x%016x-%d", hash1, hash2, size);
+    }
+
+    private Path writeNewFile(Graph graph, String fileNamePrefix) throws IOException {
+        Files.createDirectories(directory);
+        Path file = Files.createTempFile(directory, fileNamePrefix, format.getFileExtension());
+        writeFile(graph, file);
+        return file;
+    }
+
+    private void writeFile(Graph graph, Path file) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+            serialize(graph, os, format);
+        }
+    }
+
+    private static void link(Path file, Path existingFile) throws IOException {
+        try {
+            Files.createLink(file, existingFile);
+        } catch (UnsupportedOperationException | IOException e) {
+            LOG.trace("Could not link {} to {}, copying the file instead.", file, existingFile, e);
+            Files.copy(existingFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void serialize(Graph graph, OutputStream os, SnapshotFormat format) throws IOException {
+        switch (format) {
+            case turtle:
+                RDFDataMgr.write(os, graph, Lang.TURTLE);
+                break;
+            case ntriplesGzip:
+                GZIPOutputStream gzipOs = new GZIPOutputStream(os);
+                stream(graph, gzipOs, Lang.NTRIPLES);
+                gzipOs.finish();
+                break;
+            case thrift:
+                stream(graph, os, Lang.RDFTHRIFT);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported snapshot format " + format);
+        }
+    }
+
+    private static void stream(Graph graph, OutputStream os, Lang lang) {
+        StreamRDF stream = StreamRDFWriter.getWriterStream(os, lang);
+        StreamRDFOps.graphToStream(graph, stream);
+    }
+
+    private static class TemporaryFileWriterHolder {
+        private static final ModelSnapshotWriter INSTANCE = createFromConfig(ExecutionConfig.getTempDirectoryPath());
+    }
+}
@@ -0,0 +1,162 @@
+package cz.cvut.spipes.util;
+
+import cz.cvut.spipes.config.ExecutionConfig;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.Syntax;
+import org.apache.jena.shared.PrefixMapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.topbraid.spin.arq.ARQFactory;
+import org.topbraid.spin.model.Command;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of parsed queries, keyed by query text and prefix mapping used to parse it.
+ * <p>
+ * The cache holds at most {@link ExecutionConfig#getQueryCacheSize()} queries, least recently used queries
+ * are evicted first. Cached queries are shared, so they must not be modified by callers
+ * (use {@link Query#cloneQuery()} to obtain a modifiable copy).
+ * The cache should be invalidated whenever scripts are reloaded.
+ */
+public class QueryCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryCache.class);
+
+    private static final QueryCache INSTANCE = new QueryCache(ExecutionConfig.getQueryCacheSize());
+
+    private final int maxSize;
+    private final Map<QueryKey, Query> key2Query;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    QueryCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.key2Query = Collections.synchronizedMap(new LinkedHashMap<QueryKey, Query>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QueryKey, Query> eldest) {
+                return size() > QueryCache.this.maxSize;
+            }
+        });
+    }
+
+    public static QueryCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns parsed query of a SPIN command, i.e. query from its sp:text or its SPIN RDF serialization.
+     *
+     * @param spinCommand SPIN representation of the query
+     * @return parsed query that must not be modified
+     */
+    public Query getQuery(Command spinCommand) {
+        String queryText = ARQFactory.get().createCommandString(spinCommand);
+        return getQuery(queryText, null, ARQFactory.get().getSyntax());
+    }
+
+    /**
+     * Returns parsed query of a self-contained query text, i.e. query that declares all its prefixes.
+     *
+     * @param queryText text of the query
+     * @return parsed query that must not be modified
+     */
+    public Query getQuery(String queryText) {
+        return getQuery(queryText, null);
+    }
+
+    /**
+     * Returns parsed query of a query text with prefixes declared by the prefix mapping.
+     *
+     * @param queryText text of the query
+     * @param prefixMapping prefixes available to the query, might be null
+     * @return parsed query that must not be modified
+     */
+    public Query getQuery(String queryText, PrefixMapping prefixMapping) {
+        return getQuery(queryText, prefixMapping, Syntax.defaultQuerySyntax);
+    }
+
+    private Query getQuery(String queryText, PrefixMapping prefixMapping, Syntax syntax) {
+        if (maxSize <= 0) {
+            missCount.incrementAndGet();
+            return parseQuery(queryText, prefixMapping, syntax);
+        }
+        QueryKey key = new QueryKey(queryText, prefixMapping, syntax);
+        Query query = key2Query.get(key);
+        if (query != null) {
+            hitCount.incrementAndGet();
+            return query;
+        }
+        missCount.incrementAndGet();
+        query = parseQuery(queryText, prefixMapping, syntax);
+        key2Query.put(key, query);
+        return query;
+    }
+
+    /**
+     * Removes all cached queries, including SPIN to text conversions cached by {@link ARQFactory}.
+     */
+    public void invalidate() {
+        LOG.debug("Invalidating query cache with {} queries, {} hits and {} misses so far.",
+            key2Query.size(), hitCount.get(), missCount.get());
+        key2Query.clear();
+        ARQFactory.get().clearCaches();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        return key2Query.size();
+    }
+
+    private static Query parseQuery(String queryText, PrefixMapping prefixMapping, Syntax syntax) {
+        Query query = new Query();
+        if (prefixMapping != null) {
+            query.setPrefixMapping(prefixMapping);
+        }
+        return QueryFactory.parse(query, queryText, null, syntax);
+    }
+
+    private static class QueryKey {
+
+        private final String queryText;
+        private final Map<String, String> prefixes;
+        private final Syntax syntax;
+
+        QueryKey(String queryText, PrefixMapping prefixMapping, Syntax syntax) {
+            this.queryText = queryText;
+            this.prefixes = (prefixMapping == null) ? Collections.emptyMap() : prefixMapping.getNsPrefixMap();
+            this.syntax = syntax;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            QueryKey queryKey = (QueryKey) o;
+            return queryText.equals(queryKey.queryText)
+                && prefixes.equals(queryKey.prefixes)
+                && syntax.equals(queryKey.syntax);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(queryText, prefixes, syntax);
+        }
+    }
+}
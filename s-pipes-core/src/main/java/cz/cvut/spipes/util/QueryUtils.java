@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
@@ -114,6 +115,22 @@ public class QueryUtils {
         );
     }
 
+    /**
+     * Executes construct query on dataset and if it fails executes it with additional debugging information.
+     * @param query Query to be executed.
+     * @param dataset Dataset that is queried.
+     * @param bindings Input binding used wihin the query.
+     * @return Model with constructed triples.
+     */
+    public static Model execConstruct(Query query, Dataset dataset, QuerySolution bindings) {
+        return execQuery(
+            QueryExecution::execConstruct,
+            query,
+            () -> QueryExecutionFactory.create(query, dataset, bindings),
+            bindings
+        );
+    }
+
     /**
      * Executes select query and if it fails executes it with additional debugging information.
      * @param query
@@ -131,10 +148,19 @@ public class QueryUtils {
     }
 
     private static <T >T execQuery(QueryExecutor<T>  queryExecutor, Query query, Model model, QuerySolution bindings) {
+        return execQuery(
+            queryExecutor,
+            query,
+            () -> QueryExecutionFactory.create(query, model, bindings),
+            bindings
+        );
+    }
+
+    private static <T >T execQuery(QueryExecutor<T>  queryExecutor, Query query, Supplier<QueryExecution> executionFactory, QuerySolution bindings) {
         try {
             return execQuery(
                 queryExecutor,
-                QueryExecutionFactory.create(query, model, bindings),
+                executionFactory.get(),
                 false);
         } catch (RuntimeException ex) {
             LOG.error("Failed execution of query [1] for binding [2], due to exception [3]. " +
@@ -147,7 +173,7 @@ public class QueryUtils {
         LOG.error("Executing query [1] again to diagnose the cause ...");
         return execQuery(
             queryExecutor,
-            QueryExecutionFactory.create(query, model, bindings),
+            executionFactory.get(),
             true);
     }
 
@@ -0,0 +1,244 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Query;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.TriplePath;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.expr.Expr;
+import org.apache.jena.sparql.expr.ExprFunction;
+import org.apache.jena.sparql.expr.ExprFunctionOp;
+import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry;
+import org.apache.jena.sparql.syntax.Element;
+import org.apache.jena.sparql.syntax.ElementBind;
+import org.apache.jena.sparql.syntax.ElementFilter;
+import org.apache.jena.sparql.syntax.ElementGroup;
+import org.apache.jena.sparql.syntax.ElementNamedGraph;
+import org.apache.jena.sparql.syntax.ElementPathBlock;
+import org.apache.jena.sparql.syntax.ElementService;
+import org.apache.jena.sparql.syntax.ElementSubQuery;
+import org.apache.jena.sparql.syntax.ElementTriplesBlock;
+import org.apache.jena.sparql.syntax.ElementVisitorBase;
+import org.apache.jena.sparql.syntax.ElementWalker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Utilities for semi-naive evaluation of iteratively applied queries.
+ * <p>
+ * In semi-naive evaluation, a query is evaluated in each iteration only for solutions that use at least one triple
+ * inferred in the previous iteration (delta). For query with triple patterns t_1, ..., t_n, the query is rewritten
+ * into n delta queries, where i-th query matches t_i against graph {@link #DELTA_GRAPH_URI},
+ * patterns t_1, ..., t_i-1 against graph {@link #PREVIOUS_GRAPH_URI} holding data known before the previous
+ * iteration and remaining patterns against the default graph. Each new solution is thus computed exactly once.
+ * <p>
+ * Only monotonic queries, i.e. queries consisting of basic graph patterns, filters and binds, can be rewritten.
+ */
+public class SemiNaiveQueryUtils {
+
+    public static final String DELTA_GRAPH_URI = "urn:spipes:semi-naive:delta";
+    public static final String PREVIOUS_GRAPH_URI = "urn:spipes:semi-naive:previous";
+
+    private static final Node DELTA_GRAPH_NODE = NodeFactory.createURI(DELTA_GRAPH_URI);
+    private static final Node PREVIOUS_GRAPH_NODE = NodeFactory.createURI(PREVIOUS_GRAPH_URI);
+
+    /**
+     * Returns true if query can be rewritten to delta queries by {@link #createDeltaQueries(Query)}.
+     *
+     * @param query query to be checked
+     * @return true if the query is monotonic and contains only basic graph patterns, filters and binds
+     */
+    public static boolean isRewritable(Query query) {
+        if (!(query.getQueryPattern() instanceof ElementGroup)) {
+            return false;
+        }
+        for (Element e : ((ElementGroup) query.getQueryPattern()).getElements()) {
+            if (e instanceof ElementFilter) {
+                if (containsPatternExpression(((ElementFilter) e).getExpr())) {
+                    return false;
+                }
+            } else if (e instanceof ElementBind) {
+                if (containsPatternExpression(((ElementBind) e).getExpr())) {
+                    return false;
+                }
+            } else {
+                List<Triple> triples = getTriples(e);
+                if (triples == null || triples.stream().anyMatch(SemiNaiveQueryUtils::isPropertyFunction)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites query to delta queries (see {@link SemiNaiveQueryUtils}).
+     * Query without triple patterns is rewritten to an empty list as its solutions do not depend on data.
+     *
+     * @param query query for which {@link #isRewritable(Query)} holds
+     * @return list of delta queries, one for each triple pattern of the query
+     */
+    public static List<Query> createDeltaQueries(Query query) {
+        ElementGroup group = (ElementGroup) query.getQueryPattern();
+
+        int patternCount = group.getElements().stream()
+            .map(SemiNaiveQueryUtils::getTriples)
+            .filter(triples -> triples != null)
+            .mapToInt(List::size)
+            .sum();
+
+        List<Query> deltaQueries = new ArrayList<>(patternCount);
+        for (int i = 0; i < patternCount; i++) {
+            Query deltaQuery = query.cloneQuery();
+            deltaQuery.setQueryPattern(createDeltaGroup(group, i));
+            deltaQueries.add(deltaQuery);
+        }
+        return deltaQueries;
+    }
+
+    /**
+     * Returns false only if it is guaranteed that none of triple patterns of the query matches a triple
+     * of the delta model, i.e. solutions of the query cannot be changed by adding the delta model to the queried data.
+     *
+     * @param query query to be checked
+     * @param deltaModel newly added data
+     * @return true if the query might have different solutions after adding the delta model
+     */
+    public static boolean mayMatch(Query query, Model deltaModel) {
+        if (deltaModel.isEmpty()) {
+            return false;
+        }
+        DeltaMatchVisitor visitor = new DeltaMatchVisitor(deltaModel);
+        ElementWalker.walk(query.getQueryPattern(), visitor);
+        return visitor.mayMatch;
+    }
+
+    private static ElementGroup createDeltaGroup(ElementGroup group, int deltaPatternIndex) {
+        ElementGroup deltaGroup = new ElementGroup();
+        int index = 0;
+        for (Element e : group.getElements()) {
+            List<Triple> triples = getTriples(e);
+            if (triples == null) {
+                deltaGroup.addElement(e);
+                continue;
+            }
+            for (Triple t : triples) {
+                if (index < deltaPatternIndex) {
+                    deltaGroup.addElement(createNamedGraphElement(PREVIOUS_GRAPH_NODE, t));
+                } else if (index == deltaPatternIndex) {
+                    deltaGroup.addElement(createNamedGraphElement(DELTA_GRAPH_NODE, t));
+                } else {
+                    deltaGroup.addTriplePattern(t);
+                }
+                index++;
+            }
+        }
+        return deltaGroup;
+    }
+
+    private static Element createNamedGraphElement(Node graphNode, Triple triple) {
+        ElementTriplesBlock block = new ElementTriplesBlock();
+        block.addTriple(triple);
+        return new ElementNamedGraph(graphNode, block);
+    }
+
+    /**
+     * @return triples of the block or null if the element is not a block of simple triple patterns
+     */
+    private static List<Triple> getTriples(Element element) {
+        if (element instanceof ElementTriplesBlock) {
+            return ((ElementTriplesBlock) element).getPattern().getList();
+        }
+        if (element instanceof ElementPathBlock) {
+            List<TriplePath> paths = ((ElementPathBlock) element).getPattern().getList();
+            if (paths.stream().allMatch(TriplePath::isTriple)) {
+                return paths.stream().map(TriplePath::asTriple).collect(Collectors.toList());
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPropertyFunction(Triple triple) {
+        Node p = triple.getPredicate();
+        return p.isURI() && PropertyFunctionRegistry.get().isRegistered(p.getURI());
+    }
+
+    private static boolean containsPatternExpression(Expr expr) {
+        if (expr instanceof ExprFunctionOp) {
+            return true;
+        }
+        if (expr instanceof ExprFunction) {
+            return ((ExprFunction) expr).getArgs().stream().anyMatch(SemiNaiveQueryUtils::containsPatternExpression);
+        }
+        return false;
+    }
+
+    private static class DeltaMatchVisitor extends ElementVisitorBase {
+
+        private final Model deltaModel;
+        private boolean mayMatch = false;
+
+        DeltaMatchVisitor(Model deltaModel) {
+            this.deltaModel = deltaModel;
+        }
+
+        @Override
+        public void visit(ElementTriplesBlock el) {
+            el.getPattern().getList().forEach(this::checkTriple);
+        }
+
+        @Override
+        public void visit(ElementPathBlock el) {
+            el.getPattern().getList().forEach(tp -> {
+                if (tp.isTriple()) {
+                    checkTriple(tp.asTriple());
+                } else {
+                    mayMatch = true;
+                }
+            });
+        }
+
+        @Override
+        public void visit(ElementFilter el) {
+            mayMatch |= containsPatternExpression(el.getExpr());
+        }
+
+        @Override
+        public void visit(ElementBind el) {
+            mayMatch |= containsPatternExpression(el.getExpr());
+        }
+
+        @Override
+        public void visit(ElementService el) {
+            mayMatch = true;
+        }
+
+        @Override
+        public void visit(ElementSubQuery el) {
+            mayMatch = true;
+        }
+
+        private void checkTriple(Triple triple) {
+            if (mayMatch) {
+                return;
+            }
+            if (isPropertyFunction(triple)) {
+                mayMatch = true;
+                return;
+            }
+            mayMatch = deltaModel.getGraph().contains(
+                toMatchNode(triple.getSubject()),
+                toMatchNode(triple.getPredicate()),
+                toMatchNode(triple.getObject())
+            );
+        }
+
+        private Node toMatchNode(Node node) {
+            return (Var.isVar(node) || node.isBlank()) ? Node.ANY : node;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package cz.cvut.spipes.util;
+
+import cz.cvut.spipes.config.ResultCacheConfig;
+import cz.cvut.spipes.engine.VariablesBinding;
+import cz.cvut.spipes.registry.StreamResource;
+import cz.cvut.spipes.registry.StreamResourceRegistry;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotNotFoundException;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Process-wide cache of results of service executions, keyed by function, input binding, input graph
+ * and version of scripts (see {@link #computeKey(String, VariablesBinding, Model, long)}).
+ * <p>
+ * Every result is stored in a file of {@link ResultCacheConfig#getDirectoryPath()} until it expires,
+ * at most {@link ResultCacheConfig#getMaxMemoryEntries()} least recently used results are also kept in memory.
+ * Cached models are shared, so they must not be modified by callers.
+ */
+public class ServiceResultCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceResultCache.class);
+
+    private static final String FILE_PREFIX = "result-";
+    private static final String FILE_SUFFIX = ".rt";
+
+    private static final ServiceResultCache INSTANCE = new ServiceResultCache(
+        ResultCacheConfig.getMaxMemoryEntries(),
+        ResultCacheConfig.getDirectoryPath()
+    );
+
+    private final Path directory;
+    private final Map<String, CachedResult> key2Result = new ConcurrentHashMap<>();
+    private final Map<String, Model> key2Model;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    ServiceResultCache(int maxMemoryEntries, Path directory) {
+        this.directory = directory;
+        this.key2Model = Collections.synchronizedMap(new LinkedHashMap<String, Model>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Model> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        });
+        deleteStaleFiles();
+    }
+
+    public static ServiceResultCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes key of a service execution. Values of the binding that are urls of registered stream resources
+     * (e.g. uploaded files) are represented by digest of the content of the resource, not by the url.
+     *
+     * @param functionUri uri of the executed function
+     * @param inputBinding input binding of the execution
+     * @param inputModel input graph of the execution
+     * @param scriptsVersion version of scripts defining the function
+     * @return hexadecimal key
+     * @throws IOException if content of a stream resource could not be read
+     */
+    public static String computeKey(String functionUri,
+                                    VariablesBinding inputBinding,
+                                    Model inputModel,
+                                    long scriptsVersion) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        update(digest, "function=" + functionUri);
+        update(digest, "scripts=" + scriptsVersion);
+
+        List<String> varNames = new ArrayList<>();
+        inputBinding.getVarNames().forEachRemaining(varNames::add);
+        Collections.sort(varNames);
+        for (String varName : varNames) {
+            update(digest, "?" + varName + "=" + getValueDigest(inputBinding.getNode(varName)));
+        }
+
+        update(digest, "input=" + ModelSnapshotWriter.computeContentHash(inputModel.getGraph()));
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * @return the cached result, null if no result with the key is cached or the result expired
+     */
+    public CachedResult getResult(String key) {
+        CachedResult result = key2Result.get(key);
+        if (result == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (result.isExpired(System.currentTimeMillis())) {
+            remove(result);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Caches the result.
+     *
+     * @param key key computed by {@link #computeKey(String, VariablesBinding, Model, long)}
+     * @param model result of the execution
+     * @param maxAgeMillis time after which the result expires
+     * @return the cached result
+     * @throws IOException if the result could not be stored
+     */
+    public CachedResult putResult(String key, Model model, long maxAgeMillis) throws IOException {
+        evictExpired(System.currentTimeMillis());
+
+        Files.createDirectories(directory);
+        // each result has its own file, so that removal of an expired result does not affect a new one
+        Path file = Files.createTempFile(directory, FILE_PREFIX + key + "-", FILE_SUFFIX);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+            StreamingModelWriter.write(model, os, Lang.RDFTHRIFT);
+        }
+
+        CachedResult result = new CachedResult(key, file, System.currentTimeMillis() + maxAgeMillis);
+        CachedResult replacedResult = key2Result.put(key, result);
+        key2Model.put(key, model);
+        if (replacedResult != null) {
+            // concurrent executions with the same key were cached, only the last result is kept
+            deleteFile(replacedResult);
+        }
+        LOG.debug("Result with key {} is cached for {} ms.", key, maxAgeMillis);
+        return result;
+    }
+
+    /**
+     * @return result model, read from disk if it is not kept in memory, null if the result expired or was replaced
+     * and its file was deleted since it was returned by {@link #getResult(String)}
+     */
+    public Model getModel(CachedResult result) {
+        Model model = key2Model.get(result.getKey());
+        if (model != null) {
+            return model;
+        }
+        LOG.trace("Reading cached result with key {} from {}.", result.getKey(), result.file);
+        model = ModelFactory.createDefaultModel();
+        try {
+            RDFDataMgr.read(model, result.file.toString(), Lang.RDFTHRIFT);
+        } catch (RiotNotFoundException e) {
+            LOG.debug("File {} of cached result with key {} was deleted.", result.file, result.getKey());
+            return null;
+        }
+        if (key2Result.get(result.getKey()) == result) {
+            key2Model.put(result.getKey(), model);
+        }
+        return model;
+    }
+
+    public void invalidate() {
+        key2Result.values().forEach(this::remove);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    void evictExpired(long currentTimeMillis) {
+        key2Result.values().stream()
+            .filter(r -> r.isExpired(currentTimeMillis))
+            .forEach(this::remove);
+    }
+
+    private void remove(CachedResult result) {
+        if (!key2Result.remove(result.getKey(), result)) {
+            return;
+        }
+        key2Model.remove(result.getKey());
+        deleteFile(result);
+    }
+
+    private void deleteFile(CachedResult result) {
+        try {
+            Files.deleteIfExists(result.file);
+        } catch (IOException e) {
+            LOG.warn("Could not delete cached result {}.", result.file, e);
+        }
+    }
+
+    /**
+     * Deletes results cached by previous runs of the application, which are not indexed by this cache.
+     */
+    private void deleteStaleFiles() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files
+                .filter(f -> f.getFileName().toString().startsWith(FILE_PREFIX))
+                .forEach(f -> f.toFile().delete());
+        } catch (IOException e) {
+            LOG.warn("Could not delete stale cached results in {}.", directory, e);
+        }
+    }
+
+    private static String getValueDigest(RDFNode node) throws IOException {
+        String value = node.isURIResource() ? node.asResource().getURI()
+            : node.isLiteral() ? node.asLiteral().getLexicalForm()
+            : null;
+        StreamResource res = (value == null) ? null : StreamResourceRegistry.getInstance().getResourceByUrl(value);
+        if (res == null) {
+            return NodeFmtLib.str(node.asNode());
+        }
+        try (InputStream is = res.getInputStream()) {
+            return "resource:" + DigestUtils.sha256Hex(is);
+        }
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        digest.update(part.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    /**
+     * Result of a service execution stored in the cache.
+     */
+    public static final class CachedResult {
+        private final String key;
+        private final Path file;
+        private final long expirationTimeMillis;
+
+        private CachedResult(String key, Path file, long expirationTimeMillis) {
+            this.key = key;
+            this.file = file;
+            this.expirationTimeMillis = expirationTimeMillis;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return weak entity tag of the result, results of same executions in any RDF format are equivalent
+         */
+        public String getETag() {
+            return "W/\"" + key + "\"";
+        }
+
+        public long getExpirationTimeMillis() {
+            return expirationTimeMillis;
+        }
+
+        /**
+         * @return remaining time in seconds until the result expires
+         */
+        public long getRemainingMaxAgeSeconds(long currentTimeMillis) {
+            return Math.max(0, (expirationTimeMillis - currentTimeMillis) / 1000);
+        }
+
+        private boolean isExpired(long currentTimeMillis) {
+            return currentTimeMillis >= expirationTimeMillis;
+        }
+    }
+}
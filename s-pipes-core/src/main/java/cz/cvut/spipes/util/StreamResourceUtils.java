@@ -1,7 +1,7 @@
 package cz.cvut.spipes.util;
 
+import cz.cvut.spipes.registry.FileStreamResource;
 import cz.cvut.spipes.registry.StreamResource;
-import cz.cvut.spipes.registry.StringStreamResource;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -9,6 +9,6 @@ import java.nio.file.Path;
 
 public class StreamResourceUtils {
     public static StreamResource getStreamResource(String uri, Path filePath) throws IOException {
-        return new StringStreamResource(uri, Files.readAllBytes(filePath), null);
+        return new FileStreamResource(uri, filePath, null, Files.size(filePath));
     }
-}
+}
\ No newline at end of file
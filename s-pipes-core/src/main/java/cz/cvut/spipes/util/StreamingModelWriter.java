@@ -0,0 +1,127 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.atlas.io.AWriter;
+import org.apache.jena.atlas.io.IO;
+import org.apache.jena.atlas.io.IndentedWriter;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.thrift.StreamRDF2Thrift;
+import org.apache.jena.riot.writer.WriterStreamRDFBlocks;
+import org.apache.jena.riot.writer.WriterStreamRDFPlain;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes models by streaming writers that do not analyze the whole graph before writing the first triple
+ * and flush the output regularly, so that a client can process the output while it is being written.
+ * <p>
+ * Supported languages are N-Triples, N-Quads, Turtle (written in blocks of triples with the same subject)
+ * and RDF Thrift.
+ */
+public class StreamingModelWriter {
+
+    /**
+     * Number of triples after which the output is flushed.
+     */
+    public static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+    private static final int THRIFT_BUFFER_SIZE = 64 * 1024;
+
+    public static boolean isStreamable(Lang lang) {
+        return Lang.NTRIPLES.equals(lang)
+            || Lang.NQUADS.equals(lang)
+            || Lang.TURTLE.equals(lang)
+            || Lang.RDFTHRIFT.equals(lang);
+    }
+
+    public static void write(Model model, OutputStream os, Lang lang) {
+        write(model, os, lang, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param flushInterval number of triples after which the output is flushed
+     * @throws IllegalArgumentException if the language is not supported, see {@link #isStreamable(Lang)}
+     */
+    public static void write(Model model, OutputStream os, Lang lang, int flushInterval) {
+        FlushingStreamRDF stream = createStream(os, lang, flushInterval);
+        stream.start();
+        StreamRDFOps.sendGraphToStream(model.getGraph(), stream);
+        stream.finish();
+        stream.flush();
+    }
+
+    /**
+     * Writes RDF parsed from the input without loading it into a model.
+     *
+     * @param inputLang language of the input
+     * @throws IllegalArgumentException if the output language is not supported, see {@link #isStreamable(Lang)}
+     */
+    public static void write(InputStream input, Lang inputLang, OutputStream os, Lang lang) {
+        FlushingStreamRDF stream = createStream(os, lang, DEFAULT_FLUSH_INTERVAL);
+        // parser starts and finishes the stream
+        RDFDataMgr.parse(stream, input, inputLang);
+        stream.flush();
+    }
+
+    private static FlushingStreamRDF createStream(OutputStream os, Lang lang, int flushInterval) {
+        StreamRDF stream;
+        Runnable flush;
+        if (Lang.NTRIPLES.equals(lang) || Lang.NQUADS.equals(lang)) {
+            AWriter writer = IO.wrapUTF8(os);
+            stream = new WriterStreamRDFPlain(writer);
+            flush = writer::flush;
+        } else if (Lang.TURTLE.equals(lang)) {
+            IndentedWriter writer = new IndentedWriter(os);
+            stream = new WriterStreamRDFBlocks(writer, null);
+            flush = writer::flush;
+        } else if (Lang.RDFTHRIFT.equals(lang)) {
+            // thrift protocol does not add its own buffer to a buffered stream, so it can be flushed from here
+            BufferedOutputStream bos = new BufferedOutputStream(os, THRIFT_BUFFER_SIZE);
+            stream = new StreamRDF2Thrift(bos, false);
+            flush = () -> {
+                try {
+                    bos.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Language " + lang + " cannot be written by a streaming writer.");
+        }
+        return new FlushingStreamRDF(stream, flush, flushInterval);
+    }
+
+    private static class FlushingStreamRDF extends StreamRDFWrapper {
+        private final Runnable flush;
+        private final int flushInterval;
+        private int unflushedCount;
+
+        private FlushingStreamRDF(StreamRDF other, Runnable flush, int flushInterval) {
+            super(other);
+            this.flush = flush;
+            this.flushInterval = flushInterval;
+        }
+
+        @Override
+        public void triple(Triple triple) {
+            super.triple(triple);
+            if (++unflushedCount >= flushInterval) {
+                unflushedCount = 0;
+                flush.run();
+            }
+        }
+
+        private void flush() {
+            flush.run();
+        }
+    }
+}
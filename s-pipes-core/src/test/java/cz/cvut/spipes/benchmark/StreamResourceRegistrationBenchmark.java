@@ -0,0 +1,106 @@
+package cz.cvut.spipes.benchmark;
+
+import cz.cvut.spipes.registry.StreamResourceRegistry;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares memory needed to register an upload as a stream resource from a stream with registration
+ * of the upload buffered to a byte array. Allocated bytes per operation ({@code gc.alloc.rate.norm}) reported
+ * by {@link GCProfiler} should stay flat with growing upload size for the streamed registration.
+ * <p>
+ * Run from IDE or by <code>java -cp ... cz.cvut.spipes.benchmark.StreamResourceRegistrationBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class StreamResourceRegistrationBenchmark {
+
+    @Param({"1048576", "67108864", "268435456"})
+    long uploadSize;
+
+    @Benchmark
+    public long streamedRegistration() throws IOException {
+        String id = UUID.randomUUID().toString();
+        StreamResourceRegistry registry = StreamResourceRegistry.getInstance();
+        long length = registry
+            .registerResource(id, new GeneratedInputStream(uploadSize), null)
+            .getContentLength();
+        registry.unregisterResource(id);
+        return length;
+    }
+
+    @Benchmark
+    public long bufferedRegistration() throws IOException {
+        String id = UUID.randomUUID().toString();
+        StreamResourceRegistry registry = StreamResourceRegistry.getInstance();
+        long length = registry
+            .registerResource(id, IOUtils.toByteArray(new GeneratedInputStream(uploadSize)), null)
+            .getContentLength();
+        registry.unregisterResource(id);
+        return length;
+    }
+
+    /**
+     * Stream of generated bytes simulating an upload that is not held in memory.
+     */
+    private static class GeneratedInputStream extends InputStream {
+        private long remaining;
+
+        private GeneratedInputStream(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return (int) (remaining & 0x7f);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) ((remaining - i) & 0x7f);
+            }
+            remaining -= n;
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder()
+                .include(StreamResourceRegistrationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,138 @@
+package cz.cvut.spipes.benchmark;
+
+import cz.cvut.spipes.util.JenaUtils;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compares union of models created by {@link JenaUtils#createUnion(Model...)} with a union
+ * created by copying all statements and with Jena's {@link MultiUnion}.
+ * Consecutive member models share 10% of their statements.
+ * <p>
+ * Run from IDE or by <code>java -cp ... cz.cvut.spipes.benchmark.UnionBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnionBenchmark {
+
+    private static final String NS = "http://example.org/";
+
+    @Param({"1000", "100000"})
+    int modelSize;
+
+    @Param({"2", "8"})
+    int memberCount;
+
+    Model[] members;
+    Resource searchedSubject;
+
+    @Setup
+    public void setUp() {
+        members = new Model[memberCount];
+        int overlap = modelSize / 10;
+        for (int m = 0; m < memberCount; m++) {
+            Model model = ModelFactory.createDefaultModel();
+            int offset = m * (modelSize - overlap);
+            for (int i = offset; i < offset + modelSize; i++) {
+                Resource r = model.createResource(NS + "r" + i);
+                model.add(r, RDF.type, model.createResource(NS + "C" + (i % 10)));
+                model.add(r, RDFS.label, "r" + i);
+            }
+            members[m] = model;
+        }
+        searchedSubject = ModelFactory.createDefaultModel().createResource(NS + "r" + (modelSize - 1));
+    }
+
+    @Benchmark
+    public long copiedUnionSize() {
+        return createCopiedUnion().size();
+    }
+
+    @Benchmark
+    public long multiUnionSize() {
+        return createMultiUnion().size();
+    }
+
+    @Benchmark
+    public long indexedUnionSize() {
+        return JenaUtils.createUnion(members).size();
+    }
+
+    @Benchmark
+    public void copiedUnionFindBySubject(Blackhole bh) {
+        findBySubject(createCopiedUnion(), bh);
+    }
+
+    @Benchmark
+    public void multiUnionFindBySubject(Blackhole bh) {
+        findBySubject(createMultiUnion(), bh);
+    }
+
+    @Benchmark
+    public void indexedUnionFindBySubject(Blackhole bh) {
+        findBySubject(JenaUtils.createUnion(members), bh);
+    }
+
+    @Benchmark
+    public void copiedUnionScan(Blackhole bh) {
+        createCopiedUnion().listStatements().forEachRemaining(bh::consume);
+    }
+
+    @Benchmark
+    public void multiUnionScan(Blackhole bh) {
+        createMultiUnion().listStatements().forEachRemaining(bh::consume);
+    }
+
+    @Benchmark
+    public void indexedUnionScan(Blackhole bh) {
+        JenaUtils.createUnion(members).listStatements().forEachRemaining(bh::consume);
+    }
+
+    private void findBySubject(Model union, Blackhole bh) {
+        union.listStatements(searchedSubject, null, (String) null).forEachRemaining(bh::consume);
+    }
+
+    private Model createCopiedUnion() {
+        Model outputModel = ModelFactory.createDefaultModel();
+        Stream.of(members).forEach(outputModel::add);
+        return outputModel;
+    }
+
+    private Model createMultiUnion() {
+        MultiUnion union = new MultiUnion();
+        Stream.of(members).forEach(m -> union.addGraph(m.getGraph()));
+        return ModelFactory.createModelForGraph(union);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder().include(UnionBenchmark.class.getSimpleName()).build()
+        ).run();
+    }
+}
@@ -0,0 +1,112 @@
+package cz.cvut.spipes.engine;
+
+import cz.cvut.spipes.config.ListenerBackpressurePolicy;
+import cz.cvut.spipes.modules.Module;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncProgressListenerTest {
+
+    @Test
+    public void listenerReceivesAllEventsInOrderIfPolicyIsBlock() throws InterruptedException {
+        RecordingListener recordingListener = new RecordingListener(new CountDownLatch(0));
+        AsyncProgressListener listener = new AsyncProgressListener(recordingListener, 2, ListenerBackpressurePolicy.block, 1);
+
+        listener.pipelineExecutionStarted(1);
+        for (int i = 0; i < 10; i++) {
+            listener.moduleExecutionStarted(1, "m" + i, null, null, null);
+            listener.moduleExecutionFinished(1, "m" + i, null);
+        }
+        listener.pipelineExecutionFinished(1);
+
+        assertTrue(recordingListener.awaitEvent("finished 1"));
+        assertEquals(22, recordingListener.events.size());
+        assertEquals("started m0", recordingListener.events.get(1));
+        assertEquals("finished m9", recordingListener.events.get(20));
+        assertEquals(0, listener.getDroppedEventCount());
+    }
+
+    @Test
+    public void listenerDoesNotReceiveDroppedModuleExecutionsIfQueueIsFull() throws InterruptedException {
+        CountDownLatch isReleased = new CountDownLatch(1);
+        RecordingListener recordingListener = new RecordingListener(isReleased);
+        AsyncProgressListener listener = new AsyncProgressListener(recordingListener, 1, ListenerBackpressurePolicy.drop, 1);
+
+        listener.pipelineExecutionStarted(1);
+        // wait until the worker blocks within the first event, so that the queue is empty
+        assertTrue(recordingListener.awaitEvent("started 1"));
+        listener.moduleExecutionStarted(1, "m1", null, null, null);
+        listener.moduleExecutionStarted(1, "m2", null, null, null);
+        listener.moduleExecutionFinished(1, "m2", null);
+        isReleased.countDown();
+        listener.moduleExecutionFinished(1, "m1", null);
+        listener.pipelineExecutionFinished(1);
+
+        assertTrue(recordingListener.awaitEvent("finished 1"));
+        assertEquals(
+            "[started 1, started m1, finished m1, finished 1]",
+            recordingListener.events.toString()
+        );
+        assertEquals(2, listener.getDroppedEventCount());
+    }
+
+    private static class RecordingListener implements ProgressListener {
+
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch isReleased;
+
+        private RecordingListener(CountDownLatch isReleased) {
+            this.isReleased = isReleased;
+        }
+
+        @Override
+        public void pipelineExecutionStarted(long pipelineExecutionId) {
+            add("started " + pipelineExecutionId);
+            try {
+                isReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void pipelineExecutionFinished(long pipelineExecutionId) {
+            add("finished " + pipelineExecutionId);
+        }
+
+        @Override
+        public void moduleExecutionStarted(long pipelineExecutionId, String moduleExecutionId, Module outputModule, ExecutionContext inputContext, String predecessorModuleExecutionId) {
+            add("started " + moduleExecutionId);
+        }
+
+        @Override
+        public void moduleExecutionFinished(long pipelineExecutionId, String moduleExecutionId, Module outputModule) {
+            add("finished " + moduleExecutionId);
+        }
+
+        private void add(String event) {
+            synchronized (events) {
+                events.add(event);
+                events.notifyAll();
+            }
+        }
+
+        private boolean awaitEvent(String event) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            synchronized (events) {
+                while (!events.contains(event) && System.currentTimeMillis() < deadline) {
+                    events.wait(100);
+                }
+                return events.contains(event);
+            }
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package cz.cvut.spipes.engine;
 
 import cz.cvut.spipes.modules.BindWithConstantModule;
+import cz.cvut.spipes.modules.Module;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +25,9 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @ExtendWith(MockitoExtension.class)
 public class ExecutionEngineImplTest {
 
@@ -22,6 +38,13 @@ public class ExecutionEngineImplTest {
     @Mock
     BindWithConstantModule outputModule;
 
+    // threads are started only by tests of parallel execution
+    private final ExecutorService moduleExecutor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void shutDownModuleExecutor() {
+        moduleExecutor.shutdownNow();
+    }
 
     @Disabled
     @Test
@@ -57,5 +80,173 @@ public class ExecutionEngineImplTest {
         verify(outputModule, times(1)).execute();
     }
 
+    @Test
+    public void executePipelineInParallelExecutesIndependentModulesConcurrently() {
+        CountDownLatch bothSourcesStarted = new CountDownLatch(2);
+
+        LatchModule inputModule1 = new LatchModule("input-module-1", bothSourcesStarted);
+        LatchModule inputModule2 = new LatchModule("input-module-2", bothSourcesStarted);
+        LatchModule outputModule = new LatchModule("output-module", new CountDownLatch(0));
+        outputModule.setInputModules(Arrays.asList(inputModule1, inputModule2));
+
+        List<String> finishedModules = Collections.synchronizedList(new LinkedList<>());
+        ExecutionEngine engine = new ExecutionEngineImpl(true, moduleExecutor);
+        engine.addProgressListener(new ProgressListener() {
+            @Override
+            public void pipelineExecutionStarted(long pipelineExecutionId) {
+            }
+
+            @Override
+            public void pipelineExecutionFinished(long pipelineExecutionId) {
+            }
+
+            @Override
+            public void moduleExecutionStarted(long pipelineExecutionId, String moduleExecutionId, Module module,
+                                               ExecutionContext inputContext, String predecessorModuleExecutionId) {
+            }
+
+            @Override
+            public void moduleExecutionFinished(long pipelineExecutionId, String moduleExecutionId, Module module) {
+                finishedModules.add(module.getLabel());
+            }
+        });
+
+        ExecutionContext outputContext = engine.executePipeline(outputModule, ExecutionContextFactory.createEmptyContext());
+
+        assertTrue(inputModule1.isLatchReleased(), "Input modules were not executed concurrently.");
+        assertTrue(inputModule2.isLatchReleased(), "Input modules were not executed concurrently.");
+        assertEquals(3, outputContext.getDefaultModel().size());
+        assertEquals(Arrays.asList("input-module-1", "input-module-2", "output-module"), finishedModules);
+    }
+
+    @Test
+    public void executePipelineInParallelDoesNotDelayReadyModulesBehindSlowModule() {
+        // slow input module waits for a module that follows its successor in the topological order
+        CountDownLatch slowAndLateStarted = new CountDownLatch(2);
+
+        LatchModule slowModule = new LatchModule("slow-module", slowAndLateStarted);
+        LatchModule fastModule = new LatchModule("fast-module", new CountDownLatch(0));
+        LatchModule slowSuccessor = new LatchModule("slow-successor", new CountDownLatch(0));
+        slowSuccessor.setInputModules(Collections.singletonList(slowModule));
+        LatchModule lateModule = new LatchModule("late-module", slowAndLateStarted);
+        lateModule.setInputModules(Collections.singletonList(fastModule));
+        LatchModule outputModule = new LatchModule("output-module", new CountDownLatch(0));
+        outputModule.setInputModules(Arrays.asList(slowSuccessor, lateModule));
+
+        ExecutionEngine engine = new ExecutionEngineImpl(true, moduleExecutor);
+        ExecutionContext outputContext = engine.executePipeline(outputModule, ExecutionContextFactory.createEmptyContext());
+
+        assertTrue(slowModule.isLatchReleased(), "Ready module was not executed while slow module was running.");
+        assertTrue(lateModule.isLatchReleased(), "Ready module was not executed while slow module was running.");
+        assertEquals(5, outputContext.getDefaultModel().size());
+    }
+
+    @Test
+    public void executePipelineExecutesSameModulesAgainInNextExecution() {
+        LatchModule inputModule = new LatchModule("input-module", new CountDownLatch(0));
+        LatchModule outputModule = new LatchModule("output-module", new CountDownLatch(0));
+        outputModule.setInputModules(Collections.singletonList(inputModule));
+        ExecutionEngine engine = new ExecutionEngineImpl(false, null);
 
-}
\ No newline at end of file
+        engine.executePipeline(outputModule, ExecutionContextFactory.createEmptyContext());
+
+        Model inputModel = ModelFactory.createDefaultModel();
+        inputModel.add(
+            ResourceFactory.createResource("http://example.org/input"),
+            RDF.type,
+            ResourceFactory.createResource("http://example.org/Input")
+        );
+        ExecutionContext outputContext = engine.executePipeline(outputModule, ExecutionContextFactory.createContext(inputModel));
+
+        assertEquals(3, outputContext.getDefaultModel().size());
+        assertTrue(outputContext.getDefaultModel().containsAll(inputModel));
+    }
+
+    /**
+     * Module that adds one triple to its input and waits until all modules sharing the latch are started.
+     */
+    private static class LatchModule implements Module {
+
+        private final Resource resource;
+        private final CountDownLatch latch;
+        private boolean isLatchReleased;
+        private List<Module> inputModules = new LinkedList<>();
+        private ExecutionContext inputContext;
+        private ExecutionContext outputContext;
+
+        LatchModule(String localName, CountDownLatch latch) {
+            this.resource = ResourceFactory.createResource("http://example.org/" + localName);
+            this.latch = latch;
+        }
+
+        boolean isLatchReleased() {
+            return isLatchReleased;
+        }
+
+        @Override
+        public ExecutionContext execute() {
+            latch.countDown();
+            try {
+                isLatchReleased = latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            Model model = ModelFactory.createDefaultModel().add(inputContext.getDefaultModel());
+            model.add(resource, RDF.type, ResourceFactory.createResource("http://example.org/Executed"));
+            outputContext = ExecutionContextFactory.createContext(model);
+            return outputContext;
+        }
+
+        @Override
+        public String getTypeURI() {
+            return "http://example.org/latch-module";
+        }
+
+        @Override
+        public String getLabel() {
+            return resource.getLocalName();
+        }
+
+        @Override
+        public void setInputContext(ExecutionContext context) {
+            this.inputContext = context;
+        }
+
+        @Override
+        public ExecutionContext getExecutionContext() {
+            return inputContext;
+        }
+
+        @Override
+        public void setConfigurationResource(Resource moduleResource) {
+        }
+
+        @Override
+        public void loadConfiguration() {
+        }
+
+        @Override
+        public Resource getResource() {
+            return resource;
+        }
+
+        @Override
+        public void setInputModules(List<Module> inputModules) {
+            this.inputModules = inputModules;
+        }
+
+        @Override
+        public List<Module> getInputModules() {
+            return inputModules;
+        }
+
+        @Override
+        public ExecutionContext getOutputContext() {
+            return outputContext;
+        }
+
+        @Override
+        public void addOutputBindings(VariablesBinding variablesBinding) {
+        }
+    }
+}
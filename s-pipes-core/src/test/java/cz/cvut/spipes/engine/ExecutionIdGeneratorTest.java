@@ -0,0 +1,50 @@
+package cz.cvut.spipes.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExecutionIdGeneratorTest {
+
+    @Test
+    public void nextIdIsIncreasingIfClockDoesNotChangeOrGoesBackwards() {
+        AtomicLong time = new AtomicLong(1000);
+        ExecutionIdGenerator generator = new ExecutionIdGenerator(time::get);
+
+        assertEquals(1_000_000, generator.nextId());
+        assertEquals(1_000_001, generator.nextId());
+        time.set(999);
+        assertEquals(1_000_002, generator.nextId());
+        time.set(2000);
+        assertEquals(2_000_000, generator.nextId());
+    }
+
+    @Test
+    public void nextIdIsUniqueUnderConcurrentUse() throws InterruptedException {
+        ExecutionIdGenerator generator = new ExecutionIdGenerator(() -> 1);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    assertTrue(ids.add(generator.nextId()));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, ids.size());
+    }
+}
@@ -3,11 +3,14 @@ package cz.cvut.spipes.engine;
 import cz.cvut.spipes.modules.Module;
 import cz.cvut.spipes.test.JenaTestUtils;
 import org.apache.jena.ontology.OntModel;
+import org.apache.jena.rdf.model.Resource;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class PipelineFactoryTest {
 
@@ -26,4 +29,25 @@ public class PipelineFactoryTest {
 //        newContext.getDefaultModel().write(System.out, FileUtils.langTurtle);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void loadPipelineCreatesNewModulesFromCompiledTemplate() throws Exception {
+
+        JenaTestUtils.mapLocalSPipesDefinitionFiles();
+        OntModel ontModel = JenaTestUtils.loadOntologyClosureFromResources("/pipeline/config.ttl");
+        Resource outputModuleRes = ontModel.getResource("http://topbraid.org/sparqlmotionlib#bind-greeting-2");
+
+        PipelineTemplate template = PipelineTemplate.compile(outputModuleRes);
+        Module module1 = template.instantiate();
+        Module module2 = template.instantiate();
+
+        assertEquals(outputModuleRes, module1.getResource());
+        assertEquals(2, module1.getInputModules().size(), "Number of input modules does not match");
+        assertNotSame(module1, module2);
+        assertNotSame(module1.getInputModules().get(0), module2.getInputModules().get(0));
+
+        Resource inputModuleRes = ontModel.getResource("http://topbraid.org/sparqlmotionlib#bind-name-2");
+        assertNull(PipelineFactory.loadPipeline(inputModuleRes), "Input module is not an output module");
+        assertEquals(inputModuleRes, PipelineFactory.loadModulePipeline(inputModuleRes).getResource());
+    }
+
+}
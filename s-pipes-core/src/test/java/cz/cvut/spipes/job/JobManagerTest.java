@@ -0,0 +1,147 @@
+package cz.cvut.spipes.job;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JobManagerTest {
+
+    private Path resultDirectory;
+
+    @BeforeEach
+    public void createResultDirectory() throws Exception {
+        resultDirectory = Files.createTempDirectory("job-manager-test-");
+    }
+
+    @Test
+    public void submitStoresResultOfSucceededJob() throws Exception {
+        JobManager jobManager = new JobManager(1, 10, resultDirectory, 0);
+        Model model = createModel();
+
+        Job job = jobManager.submit(() -> model);
+
+        awaitFinished(job);
+        assertEquals(JobStatus.succeeded, job.getStatus());
+        assertSame(job, jobManager.getJob(job.getId()));
+        assertTrue(jobManager.loadResult(job).isIsomorphicWith(model));
+        assertEquals(1, jobManager.getWaitTimeHistogram().getCount());
+    }
+
+    @Test
+    public void writeResultWritesStoredResultInRequestedLanguage() throws Exception {
+        JobManager jobManager = new JobManager(1, 10, resultDirectory, 0);
+        Model model = createModel();
+        Job job = jobManager.submit(() -> model);
+        awaitFinished(job);
+
+        for (Lang lang : new Lang[]{Lang.RDFTHRIFT, Lang.NTRIPLES, Lang.TURTLE, Lang.RDFXML, Lang.JSONLD}) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+            jobManager.writeResult(job, os, lang);
+
+            Model writtenModel = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(writtenModel, new ByteArrayInputStream(os.toByteArray()), lang);
+            assertTrue(writtenModel.isIsomorphicWith(model), lang.getLabel());
+        }
+    }
+
+    @Test
+    public void submitRecordsFailureOfJob() throws Exception {
+        JobManager jobManager = new JobManager(1, 10, resultDirectory, 0);
+
+        Job job = jobManager.submit(() -> {
+            throw new IllegalArgumentException("Invalid module id.");
+        });
+
+        awaitFinished(job);
+        assertEquals(JobStatus.failed, job.getStatus());
+        assertEquals("Invalid module id.", job.getErrorMessage());
+        assertThrows(IllegalStateException.class, () -> jobManager.loadResult(job));
+        assertThrows(IllegalStateException.class, () -> jobManager.writeResult(job, new ByteArrayOutputStream(), Lang.TURTLE));
+    }
+
+    @Test
+    public void submitRecordsErrorOfJob() throws Exception {
+        JobManager jobManager = new JobManager(1, 10, resultDirectory, 0);
+
+        Job job = jobManager.submit(() -> {
+            throw new StackOverflowError();
+        });
+
+        awaitFinished(job);
+        assertEquals(JobStatus.failed, job.getStatus());
+        assertEquals(StackOverflowError.class.getName(), job.getErrorMessage());
+    }
+
+    @Test
+    public void submitRejectsJobWhenQueueIsFull() throws Exception {
+        JobManager jobManager = new JobManager(1, 1, resultDirectory, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Job runningJob = jobManager.submit(() -> {
+            started.countDown();
+            release.await();
+            return createModel();
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Job queuedJob = jobManager.submit(ModelFactory::createDefaultModel);
+
+        assertEquals(JobStatus.queued, queuedJob.getStatus());
+        assertEquals(1, jobManager.getQueueDepth());
+        assertEquals(1, jobManager.getRunningCount());
+        assertThrows(RejectedExecutionException.class, () -> jobManager.submit(ModelFactory::createDefaultModel));
+
+        release.countDown();
+        awaitFinished(runningJob);
+        awaitFinished(queuedJob);
+        assertEquals(JobStatus.succeeded, queuedJob.getStatus());
+    }
+
+    @Test
+    public void evictJobsRemovesExpiredJobsWithResults() throws Exception {
+        JobManager jobManager = new JobManager(1, 10, resultDirectory, 1000);
+        Job job = jobManager.submit(JobManagerTest::createModel);
+        awaitFinished(job);
+
+        jobManager.evictJobs(System.currentTimeMillis());
+        assertSame(job, jobManager.getJob(job.getId()));
+
+        jobManager.evictJobs(System.currentTimeMillis() + 2000);
+        assertNull(jobManager.getJob(job.getId()));
+        assertFalse(Files.exists(job.getResultFile()));
+    }
+
+    private static void awaitFinished(Job job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.getStatus().isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.getStatus().isFinished(), "Job " + job.getId() + " did not finish in time.");
+    }
+
+    private static Model createModel() {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource("http://example.org/john"), RDFS.label, "John");
+        return model;
+    }
+}
@@ -0,0 +1,56 @@
+package cz.cvut.spipes.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WriteBehindQueueTest {
+
+    @Test
+    public void flushWaitsForOrderedTasksExecutedInSubmissionOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            WriteBehindQueue queue = new WriteBehindQueue(executor, new Semaphore(5));
+            List<Integer> orderedResults = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger independentCount = new AtomicInteger();
+
+            for (int i = 0; i < 50; i++) {
+                final int index = i;
+                queue.submitOrdered(() -> orderedResults.add(index));
+                queue.submit(independentCount::incrementAndGet);
+            }
+            queue.flush();
+
+            assertEquals(IntStream.range(0, 50).boxed().collect(Collectors.toList()), orderedResults);
+            assertEquals(50, independentCount.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedTaskReleasesPermitAndDoesNotStopOrderedTasks() {
+        Semaphore permits = new Semaphore(1);
+        WriteBehindQueue queue = new WriteBehindQueue(Runnable::run, permits);
+        AtomicInteger count = new AtomicInteger();
+
+        queue.submitOrdered(() -> {
+            throw new IllegalStateException("failed");
+        });
+        queue.submitOrdered(count::incrementAndGet);
+        queue.flush();
+
+        assertEquals(1, count.get());
+        assertEquals(1, permits.availablePermits());
+    }
+}
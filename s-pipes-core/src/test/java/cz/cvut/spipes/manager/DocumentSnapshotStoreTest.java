@@ -0,0 +1,72 @@
+package cz.cvut.spipes.manager;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.util.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DocumentSnapshotStoreTest {
+
+    private static final String DOCUMENT_A = "<http://example.org/s> <http://example.org/p> \"A\" .";
+    private static final String DOCUMENT_B = "<http://example.org/s> <http://example.org/p> \"B\" .";
+
+    private Path snapshotDir;
+    private Path documentFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path tempDir = Files.createTempDirectory("document-snapshot-test");
+        snapshotDir = tempDir.resolve("snapshot");
+        documentFile = tempDir.resolve("document.ttl");
+    }
+
+    @Test
+    public void loadModelReturnsSnapshotIfSizeAndModificationTimeDidNotChange() throws IOException {
+        FileTime lastModifiedTime = writeDocument(DOCUMENT_A);
+        DocumentSnapshotStore store = new DocumentSnapshotStore(snapshotDir);
+        store.loadModel(documentFile, FileUtils.langTurtle);
+        store.save();
+
+        // same size and modification time, so the document is not read again
+        writeDocument(DOCUMENT_B);
+        Files.setLastModifiedTime(documentFile, lastModifiedTime);
+
+        Model model = new DocumentSnapshotStore(snapshotDir).loadModel(documentFile, FileUtils.langTurtle);
+
+        assertEquals("A", getObjectLiteral(model));
+    }
+
+    @Test
+    public void loadModelParsesDocumentIfItsContentChanged() throws IOException {
+        writeDocument(DOCUMENT_A);
+        DocumentSnapshotStore store = new DocumentSnapshotStore(snapshotDir);
+        store.loadModel(documentFile, FileUtils.langTurtle);
+        store.save();
+
+        writeDocument(DOCUMENT_B);
+        Files.setLastModifiedTime(documentFile, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+        Model model = new DocumentSnapshotStore(snapshotDir).loadModel(documentFile, FileUtils.langTurtle);
+
+        assertEquals("B", getObjectLiteral(model));
+        assertTrue(Files.exists(snapshotDir.resolve("index.properties")));
+    }
+
+    private FileTime writeDocument(String content) throws IOException {
+        Files.write(documentFile, content.getBytes(StandardCharsets.UTF_8));
+        return Files.getLastModifiedTime(documentFile);
+    }
+
+    private String getObjectLiteral(Model model) {
+        return model.listObjects().next().asLiteral().getString();
+    }
+}
@@ -1,17 +1,28 @@
 package cz.cvut.spipes.manager;
 
 import cz.cvut.spipes.TestConstants;
+import cz.cvut.spipes.exception.SPipesException;
 import org.apache.jena.ontology.OntDocumentManager;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.rdf.model.Model;
 import org.apache.jena.util.LocationMapper;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.topbraid.spin.system.SPINModuleRegistry;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class OntoDocManagerTest {
@@ -31,6 +42,80 @@ public class OntoDocManagerTest {
         assertEquals(initialEntriesCount + 5, getLocationMapperEntriesCount(ontoDocManager));
     }
 
+    @Test
+    public void getAllFile2ModelInParallelLoadsSameModelsAsSequentially() {
+        Path dirPath = managerDirPath.resolve("recursive-discovery");
+
+        Map<String, Model> sequentialFile2Model = OntoDocManager.getAllFile2Model(dirPath, 1);
+        Map<String, Model> parallelFile2Model = OntoDocManager.getAllFile2Model(dirPath, 4);
+
+        assertEquals(sequentialFile2Model.keySet(), parallelFile2Model.keySet());
+        sequentialFile2Model.forEach(
+            (file, model) -> assertTrue(model.isIsomorphicWith(parallelFile2Model.get(file)))
+        );
+    }
+
+    @Test
+    public void getAllFile2ModelInParallelReportsAllInvalidFiles() throws IOException {
+        Path dirPath = Files.createTempDirectory("onto-doc-manager-test");
+        Files.write(dirPath.resolve("valid.ttl"), "<http://example.org/s> <http://example.org/p> 1 .".getBytes());
+        Files.write(dirPath.resolve("invalid1.ttl"), "<http://example.org/s> <http://example.org/p> .".getBytes());
+        Files.write(dirPath.resolve("invalid2.ttl"), "<http://example.org/s> .".getBytes());
+
+        SPipesException exception = assertThrows(
+            SPipesException.class,
+            () -> OntoDocManager.getAllFile2Model(dirPath, 4)
+        );
+
+        assertTrue(exception.getMessage().contains("invalid1.ttl"));
+        assertTrue(exception.getMessage().contains("invalid2.ttl"));
+        assertFalse(exception.getMessage().contains("valid.ttl,"));
+        assertEquals(2, exception.getSuppressed().length);
+    }
+
+    @Test
+    public void unregisterDocumentsRemovesOntologiesOfDeletedFile() throws IOException {
+        Path dirPath = Files.createTempDirectory("onto-doc-manager-test");
+        Path deletedFile = dirPath.resolve("deleted.ttl");
+        Files.write(deletedFile, "<http://example.org/deleted> a <http://www.w3.org/2002/07/owl#Ontology> .".getBytes());
+        Files.write(dirPath.resolve("kept.ttl"), "<http://example.org/kept> a <http://www.w3.org/2002/07/owl#Ontology> .".getBytes());
+        OntologyDocumentManager ontoDocManager = new OntoDocManager(new OntDocumentManager());
+        ontoDocManager.registerDocuments(dirPath);
+        ontoDocManager.pollChangedOntologyUris();
+
+        Files.delete(deletedFile);
+        ontoDocManager.unregisterDocuments(deletedFile);
+
+        LocationMapper locationMapper = ontoDocManager.getOntDocumentManager().getFileManager().getLocationMapper();
+        assertNull(locationMapper.getAltEntry("http://example.org/deleted"));
+        assertNotNull(locationMapper.getAltEntry("http://example.org/kept"));
+        assertEquals(Collections.singleton("http://example.org/deleted"), ontoDocManager.pollChangedOntologyUris());
+    }
+
+    @Test
+    public void unregisterDocumentsUnregistersSPINFunctionsOfDeletedFile() throws IOException {
+        Path dirPath = Files.createTempDirectory("onto-doc-manager-test");
+        Path deletedFile = dirPath.resolve("deleted-functions.ttl");
+        String functionUri = "http://example.org/deleted-functions#deleted-function";
+        Files.write(deletedFile, ("@prefix spin: <http://spinrdf.org/spin#> .\n"
+            + "@prefix sp: <http://spinrdf.org/sp#> .\n"
+            + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+            + "<http://example.org/deleted-functions> a <http://www.w3.org/2002/07/owl#Ontology> .\n"
+            + "<" + functionUri + "> a spin:Function ;\n"
+            + "  rdfs:subClassOf spin:Functions ;\n"
+            + "  spin:body [ a sp:Select ; sp:text \"SELECT ?x WHERE { BIND (1 AS ?x) }\" ] .\n").getBytes());
+        OntologyDocumentManager ontoDocManager = new OntoDocManager(new OntDocumentManager());
+        ontoDocManager.registerDocuments(dirPath);
+        OntoDocManager.registerAllSPINModules();
+        assertNotNull(SPINModuleRegistry.get().getFunction(functionUri, null));
+
+        Files.delete(deletedFile);
+        ontoDocManager.unregisterDocuments(deletedFile);
+        OntoDocManager.registerAllSPINModules();
+
+        assertNull(SPINModuleRegistry.get().getFunction(functionUri, null));
+    }
+
     @Disabled //TODO does not work in jenkins if project dir contains " "
     @Test
     public void registerDocumentsForAllSupportedFormats()  {
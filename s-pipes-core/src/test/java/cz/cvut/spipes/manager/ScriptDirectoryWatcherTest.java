@@ -0,0 +1,83 @@
+package cz.cvut.spipes.manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScriptDirectoryWatcherTest {
+
+    private Path scriptDir;
+    private Path scriptFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        scriptDir = Files.createTempDirectory("script-watcher-test");
+        scriptFile = scriptDir.resolve("script.sms.ttl");
+        Files.write(scriptFile, "# initial".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void changedFileIsPublishedUsingWatchService() throws Exception {
+        assertChangedFileIsPublished(false);
+    }
+
+    @Test
+    public void changedFileIsPublishedUsingPolling() throws Exception {
+        assertChangedFileIsPublished(true);
+    }
+
+    @Test
+    public void changesOfUnsupportedFilesAreNotPublished() throws Exception {
+        BlockingQueue<Set<Path>> publishedChanges = new ArrayBlockingQueue<>(10);
+        try (ScriptDirectoryWatcher watcher = createWatcher(publishedChanges, true)) {
+            watcher.start();
+
+            Files.write(scriptDir.resolve("notes.txt"), "ignored".getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(null, publishedChanges.poll(500, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void assertChangedFileIsPublished(boolean isPollingForced) throws Exception {
+        BlockingQueue<Set<Path>> publishedChanges = new ArrayBlockingQueue<>(10);
+        try (ScriptDirectoryWatcher watcher = createWatcher(publishedChanges, isPollingForced)) {
+            watcher.start();
+            if (isPollingForced) {
+                assertTrue(watcher.isPolling());
+            }
+
+            Files.write(scriptFile, "# modified".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(scriptFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+
+            Set<Path> changedFiles = publishedChanges.poll(30, TimeUnit.SECONDS);
+            assertNotNull(changedFiles, "Change of the script file was not published.");
+            assertEquals(Collections.singleton(scriptFile), changedFiles);
+        }
+    }
+
+    private ScriptDirectoryWatcher createWatcher(BlockingQueue<Set<Path>> publishedChanges, boolean isPollingForced) {
+        return new ScriptDirectoryWatcher(
+            Collections.singletonList(scriptDir),
+            Arrays.asList("ttl"),
+            publishedChanges::add,
+            50,
+            100,
+            isPollingForced
+        );
+    }
+}
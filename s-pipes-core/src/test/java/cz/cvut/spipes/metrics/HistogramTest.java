@@ -0,0 +1,34 @@
+package cz.cvut.spipes.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketUpperBoundIsWithinRelativeErrorOfValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 100, 12345, 1_000_000_007L, Long.MAX_VALUE}) {
+            long upperBound = Histogram.getBucketUpperBound(Histogram.getBucketIndex(value));
+
+            assertTrue(upperBound >= value, "upper bound of " + value);
+            assertTrue(upperBound - value <= value / 16, "error of " + value);
+        }
+    }
+
+    @Test
+    public void getValueAtQuantileReturnsApproximateQuantile() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500_000, histogram.getSum());
+        assertEquals(500_000, histogram.getValueAtQuantile(0.5), 500_000 / 16.0);
+        assertEquals(990_000, histogram.getValueAtQuantile(0.99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.getValueAtQuantile(1));
+    }
+}
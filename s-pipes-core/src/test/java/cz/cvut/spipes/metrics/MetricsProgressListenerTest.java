@@ -0,0 +1,80 @@
+package cz.cvut.spipes.metrics;
+
+import cz.cvut.spipes.engine.ExecutionContext;
+import cz.cvut.spipes.engine.ExecutionContextFactory;
+import cz.cvut.spipes.modules.BindWithConstantModule;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class MetricsProgressListenerTest {
+
+    private static final String MODULE_TYPE = "http://example.org/bind-with-constant";
+
+    @Test
+    public void listenerRecordsMetricsAndTraceOfPipelineExecution() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(10);
+        MetricsProgressListener listener = new MetricsProgressListener(registry);
+        ExecutionContext inputContext = ExecutionContextFactory.createContext(createModel(2));
+        BindWithConstantModule inputModule = createModule("http://example.org/input-module", createModel(3));
+        BindWithConstantModule outputModule = createModule("http://example.org/output-module", createModel(5));
+
+        listener.pipelineExecutionStarted(1);
+        listener.moduleExecutionStarted(1, "1-input", inputModule, inputContext, "1-output");
+        listener.moduleExecutionFinished(1, "1-input", inputModule);
+        listener.moduleExecutionStarted(1, "1-output", outputModule, inputModule.getOutputContext(), null);
+        listener.moduleExecutionFinished(1, "1-output", outputModule);
+        // output of the module is reused within the same pipeline execution
+        listener.moduleExecutionFinished(1, "1-input", inputModule);
+        listener.pipelineExecutionFinished(1);
+
+        Histogram outputTriples = registry.getHistogram(MODULE_TYPE, "http://example.org/input-module", ModuleMetric.outputTriples);
+        assertEquals(1, outputTriples.getCount());
+        assertEquals(3, outputTriples.getMax());
+        assertEquals(1, registry.getHistogram(MODULE_TYPE, "http://example.org/output-module", ModuleMetric.wallTime).getCount());
+
+        StringWriter exposition = new StringWriter();
+        registry.writeTextExposition(exposition);
+        assertTrue(exposition.toString().contains(
+            "spipes_module_input_triples_count{module_type=\"" + MODULE_TYPE + "\",module=\"http://example.org/output-module\"} 1"
+        ));
+
+        JsonObject trace = registry.getTrace(1).toJson();
+        JsonObject rootModule = trace.get("modules").getAsArray().get(0).getAsObject();
+        JsonObject inputModuleJson = rootModule.get("inputs").getAsArray().get(0).getAsObject();
+        assertEquals("http://example.org/output-module", rootModule.get("module").getAsString().value());
+        assertEquals("http://example.org/input-module", inputModuleJson.get("module").getAsString().value());
+        assertTrue(inputModuleJson.get("critical").getAsBoolean().value());
+        assertEquals(2, inputModuleJson.get("inputTriples").getAsNumber().value().longValue());
+    }
+
+    private static BindWithConstantModule createModule(String iri, Model outputModel) {
+        ModuleExecutionStatistics statistics = ModuleExecutionStatistics.start();
+        statistics.finish();
+
+        BindWithConstantModule module = mock(BindWithConstantModule.class);
+        given(module.getTypeURI()).willReturn(MODULE_TYPE);
+        given(module.getResource()).willReturn(ResourceFactory.createResource(iri));
+        given(module.getOutputContext()).willReturn(ExecutionContextFactory.createContext(outputModel));
+        given(module.getExecutionStatistics()).willReturn(statistics);
+        return module;
+    }
+
+    private static Model createModel(int size) {
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < size; i++) {
+            model.add(model.createResource("http://example.org/person-" + i), RDF.type, model.createResource("http://example.org/Person"));
+        }
+        return model;
+    }
+}
@@ -110,6 +110,11 @@ public class ApplyConstructModuleTest extends AbstractModuleTestHelper {
         executeConstructIterations(3,2);
     }
 
+    @Test
+    public void executeConstructThreeIterationsSemiNaiveWithoutModelReplace() {
+        executeConstructIterations(3, 3, createSimpleModel(), false, true);
+    }
+
     @Test
     public void executeConstructOneIterationWithModelReplace() {
         executeConstructIterations(1,1, createSimpleModel(), true);
@@ -130,6 +135,27 @@ public class ApplyConstructModuleTest extends AbstractModuleTestHelper {
         executeConstructIterations(2,3, createSimpleModel(), false);
     }
 
+    @Test
+    public void executeConstructManyIterations() {
+        String ns = "http://onto.fel.cvut.cz/ontologies/test/apply-construct#";
+        int chainLength = 500;
+        Model inputModel = ModelFactory.createDefaultModel();
+        inputModel.add(inputModel.getResource(ns + "start"), inputModel.getProperty(ns + "reaches"), inputModel.getResource(ns + "n0"));
+        for (int i = 0; i < chainLength; i++) {
+            inputModel.add(inputModel.getResource(ns + "n" + i), inputModel.getProperty(ns + "next"), inputModel.getResource(ns + "n" + (i + 1)));
+        }
+
+        final ApplyConstructModule m = (ApplyConstructModule) getRootModule("chain-config.ttl");
+        m.setInputContext(ExecutionContextFactory.createContext(inputModel));
+        m.loadConfiguration();
+        m.setIterationCount(2 * chainLength);
+
+        final ExecutionContext eo = m.executeSelf();
+
+        // each iteration follows the chain by one step
+        assertEquals(1 + 2 * chainLength, eo.getDefaultModel().size());
+    }
+
     @Test
     @Disabled
     public void executeConstructStopsIfIterationDoesNotProduceNewTriples() {
@@ -155,10 +181,15 @@ public class ApplyConstructModuleTest extends AbstractModuleTestHelper {
     }
 
     private void executeConstructIterations(int iterationCount, int expectedNumberOfResults, Model inputModel, boolean isReplace) {
+        executeConstructIterations(iterationCount, expectedNumberOfResults, inputModel, isReplace, false);
+    }
+
+    private void executeConstructIterations(int iterationCount, int expectedNumberOfResults, Model inputModel, boolean isReplace, boolean isSemiNaive) {
         final ApplyConstructModule m = (ApplyConstructModule) getRootModule("iteration-config.ttl");
         m.setInputContext( ExecutionContextFactory.createContext(inputModel));
         m.loadConfiguration();
         m.setReplace(isReplace);
+        m.setSemiNaive(isSemiNaive);
 
         m.setIterationCount(iterationCount);
 
@@ -0,0 +1,196 @@
+package cz.cvut.spipes.modules;
+
+import cz.cvut.spipes.constants.KBSS_MODULE;
+import cz.cvut.spipes.engine.ExecutionContext;
+import cz.cvut.spipes.engine.ExecutionContextFactory;
+import org.apache.jena.rdf.model.AnonId;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.RDFVisitor;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading of configuration of a module with 20 parameters by {@link ConfigurationBinder}
+ * with the former reflective implementation of {@link AnnotatedAbstractModule#loadConfiguration()}.
+ * <p>
+ * Run from IDE or by <code>java -cp ... cz.cvut.spipes.modules.ConfigurationBinderBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationBinderBenchmark {
+
+    private static final String NS = "http://example.org/benchmark/";
+
+    ManyParametersModule module;
+
+    @Setup
+    public void setUp() {
+        Model configModel = ModelFactory.createDefaultModel();
+        Resource moduleRes = configModel.createResource(NS + "module");
+        for (int i = 0; i < 8; i++) {
+            moduleRes.addProperty(configModel.createProperty(NS + "string-" + i), "value " + i);
+            moduleRes.addLiteral(configModel.createProperty(NS + "int-" + i), i);
+        }
+        for (int i = 0; i < 4; i++) {
+            moduleRes.addProperty(configModel.createProperty(NS + "resource-" + i), configModel.createResource(NS + "r" + i));
+        }
+        module = new ManyParametersModule();
+        module.setConfigurationResource(moduleRes);
+        module.setInputContext(ExecutionContextFactory.createEmptyContext());
+    }
+
+    @Benchmark
+    public Object binder() {
+        module.loadConfiguration();
+        return module;
+    }
+
+    @Benchmark
+    public Object reflection() {
+        loadConfigurationReflectively(module);
+        return module;
+    }
+
+    /**
+     * Former implementation of {@link AnnotatedAbstractModule#loadConfiguration()}.
+     */
+    private static void loadConfigurationReflectively(AbstractModule module) {
+        final Map<String,Field> vars = new HashMap<>();
+        for(final Field f: module.getClass().getDeclaredFields()) {
+            final Parameter p = f.getAnnotation(Parameter.class);
+            if ( p == null ) {
+                continue;
+            } else if (vars.containsKey(p.name())) {
+                throw new RuntimeException(String.format("Two parameters are named the same %s, except prefix", p.name()));
+            } else {
+                vars.put(p.name(), f);
+            }
+
+            RDFNode node = module.getEffectiveValue(ResourceFactory.createProperty(p.urlPrefix()+p.name()));
+            if ( node != null ) {
+                final Object result = node.visitWith(new RDFVisitor() {
+                    @Override
+                    public Object visitBlank(Resource r, AnonId id) {
+                        return null;
+                    }
+
+                    @Override
+                    public Object visitURI(Resource r, String uri) { return r; }
+
+                    @Override
+                    public Object visitLiteral(Literal l) { return l.getValue(); }
+                });
+                try {
+                    f.setAccessible(true);
+                    f.set(module, result);
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public static class ManyParametersModule extends AnnotatedAbstractModule {
+
+        @Parameter(urlPrefix = NS, name = "string-0", comment = "String parameter.")
+        private String string0;
+
+        @Parameter(urlPrefix = NS, name = "string-1", comment = "String parameter.")
+        private String string1;
+
+        @Parameter(urlPrefix = NS, name = "string-2", comment = "String parameter.")
+        private String string2;
+
+        @Parameter(urlPrefix = NS, name = "string-3", comment = "String parameter.")
+        private String string3;
+
+        @Parameter(urlPrefix = NS, name = "string-4", comment = "String parameter.")
+        private String string4;
+
+        @Parameter(urlPrefix = NS, name = "string-5", comment = "String parameter.")
+        private String string5;
+
+        @Parameter(urlPrefix = NS, name = "string-6", comment = "String parameter.")
+        private String string6;
+
+        @Parameter(urlPrefix = NS, name = "string-7", comment = "String parameter.")
+        private String string7;
+
+        @Parameter(urlPrefix = NS, name = "int-0", comment = "Integer parameter.")
+        private int int0;
+
+        @Parameter(urlPrefix = NS, name = "int-1", comment = "Integer parameter.")
+        private int int1;
+
+        @Parameter(urlPrefix = NS, name = "int-2", comment = "Integer parameter.")
+        private int int2;
+
+        @Parameter(urlPrefix = NS, name = "int-3", comment = "Integer parameter.")
+        private int int3;
+
+        @Parameter(urlPrefix = NS, name = "int-4", comment = "Integer parameter.")
+        private int int4;
+
+        @Parameter(urlPrefix = NS, name = "int-5", comment = "Integer parameter.")
+        private int int5;
+
+        @Parameter(urlPrefix = NS, name = "int-6", comment = "Integer parameter.")
+        private int int6;
+
+        @Parameter(urlPrefix = NS, name = "int-7", comment = "Integer parameter.")
+        private int int7;
+
+        @Parameter(urlPrefix = NS, name = "resource-0", comment = "Resource parameter.")
+        private Resource resource0;
+
+        @Parameter(urlPrefix = NS, name = "resource-1", comment = "Resource parameter.")
+        private Resource resource1;
+
+        @Parameter(urlPrefix = NS, name = "resource-2", comment = "Resource parameter.")
+        private Resource resource2;
+
+        @Parameter(urlPrefix = NS, name = "resource-3", comment = "Resource parameter.")
+        private Resource resource3;
+
+        @Override
+        ExecutionContext executeSelf() {
+            return executionContext;
+        }
+
+        @Override
+        public String getTypeURI() {
+            return KBSS_MODULE.getURI() + "benchmark-many-parameters";
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+            new OptionsBuilder().include(ConfigurationBinderBenchmark.class.getSimpleName()).build()
+        ).run();
+    }
+}
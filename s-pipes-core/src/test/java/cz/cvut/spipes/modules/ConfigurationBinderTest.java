@@ -0,0 +1,80 @@
+package cz.cvut.spipes.modules;
+
+import cz.cvut.spipes.constants.KBSS_MODULE;
+import cz.cvut.spipes.engine.ExecutionContext;
+import cz.cvut.spipes.engine.ExecutionContextFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConfigurationBinderTest {
+
+    private static final String NS = "http://example.org/";
+
+    @Test
+    public void bindSetsFieldsToValuesOfParameters() {
+        Model configModel = ModelFactory.createDefaultModel();
+        Resource moduleRes = configModel.createResource(NS + "module")
+            .addProperty(configModel.createProperty(NS + "label"), "greeting")
+            .addLiteral(configModel.createProperty(NS + "count"), 3)
+            .addProperty(configModel.createProperty(NS + "target"), configModel.createResource(NS + "target"));
+
+        ParametersModule module = new ParametersModule();
+        module.setConfigurationResource(moduleRes);
+        module.setInputContext(ExecutionContextFactory.createEmptyContext());
+        module.loadConfiguration();
+
+        assertEquals("greeting", module.label);
+        assertEquals(3, module.count);
+        assertEquals(configModel.createResource(NS + "target"), module.target);
+        assertEquals("unchanged", module.notSpecified);
+    }
+
+    @Test
+    public void bindThrowsExceptionIfValueDoesNotMatchTypeOfField() {
+        Model configModel = ModelFactory.createDefaultModel();
+        Resource moduleRes = configModel.createResource(NS + "module")
+            .addProperty(configModel.createProperty(NS + "label"), configModel.createResource(NS + "label"));
+
+        ParametersModule module = new ParametersModule();
+        module.setConfigurationResource(moduleRes);
+        module.setInputContext(ExecutionContextFactory.createEmptyContext());
+
+        assertThrows(IllegalArgumentException.class, module::loadConfiguration);
+    }
+
+    @Test
+    public void forClassReturnsSameBinderForSameClass() {
+        assertSame(ConfigurationBinder.forClass(ParametersModule.class), ConfigurationBinder.forClass(ParametersModule.class));
+    }
+
+    public static class ParametersModule extends AnnotatedAbstractModule {
+
+        @Parameter(urlPrefix = NS, name = "label", comment = "Label.")
+        private String label;
+
+        @Parameter(urlPrefix = NS, name = "count", comment = "Count.")
+        private int count;
+
+        @Parameter(urlPrefix = NS, name = "target", comment = "Target.")
+        private Resource target;
+
+        @Parameter(urlPrefix = NS, name = "not-specified", comment = "Parameter without value.")
+        private String notSpecified = "unchanged";
+
+        @Override
+        ExecutionContext executeSelf() {
+            return executionContext;
+        }
+
+        @Override
+        public String getTypeURI() {
+            return KBSS_MODULE.getURI() + "test-parameters";
+        }
+    }
+}
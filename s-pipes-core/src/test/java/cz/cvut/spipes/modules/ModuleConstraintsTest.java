@@ -0,0 +1,121 @@
+package cz.cvut.spipes.modules;
+
+import cz.cvut.spipes.constants.KBSS_MODULE;
+import cz.cvut.spipes.util.JenaUtils;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.Test;
+import org.topbraid.spin.vocabulary.SP;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModuleConstraintsTest {
+
+    @Test
+    public void forModuleReturnsCachedConstraintsSortedByQuery() {
+        Resource module = createModuleWithConstraints();
+
+        ModuleConstraints constraints = ModuleConstraints.forModule(module);
+
+        assertSame(constraints, ModuleConstraints.forModule(module));
+        assertEquals(
+            "[1 no person, 2 no city, 3 no country]",
+            constraints.getInputConstraints().toString()
+        );
+        assertTrue(constraints.getOutputConstraints().isEmpty());
+    }
+
+    @Test
+    public void validateReportsViolationsInOrderOfConstraints() {
+        List<ModuleConstraints.Constraint> constraints = ModuleConstraints.forModule(createModuleWithConstraints())
+            .getInputConstraints();
+        Model model = createValidatedModel();
+
+        List<String> sequentialViolations = ModuleConstraints.validate(constraints, model, new QuerySolutionMap(), 1, 0, 0)
+            .getViolations();
+        List<String> parallelViolations = ModuleConstraints.validate(constraints, model, new QuerySolutionMap(), 4, 0, 0)
+            .getViolations();
+
+        assertEquals(2, sequentialViolations.size());
+        assertTrue(sequentialViolations.get(0).contains("\"1 no person\""));
+        assertTrue(sequentialViolations.get(1).contains("\"3 no country\""));
+        assertEquals(sequentialViolations, parallelViolations);
+    }
+
+    @Test
+    public void validateStopsAtMaxViolations() {
+        List<ModuleConstraints.Constraint> constraints = ModuleConstraints.forModule(createModuleWithConstraints())
+            .getInputConstraints();
+
+        ModuleConstraints.ValidationResult result = ModuleConstraints.validate(
+            constraints, createValidatedModel(), new QuerySolutionMap(), 4, 1, 0
+        );
+
+        assertEquals(1, result.getViolations().size());
+        assertTrue(result.getViolations().get(0).contains("\"1 no person\""));
+        assertEquals(1, result.getValidatedCount());
+        assertEquals(2, result.getSkippedCount());
+    }
+
+    @Test
+    public void confirmViolationsDiscardsViolationsCausedBySampling() {
+        Model configModel = ModelFactory.createDefaultModel();
+        configModel.add(SP.getModel());
+        Resource module = configModel.createResource("http://example.org/module");
+        addAskConstraint(module, "# knows only persons\n"
+            + "ASK { ?a <http://example.org/knows> ?b FILTER NOT EXISTS { ?b a <http://example.org/Person> } }");
+        List<ModuleConstraints.Constraint> constraints = ModuleConstraints.forModule(module).getInputConstraints();
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < 1000; i++) {
+            Resource person = model.createResource("http://example.org/person-" + i);
+            person.addProperty(RDF.type, model.createResource("http://example.org/Person"));
+            person.addProperty(model.createProperty("http://example.org/knows"), model.createResource("http://example.org/person-" + (i + 1) % 1000));
+        }
+        Model sample = JenaUtils.sample(model, 200, 0);
+
+        ModuleConstraints.ValidationResult sampleResult = ModuleConstraints.validate(
+            constraints, sample, new QuerySolutionMap(), 1, 0, 0
+        );
+        ModuleConstraints.ValidationResult result = ModuleConstraints.confirmViolations(
+            sampleResult, model, new QuerySolutionMap(), 0
+        );
+
+        assertEquals(1, sampleResult.getViolations().size());
+        assertEquals(0, result.getViolations().size());
+        assertEquals(1, result.getValidatedCount());
+
+        model.add(model.createResource("http://example.org/person-0"), model.createProperty("http://example.org/knows"), model.createResource("http://example.org/nobody"));
+        assertEquals(1, ModuleConstraints.confirmViolations(sampleResult, model, new QuerySolutionMap(), 0).getViolations().size());
+    }
+
+    private static Resource createModuleWithConstraints() {
+        Model configModel = ModelFactory.createDefaultModel();
+        configModel.add(SP.getModel());
+        Resource module = configModel.createResource("http://example.org/module");
+        addAskConstraint(module, "# 3 no country\nASK { ?s a <http://example.org/Country> }");
+        addAskConstraint(module, "# 1 no person\nASK { ?s a <http://example.org/Person> }");
+        addAskConstraint(module, "# 2 no city\nASK { ?s a <http://example.org/City> }");
+        return module;
+    }
+
+    private static void addAskConstraint(Resource module, String queryText) {
+        Resource query = module.getModel().createResource()
+            .addProperty(RDF.type, SP.Ask)
+            .addProperty(SP.text, queryText);
+        module.addProperty(KBSS_MODULE.has_input_graph_constraint, query);
+    }
+
+    private static Model createValidatedModel() {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource("http://example.org/john"), RDF.type, model.createResource("http://example.org/Person"));
+        model.add(model.createResource("http://example.org/cz"), RDF.type, model.createResource("http://example.org/Country"));
+        return model;
+    }
+}
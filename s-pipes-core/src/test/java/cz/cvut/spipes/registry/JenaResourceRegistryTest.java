@@ -0,0 +1,51 @@
+package cz.cvut.spipes.registry;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JenaResourceRegistryTest {
+
+    private static final String CONTEXT_1 = "http://example.org/context-1";
+    private static final String CONTEXT_2 = "http://example.org/context-2";
+
+    @Test
+    public void withReplacedContextsUpdatesOnlyReplacedContexts() {
+        Model context1Model = createContextModel(CONTEXT_1);
+        Model context2Model = createContextModel(CONTEXT_2);
+        JenaResourceRegistry registry = new JenaResourceRegistry(Arrays.asList(
+            context1Model.createResource(CONTEXT_1 + "/module-a"),
+            context1Model.createResource(CONTEXT_1 + "/module-b"),
+            context2Model.createResource(CONTEXT_2 + "/module-a")
+        ));
+
+        Model newContext1Model = createContextModel(CONTEXT_1);
+        JenaResourceRegistry newRegistry = registry.withReplacedContexts(
+            Collections.singleton(CONTEXT_1),
+            Collections.singletonList(newContext1Model.createResource(CONTEXT_1 + "/module-c"))
+        );
+
+        assertEquals(Collections.singleton(CONTEXT_2), newRegistry.getContexts("module-a"));
+        assertTrue(newRegistry.getContexts("module-b").isEmpty());
+        assertEquals(CONTEXT_1 + "/module-c", newRegistry.getResourceUri("module-c", CONTEXT_1));
+
+        // original registry is not modified
+        assertEquals(2, registry.getContexts("module-a").size());
+        assertEquals(CONTEXT_1 + "/module-b", registry.getResourceUri("module-b", CONTEXT_1));
+    }
+
+    private Model createContextModel(String contextUri) {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource(contextUri), RDF.type, OWL.Ontology);
+        return model;
+    }
+}
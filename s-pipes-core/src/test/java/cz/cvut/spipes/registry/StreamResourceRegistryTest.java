@@ -0,0 +1,143 @@
+package cz.cvut.spipes.registry;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamResourceRegistryTest {
+
+    private static final long MEMORY_THRESHOLD_BYTES = 16;
+
+    private Path spillDirectory;
+
+    @BeforeEach
+    public void createSpillDirectory() throws Exception {
+        spillDirectory = Files.createTempDirectory("stream-resource-registry-test-");
+    }
+
+    @Test
+    public void registerResourceKeepsSmallContentInMemory() throws Exception {
+        StreamResourceRegistry registry = new StreamResourceRegistry(MEMORY_THRESHOLD_BYTES, spillDirectory, 0, 0);
+        byte[] content = "small".getBytes(StandardCharsets.UTF_8);
+
+        StreamResource res = registry.registerResource("id-1", new ByteArrayInputStream(content), "text/plain");
+
+        assertTrue(res instanceof StringStreamResource);
+        assertArrayEquals(content, res.getContent());
+        assertEquals(0, Files.list(spillDirectory).count());
+        assertEquals(content.length, registry.getTotalBytes());
+    }
+
+    @Test
+    public void registerResourceSpillsLargeContentToFile() throws Exception {
+        StreamResourceRegistry registry = new StreamResourceRegistry(MEMORY_THRESHOLD_BYTES, spillDirectory, 0, 0);
+        byte[] content = createContent(1000);
+
+        StreamResource res = registry.registerResource("id-1", new ByteArrayInputStream(content), "text/plain");
+
+        assertTrue(res instanceof FileStreamResource);
+        assertEquals(content.length, res.getContentLength());
+        try (InputStream is = registry.getResourceById("id-1").getInputStream()) {
+            assertArrayEquals(content, IOUtils.toByteArray(is));
+        }
+
+        registry.unregisterResource("id-1");
+
+        assertFalse(Files.exists(((FileStreamResource) res).getFile()));
+        assertNull(registry.getResourceById("id-1"));
+        assertEquals(0, registry.getTotalBytes());
+    }
+
+    @Test
+    public void getResourceByUrlUsesRegisteredPrefix() {
+        StreamResourceRegistry registry = new StreamResourceRegistry(MEMORY_THRESHOLD_BYTES, spillDirectory, 0, 0);
+        registry.registerResource("id-1", createContent(1000), "text/csv");
+
+        StreamResource res = registry.getResourceByUrl(registry.getPERSISTENT_CONTEXT_PREFIX() + "id-1");
+
+        assertNotNull(res);
+        assertEquals(registry.getPERSISTENT_CONTEXT_PREFIX() + "id-1", res.getUri());
+        assertEquals("text/csv", res.getContentType());
+        assertArrayEquals(createContent(1000), res.getContent());
+        assertNull(registry.getResourceByUrl(registry.getPERSISTENT_CONTEXT_PREFIX() + "id-2"));
+    }
+
+    @Test
+    public void evictResourcesRemovesExpiredResources() {
+        StreamResourceRegistry registry = new StreamResourceRegistry(MEMORY_THRESHOLD_BYTES, spillDirectory, 1000, 0);
+        FileStreamResource res = (FileStreamResource) registry.registerResource("id-1", createContent(100), null);
+
+        registry.evictResources(System.currentTimeMillis());
+        assertNotNull(registry.getResourceById("id-1"));
+
+        registry.evictResources(System.currentTimeMillis() + 2000);
+        assertNull(registry.getResourceById("id-1"));
+        assertFalse(Files.exists(res.getFile()));
+        assertEquals(0, registry.getTotalBytes());
+    }
+
+    @Test
+    public void evictResourcesRemovesLeastRecentlyUsedResourcesOverMaxTotalSize() throws Exception {
+        StreamResourceRegistry registry = new StreamResourceRegistry(MEMORY_THRESHOLD_BYTES, spillDirectory, 0, 250);
+        registry.registerResource("id-1", createContent(100), null);
+        Thread.sleep(5);
+        registry.registerResource("id-2", createContent(100), null);
+        Thread.sleep(5);
+        registry.registerResource("id-3", createContent(100), null);
+        Thread.sleep(5);
+        registry.getResourceById("id-1");
+
+        registry.evictResources(System.currentTimeMillis());
+
+        assertNotNull(registry.getResourceById("id-1"));
+        assertNull(registry.getResourceById("id-2"));
+        assertNotNull(registry.getResourceById("id-3"));
+        assertEquals(200, registry.getTotalBytes());
+    }
+
+    @Test
+    public void pinResourcesKeepsContentUntilLeaseIsClosed() {
+        StreamResourceRegistry registry = new StreamResourceRegistry(MEMORY_THRESHOLD_BYTES, spillDirectory, 1000, 0);
+        FileStreamResource res1 = (FileStreamResource) registry.registerResource("id-1", createContent(100), null);
+        FileStreamResource res2 = (FileStreamResource) registry.registerResource("id-2", createContent(100), null);
+        String prefix = registry.getPERSISTENT_CONTEXT_PREFIX();
+
+        StreamResourceRegistry.Lease lease = registry.pinResources(Arrays.asList(prefix + "id-1", prefix + "id-2", "other"));
+        registry.evictResources(System.currentTimeMillis() + 2000);
+        registry.unregisterResource("id-2");
+
+        assertNotNull(registry.getResourceById("id-1"));
+        assertNull(registry.getResourceById("id-2"));
+        assertTrue(Files.exists(res2.getFile()));
+
+        lease.close();
+        assertFalse(Files.exists(res2.getFile()));
+        assertEquals(100, registry.getTotalBytes());
+        registry.evictResources(System.currentTimeMillis() + 2000);
+        assertNull(registry.getResourceById("id-1"));
+        assertFalse(Files.exists(res1.getFile()));
+        assertEquals(0, registry.getTotalBytes());
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+}
@@ -12,6 +12,10 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import java.util.function.Consumer;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -64,6 +68,32 @@ public class SMScriptCollectionRepositoryTest {
 
     }
 
+    @Test
+    public void contextClosureIsReusedUntilItsDocumentChanges() throws Exception {
+
+        //given
+        given(ontoDocManager.getOntology(sampleOntologyUri)).willReturn(getSampleOntology());
+        ArgumentCaptor<Consumer<String>> listenerCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(ontoDocManager).addDocumentChangeListener(listenerCaptor.capture());
+
+        //when
+        scriptCollectionRepository.getModules(Collections.singleton(sampleOntologyUri));
+        scriptCollectionRepository.getFunctions(Collections.singleton(sampleOntologyUri));
+        listenerCaptor.getValue().accept("http://example.org/unrelated-ontology");
+        scriptCollectionRepository.getModules(Collections.singleton(sampleOntologyUri));
+
+        //then
+        verify(ontoDocManager, times(1)).getOntology(sampleOntologyUri);
+
+        //when
+        listenerCaptor.getValue().accept(sampleOntologyUri);
+        List<Resource> modules = scriptCollectionRepository.getModules(Collections.singleton(sampleOntologyUri));
+
+        //then
+        verify(ontoDocManager, times(2)).getOntology(sampleOntologyUri);
+        assertEquals(modules.size(), 3);
+    }
+
     @Disabled
     @Test
     public void getResource() throws Exception {
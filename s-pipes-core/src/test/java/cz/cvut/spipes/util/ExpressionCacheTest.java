@@ -0,0 +1,100 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.util.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.topbraid.spin.system.SPINModuleRegistry;
+import org.topbraid.spin.util.SPINExpressions;
+import org.topbraid.spin.vocabulary.SP;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExpressionCacheTest {
+
+    @Test
+    public void getExpressionFoldsConstantExpression() {
+        ExpressionCache cache = new ExpressionCache();
+        Model model = createSpinModel();
+        RDFNode node = SPINExpressions.parseExpression("CONCAT(\"Hello \", \"James\")", model);
+
+        ExpressionCache.CompiledExpression expression = cache.getExpression(node);
+
+        assertTrue(expression.isConstant());
+        assertEquals("Hello James", expression.evaluate(model, null).asLiteral().getString());
+    }
+
+    @Test
+    public void getExpressionReturnsCachedExpressionEvaluatedAgainstBindings() {
+        ExpressionCache cache = new ExpressionCache();
+        Model model = createSpinModel();
+        RDFNode node = SPINExpressions.parseExpression("CONCAT(\"Hello \", ?name)", model);
+
+        ExpressionCache.CompiledExpression expression = cache.getExpression(node);
+
+        assertSame(expression, cache.getExpression(node));
+        assertFalse(expression.isConstant());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals("Hello James", expression.evaluate(model, bindName("James")).asLiteral().getString());
+        assertEquals("Hello Jane", expression.evaluate(model, bindName("Jane")).asLiteral().getString());
+        assertNull(expression.evaluate(model, new QuerySolutionMap()));
+    }
+
+    @Test
+    public void getExpressionReturnsNullForNodeThatIsNotExpression() {
+        ExpressionCache cache = new ExpressionCache();
+        Model model = createSpinModel();
+
+        assertNull(cache.getExpression(model.createTypedLiteral(42)));
+        assertNull(cache.getExpression(model.createResource().addProperty(SP.text, "not an expression")));
+    }
+
+    @Test
+    public void getExpressionEvaluatesCustomSpinFunction() throws UnsupportedEncodingException {
+        Model funcDefModel = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        funcDefModel.read(getClass().getResourceAsStream("/spin/spin-function.spin.ttl"), null, FileUtils.langTurtle);
+        SPINModuleRegistry.get().registerAll(funcDefModel, null);
+
+        Model funcCallModel = createSpinModel();
+        funcCallModel.read(getClass().getResourceAsStream("/spin/spin-function-call.ttl"), null, FileUtils.langTurtle);
+        Resource call = funcCallModel.listSubjectsWithProperty(SP.arg1).nextResource();
+
+        QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("repositoryUrl", ResourceFactory.createPlainLiteral("http://repository.org"));
+        bindings.add("reportGraphId", ResourceFactory.createPlainLiteral("http://graphid.org"));
+
+        RDFNode node = new ExpressionCache().getExpression(call).evaluate(funcCallModel, bindings);
+
+        assertEquals(
+            "http://repository.org?default-graph-uri=" + URLEncoder.encode("http://graphid.org", "UTF-8"),
+            node.toString()
+        );
+    }
+
+    // SPIN expressions are recognized only in models that import SPIN vocabulary
+    private static Model createSpinModel() {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(SP.getModel());
+        model.setNsPrefix("sp", SP.NS);
+        return model;
+    }
+
+    private static QuerySolutionMap bindName(String name) {
+        QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("name", ResourceFactory.createPlainLiteral(name));
+        return bindings;
+    }
+}
@@ -5,10 +5,19 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.util.FileUtils;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
 public class JenaUtilsTest {
@@ -42,4 +51,141 @@ public class JenaUtilsTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void createUnionContainsSameStatementsAsCopiedUnion() {
+        Model model1 = createExampleModel("a", "b");
+        Model model2 = createExampleModel("b", "c");
+        Model model3 = createExampleModel("a", "c", "d");
+
+        Model copiedUnion = ModelFactory.createDefaultModel().add(model1).add(model2).add(model3);
+        Model union = JenaUtils.createUnion(model1, model2, model3);
+
+        assertEquals(copiedUnion.size(), union.size());
+        assertEquals(copiedUnion.size(), union.listStatements().toList().size());
+        assertEquals(1, union.listStatements(model1.createResource("http://example.org/c"), null, (String) null).toList().size());
+        assertTrue(union.isIsomorphicWith(copiedUnion));
+    }
+
+    @Test
+    public void createUnionFlattensNestedUnions() {
+        Model model1 = createExampleModel("a");
+        Model model2 = createExampleModel("a", "b");
+        Model model3 = createExampleModel("c");
+
+        Model union = JenaUtils.createUnion(JenaUtils.createUnion(model1, model2), model3);
+
+        IndexedUnionGraph unionGraph = (IndexedUnionGraph) ((CopyOnWriteGraph) union.getGraph()).getReadGraph();
+        assertEquals(3, unionGraph.getMemberGraphs().size());
+        assertEquals(3, union.size());
+    }
+
+    @Test
+    public void createUnionBoundsMemberGraphsWhenUsedAsAccumulator() {
+        Model accumulatedModel = ModelFactory.createDefaultModel();
+        for (int i = 0; i < 2000; i++) {
+            accumulatedModel = JenaUtils.createUnion(accumulatedModel, createExampleModel("r" + i, "r" + (i + 1)));
+
+            Graph readGraph = ((CopyOnWriteGraph) accumulatedModel.getGraph()).getReadGraph();
+            if (readGraph instanceof IndexedUnionGraph) {
+                assertTrue(((IndexedUnionGraph) readGraph).getMemberGraphs().size() <= JenaUtils.MAX_UNION_MEMBER_GRAPHS);
+            }
+        }
+
+        assertEquals(2001, accumulatedModel.size());
+        assertEquals(2001, accumulatedModel.listStatements().toList().size());
+    }
+
+    @Test
+    public void createUnionDoesNotModifyMergedModels() {
+        Model model1 = createExampleModel("a");
+        Model model2 = createExampleModel("b");
+        Resource newResource = model1.createResource("http://example.org/new");
+
+        Model union = JenaUtils.createUnion(model1, model2);
+        union.add(newResource, RDF.type, RDFS.Resource);
+        union.removeAll(model1.createResource("http://example.org/a"), null, null);
+
+        Model expectedUnion = createExampleModel("b");
+        expectedUnion.add(newResource, RDF.type, RDFS.Resource);
+
+        assertTrue(union.isIsomorphicWith(expectedUnion));
+        assertTrue(model1.isIsomorphicWith(createExampleModel("a")));
+        assertTrue(model2.isIsomorphicWith(createExampleModel("b")));
+        assertFalse(model1.contains(newResource, RDF.type));
+    }
+
+    @Test
+    public void sampleSelectsAllStatementsOfSampledSubjectsDeterministically() {
+        Model model = ModelFactory.createDefaultModel();
+        for (int i = 0; i < 1000; i++) {
+            Resource r = model.createResource("http://example.org/" + i);
+            r.addProperty(RDFS.label, "label " + i);
+            r.addProperty(RDF.type, RDFS.Resource);
+        }
+
+        Model sample = JenaUtils.sample(model, 200, 42);
+
+        assertTrue(sample.size() > 100 && sample.size() < 300, "Unexpected size of sample " + sample.size());
+        sample.listSubjects().forEachRemaining(s -> assertEquals(2, sample.listStatements(s, null, (RDFNode) null).toList().size()));
+        assertTrue(sample.isIsomorphicWith(JenaUtils.sample(model, 200, 42)));
+        assertFalse(sample.isIsomorphicWith(JenaUtils.sample(model, 200, 43)));
+        assertSame(model, JenaUtils.sample(model, 2000, 42));
+    }
+
+    @Test
+    public void sampleSelectsBlankNodeSubjectsDeterministically() {
+        StringBuilder turtle = new StringBuilder("@prefix ex: <http://example.org/> .\n");
+        for (int i = 0; i < 500; i++) {
+            turtle.append("ex:r").append(i).append(" ex:address [ ex:street \"street ").append(i).append("\" ] .\n");
+            turtle.append("[] ex:value ").append(i).append(" .\n");
+        }
+
+        Model model = JenaUtils.readModelFromString(turtle.toString(), FileUtils.langTurtle);
+        Model sample = JenaUtils.sample(model, 500, 42);
+
+        assertTrue(sample.size() > 250 && sample.size() < 750, "Unexpected size of sample " + sample.size());
+        Model reparsedModel = JenaUtils.readModelFromString(turtle.toString(), FileUtils.langTurtle);
+        assertTrue(sample.isIsomorphicWith(JenaUtils.sample(reparsedModel, 500, 42)));
+        // address is sampled together with the resource referencing it
+        Property address = sample.createProperty("http://example.org/address");
+        Property street = sample.createProperty("http://example.org/street");
+        assertEquals(
+            sample.listSubjectsWithProperty(address).toList().size(),
+            sample.listSubjectsWithProperty(street).toList().size()
+        );
+    }
+
+    @Test
+    public void sampleSelectsLongListTogetherWithItsSubject() {
+        Model model = ModelFactory.createDefaultModel();
+        RDFNode[] items = new RDFNode[20_000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = model.createTypedLiteral(i);
+        }
+        Property property = model.createProperty("http://example.org/items");
+        model.add(model.createResource("http://example.org/list-holder"), property, model.createList(items));
+        for (int i = 0; i < 100_000; i++) {
+            model.add(model.createResource("http://example.org/" + i), RDFS.label, "label " + i);
+        }
+
+        for (long seed = 0; seed < 5; seed++) {
+            Model sample = JenaUtils.sample(model, 20_000, seed);
+
+            long listStatementCount = sample.listStatements(null, RDF.first, (RDFNode) null).toList().size();
+            if (sample.contains(null, property)) {
+                assertEquals(items.length, listStatementCount);
+            } else {
+                assertEquals(0, listStatementCount);
+            }
+        }
+    }
+
+    private Model createExampleModel(String... localNames) {
+        Model model = ModelFactory.createDefaultModel();
+        Arrays.stream(localNames).forEach(
+            n -> model.add(model.createResource("http://example.org/" + n), RDFS.label, n)
+        );
+        return model;
+    }
+
+}
@@ -0,0 +1,96 @@
+package cz.cvut.spipes.util;
+
+import cz.cvut.spipes.config.SnapshotFormat;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ModelSnapshotWriterTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    public void createTempDir() throws Exception {
+        tempDir = Files.createTempDirectory("model-snapshot-writer-test-");
+    }
+
+    @Test
+    public void writeStoresModelsWithSameContentOnce() throws Exception {
+        ModelSnapshotWriter writer = new ModelSnapshotWriter(tempDir, SnapshotFormat.thrift, true);
+        Model model = createModel("http://example.org/john");
+
+        Path file = writer.write(model, "snapshot-");
+
+        assertEquals(file, writer.write(createModel("http://example.org/john"), "snapshot-"));
+        assertNotEquals(file, writer.write(createModel("http://example.org/jane"), "snapshot-"));
+        assertEquals(2, Files.list(tempDir).count());
+    }
+
+    @Test
+    public void writeRemembersOnlyLeastRecentlyUsedContents() throws Exception {
+        ModelSnapshotWriter writer = new ModelSnapshotWriter(tempDir, SnapshotFormat.thrift, true, 2);
+        Path file = writer.write(createModel("http://example.org/john"), "snapshot-");
+        writer.write(createModel("http://example.org/jane"), "snapshot-");
+        writer.write(createModel("http://example.org/jack"), "snapshot-");
+
+        assertNotEquals(file, writer.write(createModel("http://example.org/john"), "snapshot-"));
+        assertEquals(4, Files.list(tempDir).count());
+    }
+
+    @Test
+    public void writeLinksNamedFilesWithSameContent() throws Exception {
+        ModelSnapshotWriter writer = new ModelSnapshotWriter(tempDir, SnapshotFormat.ntriplesGzip, true);
+        Path inputFile = tempDir.resolve("module-1-input.nt.gz");
+        Path outputFile = tempDir.resolve("module-1-output.nt.gz");
+
+        writer.write(createModel("http://example.org/john"), inputFile);
+        writer.write(createModel("http://example.org/john"), outputFile);
+
+        assertTrue(Files.isSameFile(inputFile, outputFile) || Files.size(inputFile) == Files.size(outputFile));
+        assertTrue(RDFDataMgr.loadModel(outputFile.toString()).isIsomorphicWith(createModel("http://example.org/john")));
+    }
+
+    @Test
+    public void writeProducesReadableFilesInAllFormats() throws Exception {
+        Model model = createModel("http://example.org/john");
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            Path file = new ModelSnapshotWriter(tempDir, format, false).write(model, "snapshot-");
+
+            assertTrue(file.toString().endsWith(format.getFileExtension()));
+            assertTrue(RDFDataMgr.loadModel(file.toString()).isIsomorphicWith(model), format.name());
+        }
+    }
+
+    @Test
+    public void computeContentHashDoesNotDependOnOrderOfStatements() {
+        Model model = createModel("http://example.org/john");
+        Model reversedModel = ModelFactory.createDefaultModel();
+        model.listStatements().toList().stream()
+            .sorted((s1, s2) -> s2.toString().compareTo(s1.toString()))
+            .forEach(reversedModel::add);
+
+        assertEquals(
+            ModelSnapshotWriter.computeContentHash(model.getGraph()),
+            ModelSnapshotWriter.computeContentHash(reversedModel.getGraph())
+        );
+    }
+
+    private static Model createModel(String personUri) {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource(personUri)
+            .addProperty(RDF.type, model.createResource("http://example.org/Person"))
+            .addProperty(RDFS.label, "person");
+        return model;
+    }
+}
@@ -0,0 +1,51 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.query.Query;
+import org.apache.jena.shared.PrefixMapping;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class QueryCacheTest {
+
+    private static final String QUERY = "SELECT * WHERE { ?s ?p ?o }";
+
+    @Test
+    public void getQueryReturnsCachedQueryForSameTextAndPrefixes() {
+        QueryCache cache = new QueryCache(10);
+
+        Query query = cache.getQuery(QUERY);
+
+        assertSame(query, cache.getQuery(QUERY));
+        assertNotSame(query, cache.getQuery(QUERY, PrefixMapping.Standard));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void getQueryEvictsLeastRecentlyUsedQuery() {
+        QueryCache cache = new QueryCache(2);
+
+        Query query1 = cache.getQuery(QUERY + " LIMIT 1");
+        cache.getQuery(QUERY + " LIMIT 2");
+        cache.getQuery(QUERY + " LIMIT 1");
+        cache.getQuery(QUERY + " LIMIT 3");
+
+        assertEquals(2, cache.size());
+        assertSame(query1, cache.getQuery(QUERY + " LIMIT 1"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void invalidateRemovesCachedQueries() {
+        QueryCache cache = new QueryCache(10);
+
+        Query query = cache.getQuery(QUERY);
+        cache.invalidate();
+
+        assertEquals(0, cache.size());
+        assertNotSame(query, cache.getQuery(QUERY));
+    }
+}
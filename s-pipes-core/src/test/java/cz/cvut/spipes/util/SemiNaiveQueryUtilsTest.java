@@ -0,0 +1,109 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SemiNaiveQueryUtilsTest {
+
+    private static final String NS = "http://example.org/";
+
+    private static final String TRANSITIVE_QUERY = "PREFIX : <" + NS + ">\n" +
+        "CONSTRUCT { ?x :p ?z } WHERE { ?x :p ?y . ?y :p ?z . FILTER(?x != ?z) }";
+
+    @Test
+    public void isRewritableReturnsTrueForBasicGraphPatternWithFilter() {
+        assertTrue(SemiNaiveQueryUtils.isRewritable(QueryFactory.create(TRANSITIVE_QUERY)));
+    }
+
+    @Test
+    public void isRewritableReturnsFalseForNonMonotonicQueries() {
+        assertFalse(SemiNaiveQueryUtils.isRewritable(createQuery("?x :p ?y . OPTIONAL { ?y :p ?z }")));
+        assertFalse(SemiNaiveQueryUtils.isRewritable(createQuery("?x :p ?y . FILTER NOT EXISTS { ?y :p ?z }")));
+        assertFalse(SemiNaiveQueryUtils.isRewritable(createQuery("?x :p+ ?z")));
+    }
+
+    @Test
+    public void createDeltaQueriesCreatesOneQueryPerTriplePattern() {
+        List<Query> deltaQueries = SemiNaiveQueryUtils.createDeltaQueries(QueryFactory.create(TRANSITIVE_QUERY));
+
+        assertEquals(2, deltaQueries.size());
+        assertTrue(deltaQueries.get(0).toString().contains(SemiNaiveQueryUtils.DELTA_GRAPH_URI));
+        assertFalse(deltaQueries.get(0).toString().contains(SemiNaiveQueryUtils.PREVIOUS_GRAPH_URI));
+        assertTrue(deltaQueries.get(1).toString().contains(SemiNaiveQueryUtils.PREVIOUS_GRAPH_URI));
+    }
+
+    @Test
+    public void semiNaiveIterationsComputeSameClosureAsNaiveIterations() {
+        Model data = createChain(6);
+        Query query = QueryFactory.create(TRANSITIVE_QUERY);
+        List<Query> deltaQueries = SemiNaiveQueryUtils.createDeltaQueries(query);
+
+        Model naiveModel = ModelFactory.createDefaultModel().add(data);
+        long added;
+        do {
+            Model constructed = QueryUtils.execConstruct(query, naiveModel, new QuerySolutionMap());
+            long size = naiveModel.size();
+            naiveModel.add(constructed);
+            added = naiveModel.size() - size;
+        } while (added > 0);
+
+        Model semiNaiveModel = ModelFactory.createDefaultModel().add(data);
+        Model previousModel = ModelFactory.createDefaultModel();
+        Model deltaModel = ModelFactory.createDefaultModel().add(data);
+        while (!deltaModel.isEmpty()) {
+            Dataset dataset = DatasetFactory.create(semiNaiveModel);
+            dataset.addNamedModel(SemiNaiveQueryUtils.DELTA_GRAPH_URI, deltaModel);
+            dataset.addNamedModel(SemiNaiveQueryUtils.PREVIOUS_GRAPH_URI, previousModel);
+
+            Model constructed = ModelFactory.createDefaultModel();
+            deltaQueries.forEach(q -> constructed.add(QueryUtils.execConstruct(q, dataset, new QuerySolutionMap())));
+
+            previousModel = ModelFactory.createDefaultModel().add(semiNaiveModel);
+            deltaModel = constructed.difference(semiNaiveModel);
+            semiNaiveModel.add(deltaModel);
+        }
+
+        assertEquals(6 * 5 / 2, naiveModel.size());
+        assertTrue(naiveModel.isIsomorphicWith(semiNaiveModel));
+    }
+
+    @Test
+    public void mayMatchReturnsFalseIfNoTriplePatternMatchesDelta() {
+        Query query = QueryFactory.create(TRANSITIVE_QUERY);
+        Model deltaModel = ModelFactory.createDefaultModel();
+        Resource a = deltaModel.createResource(NS + "a");
+
+        deltaModel.add(a, deltaModel.createProperty(NS + "q"), a);
+        assertFalse(SemiNaiveQueryUtils.mayMatch(query, deltaModel));
+
+        deltaModel.add(a, deltaModel.createProperty(NS + "p"), a);
+        assertTrue(SemiNaiveQueryUtils.mayMatch(query, deltaModel));
+    }
+
+    private Query createQuery(String pattern) {
+        return QueryFactory.create("PREFIX : <" + NS + ">\nCONSTRUCT { ?x :p ?y } WHERE { " + pattern + " }");
+    }
+
+    private Model createChain(int length) {
+        Model model = ModelFactory.createDefaultModel();
+        Property p = model.createProperty(NS + "p");
+        for (int i = 0; i < length - 1; i++) {
+            model.add(model.createResource(NS + i), p, model.createResource(NS + (i + 1)));
+        }
+        return model;
+    }
+}
@@ -0,0 +1,136 @@
+package cz.cvut.spipes.util;
+
+import cz.cvut.spipes.engine.VariablesBinding;
+import cz.cvut.spipes.registry.StreamResourceRegistry;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServiceResultCacheTest {
+
+    private static final String FUNCTION_URI = "http://example.org/function";
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("service-result-cache-test-");
+    }
+
+    @Test
+    public void computeKeyDependsOnFunctionBindingInputAndScriptsVersion() throws Exception {
+        String key = ServiceResultCache.computeKey(FUNCTION_URI, createBinding("x", "1", "y", "2"), createModel("John"), 1);
+
+        assertEquals(key, ServiceResultCache.computeKey(FUNCTION_URI, createBinding("y", "2", "x", "1"), createModel("John"), 1));
+        assertNotEquals(key, ServiceResultCache.computeKey(FUNCTION_URI + "2", createBinding("x", "1", "y", "2"), createModel("John"), 1));
+        assertNotEquals(key, ServiceResultCache.computeKey(FUNCTION_URI, createBinding("x", "1", "y", "3"), createModel("John"), 1));
+        assertNotEquals(key, ServiceResultCache.computeKey(FUNCTION_URI, createBinding("x", "1", "y", "2"), createModel("Jane"), 1));
+        assertNotEquals(key, ServiceResultCache.computeKey(FUNCTION_URI, createBinding("x", "1", "y", "2"), createModel("John"), 2));
+    }
+
+    @Test
+    public void computeKeyUsesContentOfStreamResources() throws Exception {
+        StreamResourceRegistry registry = StreamResourceRegistry.getInstance();
+        String prefix = registry.getPERSISTENT_CONTEXT_PREFIX();
+        registry.registerResource("service-result-cache-test-1", "a,b".getBytes(StandardCharsets.UTF_8), "text/csv");
+        registry.registerResource("service-result-cache-test-2", "a,b".getBytes(StandardCharsets.UTF_8), "text/csv");
+        registry.registerResource("service-result-cache-test-3", "c,d".getBytes(StandardCharsets.UTF_8), "text/csv");
+        try {
+            String key = computeKeyForResource(prefix + "service-result-cache-test-1");
+
+            assertEquals(key, computeKeyForResource(prefix + "service-result-cache-test-2"));
+            assertNotEquals(key, computeKeyForResource(prefix + "service-result-cache-test-3"));
+        } finally {
+            registry.unregisterResource("service-result-cache-test-1");
+            registry.unregisterResource("service-result-cache-test-2");
+            registry.unregisterResource("service-result-cache-test-3");
+        }
+    }
+
+    @Test
+    public void getResultReturnsResultUntilItExpires() throws Exception {
+        ServiceResultCache cache = new ServiceResultCache(10, directory);
+        Model model = createModel("John");
+
+        cache.putResult("key-1", model, 60_000);
+        cache.putResult("key-2", model, -1);
+
+        ServiceResultCache.CachedResult result = cache.getResult("key-1");
+        assertNotNull(result);
+        assertEquals("W/\"key-1\"", result.getETag());
+        assertTrue(cache.getModel(result).isIsomorphicWith(model));
+        assertNull(cache.getResult("key-2"));
+        assertNull(cache.getResult("key-3"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, Files.list(directory).count());
+    }
+
+    @Test
+    public void getModelReturnsNullIfFileOfResultWasDeleted() throws Exception {
+        ServiceResultCache cache = new ServiceResultCache(0, directory);
+        cache.putResult("key-1", createModel("John"), 60_000);
+        ServiceResultCache.CachedResult result = cache.getResult("key-1");
+
+        cache.putResult("key-1", createModel("Jane"), 60_000);
+
+        assertNull(cache.getModel(result));
+        assertTrue(cache.getModel(cache.getResult("key-1")).isIsomorphicWith(createModel("Jane")));
+    }
+
+    @Test
+    public void putResultDeletesFileOfReplacedResult() throws Exception {
+        ServiceResultCache cache = new ServiceResultCache(10, directory);
+
+        cache.putResult("key-1", createModel("John"), 60_000);
+        cache.putResult("key-1", createModel("Jane"), 60_000);
+
+        assertEquals(1, Files.list(directory).count());
+        assertTrue(cache.getModel(cache.getResult("key-1")).isIsomorphicWith(createModel("Jane")));
+    }
+
+    @Test
+    public void getModelReadsResultsEvictedFromMemoryFromDisk() throws Exception {
+        ServiceResultCache cache = new ServiceResultCache(1, directory);
+
+        cache.putResult("key-1", createModel("John"), 60_000);
+        cache.putResult("key-2", createModel("Jane"), 60_000);
+
+        assertTrue(cache.getModel(cache.getResult("key-1")).isIsomorphicWith(createModel("John")));
+        assertTrue(cache.getModel(cache.getResult("key-2")).isIsomorphicWith(createModel("Jane")));
+    }
+
+    private static String computeKeyForResource(String url) throws Exception {
+        return ServiceResultCache.computeKey(
+            FUNCTION_URI,
+            new VariablesBinding("file", ResourceFactory.createPlainLiteral(url)),
+            ModelFactory.createDefaultModel(),
+            1
+        );
+    }
+
+    private static VariablesBinding createBinding(String var1, String value1, String var2, String value2) {
+        VariablesBinding binding = new VariablesBinding(var1, ResourceFactory.createPlainLiteral(value1));
+        binding.add(var2, ResourceFactory.createPlainLiteral(value2));
+        return binding;
+    }
+
+    private static Model createModel(String label) {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource("http://example.org/person"), RDFS.label, label);
+        return model;
+    }
+}
@@ -0,0 +1,114 @@
+package cz.cvut.spipes.util;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamingModelWriterTest {
+
+    private static final String NS = "http://example.org/";
+
+    @Test
+    public void writeProducesReadableOutputInAllStreamableLanguages() {
+        Model model = createModel(100);
+        for (Lang lang : new Lang[]{Lang.NTRIPLES, Lang.NQUADS, Lang.TURTLE, Lang.RDFTHRIFT}) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+            StreamingModelWriter.write(model, os, lang, 10);
+
+            Model readModel = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(readModel, new ByteArrayInputStream(os.toByteArray()), lang);
+            assertTrue(readModel.isIsomorphicWith(model), lang.getLabel());
+        }
+    }
+
+    @Test
+    public void writeRejectsNonStreamableLanguage() {
+        assertFalse(StreamingModelWriter.isStreamable(Lang.RDFXML));
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> StreamingModelWriter.write(createModel(1), new ByteArrayOutputStream(), Lang.RDFXML)
+        );
+    }
+
+    @Test
+    public void writeFlushesAfterEveryFlushIntervalTriples() {
+        Model model = createModel(100_000);
+        long tripleCount = model.size();
+        long expectedFlushCount = tripleCount / StreamingModelWriter.DEFAULT_FLUSH_INTERVAL;
+        for (Lang lang : new Lang[]{Lang.NTRIPLES, Lang.TURTLE, Lang.RDFTHRIFT}) {
+            FlushCountingOutputStream os = new FlushCountingOutputStream();
+
+            StreamingModelWriter.write(model, os, lang);
+
+            // the first flush carries roughly flushInterval triples, allow twice their average size
+            long bytesPerTriple = os.writtenCount / tripleCount;
+            assertTrue(
+                os.firstFlushWrittenCount > 0
+                    && os.firstFlushWrittenCount <= 2 * StreamingModelWriter.DEFAULT_FLUSH_INTERVAL * (bytesPerTriple + 1),
+                lang.getLabel() + ": " + os.firstFlushWrittenCount + " bytes written before the first flush, "
+                    + os.writtenCount + " bytes in total"
+            );
+            assertTrue(
+                os.nonEmptyFlushCount >= expectedFlushCount / 2,
+                lang.getLabel() + ": " + os.nonEmptyFlushCount + " flushes of new content, expected about "
+                    + expectedFlushCount
+            );
+        }
+    }
+
+    private static Model createModel(int resourceCount) {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("ex", NS);
+        for (int i = 0; i < resourceCount; i++) {
+            Resource r = model.createResource(NS + "r" + i);
+            model.add(r, RDF.type, model.createResource(NS + "C" + (i % 10)));
+            model.add(r, RDFS.label, "r" + i);
+        }
+        return model;
+    }
+
+    /**
+     * Counts flushes that send new content to the client.
+     */
+    private static class FlushCountingOutputStream extends OutputStream {
+        private long writtenCount;
+        private long flushedCount;
+        private long firstFlushWrittenCount = -1;
+        private int nonEmptyFlushCount;
+
+        @Override
+        public void write(int b) {
+            writtenCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writtenCount += len;
+        }
+
+        @Override
+        public void flush() {
+            if (writtenCount > flushedCount) {
+                if (firstFlushWrittenCount < 0) {
+                    firstFlushWrittenCount = writtenCount;
+                }
+                nonEmptyFlushCount++;
+                flushedCount = writtenCount;
+            }
+        }
+    }
+}
@@ -30,8 +30,8 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Arrays;
 
@@ -63,19 +63,24 @@ public class ImportE5XModule extends AbstractModule {
 
         EccairsReport r = null;
 
-        final NamedStream e5xResourceStream = new NamedStream(e5xResource.getUri()+".e5x", new ByteArrayInputStream(e5xResource.getContent()));
-
-        try {
+        try (InputStream e5xInputStream = e5xResource.getInputStream()) {
+            final NamedStream e5xResourceStream = new NamedStream(e5xResource.getUri()+".e5x", e5xInputStream);
             if ("text/xml".equals(e5xResource.getContentType()) || "application/xml".equals(e5xResource.getContentType())) {
                 LOG.debug("File considered XML (Content Type: {})", e5xResource.getContentType());
-                LOG.debug("- content length: {}, content (as string) : ", e5xResource.getContent().length, new String(e5xResource.getContent()));
+                LOG.debug("- content length: {}", e5xResource.getContentLength());
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("- content (as string): {}", new String(e5xResource.getContent()));
+                }
                 // create factory to parse eccairs values
                 final E5XXMLParser e5xXMLParser = new E5XXMLParser(eaf);
                 e5xXMLParser.parseDocument(e5xResourceStream);
                 r = e5xXMLParser.getReport();
             } else if ("application/zip".equals(e5xResource.getContentType()) || "application/octet-stream".equals(e5xResource.getContentType()) || e5xResource.getContentType() == null || e5xResource.getContentType().isEmpty()) {
                 LOG.debug("File considered ZIP (Content Type: {})", e5xResource.getContentType());
-                LOG.debug("- content length: {}, content (as byte array): {}",e5xResource.getContent().length, Arrays.toString(e5xResource.getContent()));
+                LOG.debug("- content length: {}", e5xResource.getContentLength());
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("- content (as byte array): {}", Arrays.toString(e5xResource.getContent()));
+                }
                 // ZIP by default
                 final E5XMLLoader loader = new E5XMLLoader(e5xResourceStream, eaf);
                 LOG.debug("- loader created based on resource stream name:{}, email:{}, stream:{}, closed: {}", e5xResourceStream.getName(), e5xResourceStream.getEmailId(), e5xResourceStream.getContent(), e5xResourceStream.isCloased());
@@ -6,7 +6,6 @@ import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.modules.annotations.SPipesModule;
 import cz.cvut.spipes.sutime.AnnforModel;
 import cz.cvut.spipes.sutime.DescriptorModel;
-import cz.cvut.spipes.util.JenaUtils;
 import cz.cvut.spipes.util.QueryUtils;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -146,11 +145,11 @@ public class SUTimeModuleNew extends AbstractModule {
 
                 Model constructedModel = analyzeModel(queriedModel);
 
-                inferredInSingleIterationModel = JenaUtils.createUnion(inferredInSingleIterationModel, constructedModel);
+                inferredInSingleIterationModel.add(constructedModel);
             }
 
             previousInferredModel = inferredModel;
-            inferredModel = JenaUtils.createUnion(inferredModel, inferredInSingleIterationModel);
+            inferredModel = ModelFactory.createDefaultModel().add(inferredModel).add(inferredInSingleIterationModel);
         }
 
         return createOutputContext(isReplace, inferredModel);
@@ -4,6 +4,7 @@ import cz.cvut.spipes.constants.KBSS_MODULE;
 import cz.cvut.spipes.constants.SML;
 import cz.cvut.spipes.engine.ExecutionContext;
 import cz.cvut.spipes.util.JenaUtils;
+import cz.cvut.spipes.util.QueryCache;
 import cz.cvut.spipes.util.QueryUtils;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryFactory;
@@ -13,7 +14,6 @@ import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.topbraid.spin.arq.ARQFactory;
 import org.topbraid.spin.model.Construct;
 import org.topbraid.spin.system.SPINModuleRegistry;
 import org.topbraid.spin.vocabulary.SP;
@@ -146,9 +146,14 @@ public abstract class ApplyConstructAbstractModule extends AnnotatedAbstractModu
                     Query query;
                     if (parseText) {
                         String queryStr = spinConstructRes.getProperty(SP.text).getLiteral().getString();
-                        query = QueryFactory.create(substituteQueryMarkers(count, queryStr));
+                        String substitutedQueryStr = substituteQueryMarkers(count, queryStr);
+                        // substituted queries (e.g. with chunk of values or page offset) differ in each iteration,
+                        // caching them would only evict stable queries from the cache
+                        query = substitutedQueryStr.equals(queryStr)
+                            ? QueryCache.get().getQuery(queryStr)
+                            : QueryFactory.create(substitutedQueryStr);
                     } else {
-                        query = ARQFactory.get().createQuery(spinConstructRes);
+                        query = QueryCache.get().getQuery(spinConstructRes);
                     }
 
                     Model constructedModel = QueryUtils.execConstruct(
@@ -157,11 +162,12 @@ public abstract class ApplyConstructAbstractModule extends AnnotatedAbstractModu
                         currentIterationBindings
                     );
 
-                    inferredInSingleIterationModel = JenaUtils.createUnion(inferredInSingleIterationModel, constructedModel);
+                    inferredInSingleIterationModel.add(constructedModel);
                 }
 
+                // materialized, so that unions do not nest over iterations (there may be thousands of them)
                 previousInferredModel = inferredModel;
-                inferredModel = JenaUtils.createUnion(inferredModel, inferredInSingleIterationModel);
+                inferredModel = ModelFactory.createDefaultModel().add(inferredModel).add(inferredInSingleIterationModel);
             }
         }
 
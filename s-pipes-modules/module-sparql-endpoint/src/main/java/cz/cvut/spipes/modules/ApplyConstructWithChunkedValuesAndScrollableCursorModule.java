@@ -8,6 +8,7 @@ import cz.cvut.spipes.recursion.ChunkedValuesProvider;
 import cz.cvut.spipes.recursion.CombinedQueryTemplateRecursionProvider;
 import cz.cvut.spipes.recursion.QueryTemplateRecursionProvider;
 import cz.cvut.spipes.recursion.ScrollableCursorProvider;
+import cz.cvut.spipes.util.QueryCache;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
@@ -19,7 +20,6 @@ import org.apache.jena.rdf.model.ResourceFactory;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.topbraid.spin.arq.ARQFactory;
 import org.topbraid.spin.model.Select;
 
 /**
@@ -74,7 +74,7 @@ public class ApplyConstructWithChunkedValuesAndScrollableCursorModule extends Ap
     }
 
     private ResultSet getSelectQueryResultSet() {
-        Query query = ARQFactory.get().createQuery(selectQuery);
+        Query query = QueryCache.get().getQuery(selectQuery);
 
         QuerySolution inputBindings = executionContext.getVariablesBinding().asQuerySolution();
 
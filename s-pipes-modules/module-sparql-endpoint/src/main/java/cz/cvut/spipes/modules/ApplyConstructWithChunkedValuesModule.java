@@ -4,6 +4,7 @@ import cz.cvut.spipes.constants.KBSS_MODULE;
 import cz.cvut.spipes.constants.SML;
 import cz.cvut.spipes.engine.VariablesBinding;
 import cz.cvut.spipes.modules.annotations.SPipesModule;
+import cz.cvut.spipes.util.QueryCache;
 import cz.cvut.spipes.util.QueryUtils;
 import java.util.Objects;
 import org.apache.jena.query.Query;
@@ -17,7 +18,6 @@ import org.apache.jena.rdf.model.ResourceFactory;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.topbraid.spin.arq.ARQFactory;
 import org.topbraid.spin.model.Select;
 
 /**
@@ -66,7 +66,7 @@ public class ApplyConstructWithChunkedValuesModule extends ApplyConstructAbstrac
     }
 
     public void initializeQuery() {
-        Query query = ARQFactory.get().createQuery(selectQuery);
+        Query query = QueryCache.get().getQuery(selectQuery);
 
         QuerySolution inputBindings = executionContext.getVariablesBinding().asQuerySolution();
 
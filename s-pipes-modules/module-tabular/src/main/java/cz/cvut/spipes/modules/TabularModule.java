@@ -31,8 +31,9 @@ import org.supercsv.io.ICsvListReader;
 import org.supercsv.prefs.CsvPreference;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
@@ -247,9 +248,7 @@ public class TabularModule extends AbstractModule {
             delimiter,
             System.lineSeparator()).build();
 
-        try {
-            ICsvListReader listReader = getCsvListReader(csvPreference);
-
+        try (ICsvListReader listReader = getCsvListReader(csvPreference)) {
             if (listReader == null) {
                 logMissingQuoteError();
                 return getExecutionContext(inputModel, outputModel);
@@ -268,7 +267,6 @@ public class TabularModule extends AbstractModule {
 
             if (skipHeader) {
                 header = getHeaderFromSchema(inputModel, header, hasInputSchema);
-                listReader = new CsvListReader(getReader(), csvPreference);
             } else if (hasInputSchema) {
                 header = getHeaderFromSchema(inputModel, header, true);
             }
@@ -294,48 +292,15 @@ public class TabularModule extends AbstractModule {
                 if (isDuplicate) throwNotUniqueException(schemaColumn, columnTitle, columnName);
             }
 
-            List<String> row;
-            int rowNumber = 0;
-            //for each row
-            while ((row = listReader.read()) != null) {
-                rowNumber++;
-                // 4.6.1 and 4.6.3
-                Row r = new Row();
-
-                if (outputMode == Mode.STANDARD) {
-                    // 4.6.2
-                    table.getRows().add(r);
-                    // 4.6.4
-                    r.setRownum(rowNumber);
-                    // 4.6.5
-                    r.setUrl(sourceResource.getUri() + "#row=" + (rowNumber + 1));
-                }
-
-                // 4.6.6 - Add titles.
-                // We do not support titles.
-
-                // 4.6.7
-                // In standard mode only, emit the triples generated by running
-                // the algorithm specified in section 6. JSON-LD to RDF over any
-                // non-core annotations specified for the row, with node R as
-                // an initial subject, the non-core annotation as property, and the
-                // value of the non-core annotation as value.
-
-                for (int i = 0; i < header.length; i++) {
-                    // 4.6.8.1
-                    Column column = outputColumns.get(i);
-                    String cellValue = getValueFromRow(row, i, header.length, rowNumber);
-                    if (cellValue != null) rowStatements.add(createRowResource(cellValue, rowNumber, column));
-                    // 4.6.8.2
-                    r.setDescribes(tableSchema.createAboutUrl(rowNumber));
-                    //TODO: URITemplate
-
-                    // 4.6.8.5 - else, if value is list and cellOrdering == true
-                    // 4.6.8.6 - else, if value is list
-                    // 4.6.8.7 - else, if cellValue is not null
+            if (skipHeader) {
+                // the first line is a row, so rows are read by a new reader from the beginning of the resource
+                listReader.close();
+                try (ICsvListReader rowReader = new CsvListReader(getReader(), csvPreference)) {
+                    readRows(rowReader, header, outputColumns, rowStatements);
                 }
+            } else {
+                readRows(listReader, header, outputColumns, rowStatements);
             }
-            listReader.close();
         } catch (IOException | MissingArgumentException e) {
             LOG.error("Error while reading file from resource uri {}", sourceResource, e);
         }
@@ -379,6 +344,53 @@ public class TabularModule extends AbstractModule {
         return getExecutionContext(inputModel, outputModel);
     }
 
+    private void readRows(ICsvListReader listReader,
+                          String[] header,
+                          List<Column> outputColumns,
+                          List<Statement> rowStatements) throws IOException {
+        List<String> row;
+        int rowNumber = 0;
+        //for each row
+        while ((row = listReader.read()) != null) {
+            rowNumber++;
+            // 4.6.1 and 4.6.3
+            Row r = new Row();
+
+            if (outputMode == Mode.STANDARD) {
+                // 4.6.2
+                table.getRows().add(r);
+                // 4.6.4
+                r.setRownum(rowNumber);
+                // 4.6.5
+                r.setUrl(sourceResource.getUri() + "#row=" + (rowNumber + 1));
+            }
+
+            // 4.6.6 - Add titles.
+            // We do not support titles.
+
+            // 4.6.7
+            // In standard mode only, emit the triples generated by running
+            // the algorithm specified in section 6. JSON-LD to RDF over any
+            // non-core annotations specified for the row, with node R as
+            // an initial subject, the non-core annotation as property, and the
+            // value of the non-core annotation as value.
+
+            for (int i = 0; i < header.length; i++) {
+                // 4.6.8.1
+                Column column = outputColumns.get(i);
+                String cellValue = getValueFromRow(row, i, header.length, rowNumber);
+                if (cellValue != null) rowStatements.add(createRowResource(cellValue, rowNumber, column));
+                // 4.6.8.2
+                r.setDescribes(tableSchema.createAboutUrl(rowNumber));
+                //TODO: URITemplate
+
+                // 4.6.8.5 - else, if value is list and cellOrdering == true
+                // 4.6.8.6 - else, if value is list
+                // 4.6.8.7 - else, if cellValue is not null
+            }
+        }
+    }
+
     private String getValueFromRow(List<String> row, int index, int expectedRowLength, int currentRecordNumber) {
         try {
             return row.get(index);
@@ -600,7 +612,11 @@ public class TabularModule extends AbstractModule {
     }
 
     private Reader getReader() {
-        return new StringReader(new String(sourceResource.getContent(), inputCharset));
+        try {
+            return new InputStreamReader(sourceResource.getInputStream(), inputCharset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read source resource " + sourceResource.getUri(), e);
+        }
     }
 
     @NotNull
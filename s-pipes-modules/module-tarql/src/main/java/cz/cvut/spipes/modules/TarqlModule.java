@@ -23,6 +23,7 @@ import org.topbraid.spin.model.Construct;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -87,7 +88,9 @@ public class TarqlModule extends AbstractModule {
 
             try {
                 File tabularDataFile = File.createTempFile("output", ".tabular.txt");
-                Files.write(res.getContent(), tabularDataFile);
+                try (InputStream is = res.getInputStream()) {
+                    java.nio.file.Files.copy(is, tabularDataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
                 tabularDataFilePath = tabularDataFile.getAbsolutePath();
             } catch (IOException e) {
                 throw new RuntimeException("Could not write tabular data stream to temporary file: {}", e);
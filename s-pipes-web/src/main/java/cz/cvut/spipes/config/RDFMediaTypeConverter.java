@@ -1,8 +1,10 @@
 package cz.cvut.spipes.config;
 
 import cz.cvut.spipes.util.RDFMimeType;
+import cz.cvut.spipes.util.StreamingModelWriter;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFLanguages;
 import org.slf4j.Logger;
 import org.springframework.http.HttpInputMessage;
@@ -28,15 +30,21 @@ public class RDFMediaTypeConverter extends AbstractHttpMessageConverter {
                 RDFMimeType.transform(RDFLanguages.NTRIPLES),
                 RDFMimeType.transform(RDFLanguages.TURTLE),
                 RDFMimeType.transform(RDFLanguages.RDFXML),
-                RDFMimeType.transform(RDFLanguages.JSONLD)
+                RDFMimeType.transform(RDFLanguages.JSONLD),
+                RDFMimeType.transform(RDFLanguages.NQUADS),
+                RDFMimeType.transform(RDFLanguages.THRIFT)
         );
     }
 
     private String getRDFLanguageForContentType( final HttpMessage m, final String defaultValue) {
+        return getLangForContentType(m, defaultValue).getLabel();
+    }
+
+    private Lang getLangForContentType( final HttpMessage m, final String defaultValue) {
         LOG.debug("Getting RDF Language for content type " + m + ", message: " + defaultValue);
         MediaType contentType = m.getHeaders().getContentType();
         if ( contentType == null ) { contentType = MediaType.parseMediaType(defaultValue); }
-        return RDFLanguages.contentTypeToLang(contentType.toString().split(";")[0]).getLabel();
+        return RDFLanguages.contentTypeToLang(contentType.toString().split(";")[0]);
     }
 
     @Override
@@ -60,7 +68,13 @@ public class RDFMediaTypeConverter extends AbstractHttpMessageConverter {
         } else {
             throw new UnsupportedOperationException();
         }
-        ((Model) o).write(httpOutputMessage.getBody(), getRDFLanguageForContentType(httpOutputMessage, RDFMimeType.LD_JSON_STRING));
+        Lang lang = getLangForContentType(httpOutputMessage, RDFMimeType.LD_JSON_STRING);
+        if (StreamingModelWriter.isStreamable(lang)) {
+            // output is flushed while written, so that client does not wait for serialization of whole model
+            StreamingModelWriter.write((Model) o, httpOutputMessage.getBody(), lang);
+        } else {
+            ((Model) o).write(httpOutputMessage.getBody(), lang.getLabel());
+        }
     }
 
     @Override
@@ -0,0 +1,112 @@
+package cz.cvut.spipes.rest;
+
+import cz.cvut.spipes.job.Job;
+import cz.cvut.spipes.job.JobManager;
+import cz.cvut.spipes.job.JobStatus;
+import cz.cvut.spipes.util.RDFMimeType;
+import cz.cvut.spipes.util.RawJson;
+import org.apache.jena.riot.RDFLanguages;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Provides status and results of asynchronous executions submitted by {@link SPipesServiceController}.
+ */
+@RestController
+@EnableWebMvc
+public class JobController {
+
+    private static final List<MediaType> RESULT_MEDIA_TYPES = Arrays.asList(
+        MediaType.parseMediaType(RDFMimeType.LD_JSON_STRING + ";charset=utf-8"),
+        MediaType.parseMediaType(RDFMimeType.N_TRIPLES_STRING),
+        MediaType.parseMediaType(RDFMimeType.RDF_XML_STRING),
+        MediaType.parseMediaType(RDFMimeType.TURTLE_STRING),
+        MediaType.parseMediaType(RDFMimeType.N_QUADS_STRING),
+        MediaType.parseMediaType(RDFMimeType.RDF_THRIFT_STRING)
+    );
+
+    /**
+     * @return queue depth, number of running jobs and wait times of jobs
+     */
+    @GetMapping(
+        value = "/jobs",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public RawJson getJobStatistics() {
+        return new RawJson(JobManager.getInstance().statisticsToJson().toString());
+    }
+
+    @GetMapping(
+        value = "/jobs/{id}",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<RawJson> getJob(@PathVariable("id") String id) {
+        Job job = JobManager.getInstance().getJob(id);
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(new RawJson(job.toJson().toString()), HttpStatus.OK);
+    }
+
+    /**
+     * Writes result of the job from its file, status 409 if the job is not finished or failed.
+     */
+    @GetMapping(
+        value = "/jobs/{id}/result",
+        produces = {
+            RDFMimeType.LD_JSON_STRING + ";charset=utf-8",
+            RDFMimeType.N_TRIPLES_STRING,
+            RDFMimeType.RDF_XML_STRING,
+            RDFMimeType.TURTLE_STRING,
+            RDFMimeType.N_QUADS_STRING,
+            RDFMimeType.RDF_THRIFT_STRING
+        }
+    )
+    public void getJobResult(@PathVariable("id") String id,
+                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                             HttpServletResponse response) throws IOException {
+        JobManager jobManager = JobManager.getInstance();
+        Job job = jobManager.getJob(id);
+        if (job == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (job.getStatus() != JobStatus.succeeded) {
+            response.setStatus(HttpStatus.CONFLICT.value());
+            return;
+        }
+        MediaType mediaType = selectResultMediaType(accept);
+        response.setContentType(mediaType.toString());
+        jobManager.writeResult(job, response.getOutputStream(), RDFLanguages.contentTypeToLang(mediaType.toString().split(";")[0]));
+    }
+
+    /**
+     * @return the most preferred accepted media type of results, JSON-LD if any type is accepted
+     */
+    static MediaType selectResultMediaType(String accept) {
+        if (accept != null) {
+            List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(acceptedTypes);
+            for (MediaType acceptedType : acceptedTypes) {
+                for (MediaType resultType : RESULT_MEDIA_TYPES) {
+                    if (acceptedType.includes(resultType)) {
+                        return resultType;
+                    }
+                }
+            }
+        }
+        return RESULT_MEDIA_TYPES.get(0);
+    }
+}
@@ -0,0 +1,53 @@
+package cz.cvut.spipes.rest;
+
+import cz.cvut.spipes.job.JobManager;
+import cz.cvut.spipes.metrics.ExecutionTrace;
+import cz.cvut.spipes.metrics.MetricsRegistry;
+import cz.cvut.spipes.util.RawJson;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Exposes metrics of module executions recorded by {@link cz.cvut.spipes.metrics.MetricsProgressListener}
+ * and metrics of asynchronous jobs.
+ */
+@RestController
+@EnableWebMvc
+public class MetricsController {
+
+    private static final String TEXT_EXPOSITION_FORMAT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @RequestMapping(
+        value = "/metrics",
+        method = RequestMethod.GET,
+        produces = TEXT_EXPOSITION_FORMAT
+    )
+    public String getMetrics() throws IOException {
+        StringWriter writer = new StringWriter();
+        MetricsRegistry.getInstance().writeTextExposition(writer);
+        JobManager.getInstance().writeTextExposition(writer);
+        return writer.toString();
+    }
+
+    @RequestMapping(
+        value = "/metrics/traces/{pipelineExecutionId}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<RawJson> getTrace(@PathVariable("pipelineExecutionId") long pipelineExecutionId) {
+        ExecutionTrace trace = MetricsRegistry.getInstance().getTrace(pipelineExecutionId);
+        if (trace == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(new RawJson(trace.toJson().toString()), HttpStatus.OK);
+    }
+}
@@ -1,13 +1,20 @@
 package cz.cvut.spipes.rest;
 
 import cz.cvut.spipes.config.ExecutionConfig;
+import cz.cvut.spipes.config.ResultCacheConfig;
 import cz.cvut.spipes.engine.*;
 import cz.cvut.spipes.exception.SPipesServiceException;
+import cz.cvut.spipes.job.Job;
+import cz.cvut.spipes.job.JobManager;
 import cz.cvut.spipes.manager.SPipesScriptManager;
 import cz.cvut.spipes.modules.Module;
+import cz.cvut.spipes.registry.StreamResourceRegistry;
 import cz.cvut.spipes.rest.util.*;
 import cz.cvut.spipes.util.JenaUtils;
 import cz.cvut.spipes.util.RDFMimeType;
+import cz.cvut.spipes.util.RawJson;
+import cz.cvut.spipes.util.RestUtils;
+import cz.cvut.spipes.util.ServiceResultCache;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import org.apache.jena.query.QuerySolution;
@@ -15,13 +22,20 @@ import org.apache.jena.query.QuerySolutionMap;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.util.FileUtils;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -30,9 +44,14 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @EnableWebMvc
@@ -55,12 +74,14 @@ public class SPipesServiceController {
             RDFMimeType.LD_JSON_STRING,
             RDFMimeType.N_TRIPLES_STRING,
             RDFMimeType.RDF_XML_STRING,
-            RDFMimeType.TURTLE_STRING
+            RDFMimeType.TURTLE_STRING,
+            RDFMimeType.N_QUADS_STRING,
+            RDFMimeType.RDF_THRIFT_STRING
         }
     )
     public Model processGetRequest(@RequestParam MultiValueMap<String, String> parameters) {
         LOG.info("Processing GET request.");
-        return runModule(ModelFactory.createDefaultModel(), parameters);
+        return withPinnedStreamResources(parameters, () -> runModule(ModelFactory.createDefaultModel(), parameters));
     }
 
     @ApiOperation(
@@ -78,7 +99,9 @@ public class SPipesServiceController {
             RDFMimeType.LD_JSON_STRING,
             RDFMimeType.N_TRIPLES_STRING,
             RDFMimeType.RDF_XML_STRING,
-            RDFMimeType.TURTLE_STRING
+            RDFMimeType.TURTLE_STRING,
+            RDFMimeType.N_QUADS_STRING,
+            RDFMimeType.RDF_THRIFT_STRING
         }
     )
     public Model processPostRequest(
@@ -107,7 +130,7 @@ public class SPipesServiceController {
     ) {
         LOG.info("Processing POST request.");
         // TODO process internal params passed arguments not parameters map
-        return runModule(inputModel, parameters);
+        return withPinnedStreamResources(parameters, () -> runModule(inputModel, parameters));
     }
 
     @GetMapping(
@@ -116,12 +139,20 @@ public class SPipesServiceController {
             RDFMimeType.LD_JSON_STRING + ";charset=utf-8",
             RDFMimeType.N_TRIPLES_STRING,
             RDFMimeType.RDF_XML_STRING,
-            RDFMimeType.TURTLE_STRING
+            RDFMimeType.TURTLE_STRING,
+            RDFMimeType.N_QUADS_STRING,
+            RDFMimeType.RDF_THRIFT_STRING
         }
     )
-    public Model processServiceGetRequest(@RequestParam MultiValueMap<String, String> parameters) {
+    public ResponseEntity<Model> processServiceGetRequest(
+        @RequestParam MultiValueMap<String, String> parameters,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         LOG.info("Processing service GET request.");
-        return runService(ModelFactory.createDefaultModel(), parameters);
+        if (!ResultCacheConfig.isEnabled()) {
+            return ResponseEntity.ok(withPinnedStreamResources(parameters, () -> runService(ModelFactory.createDefaultModel(), parameters)));
+        }
+        return withPinnedStreamResources(parameters, () -> runCachedService(parameters, ifNoneMatch));
     }
 
     /**
@@ -137,7 +168,9 @@ public class SPipesServiceController {
             RDFMimeType.LD_JSON_STRING + ";charset=utf-8",
             RDFMimeType.N_TRIPLES_STRING,
             RDFMimeType.RDF_XML_STRING,
-            RDFMimeType.TURTLE_STRING
+            RDFMimeType.TURTLE_STRING,
+            RDFMimeType.N_QUADS_STRING,
+            RDFMimeType.RDF_THRIFT_STRING
         }
     )
     public Model processServicePostRequest(@RequestParam MultiValueMap<String, String> parameters,
@@ -153,14 +186,58 @@ public class SPipesServiceController {
             );
 
         LOG.info("Processing service POST request, with {} multipart file(s).", files.length);
-        Model model =  runService(ModelFactory.createDefaultModel(), newParameters);
-        if (! newStreamResources.isEmpty()) {
-            LOG.info(
-                "Loosing reference to stream resources: " +
-                newStreamResources.stream().map(StreamResourceDTO::getId).collect(Collectors.toList())
-            );
+        try {
+            return withPinnedStreamResources(newParameters, () -> runService(ModelFactory.createDefaultModel(), newParameters));
+        } finally {
+            if (! newStreamResources.isEmpty()) {
+                LOG.info(
+                    "Releasing stream resources: " +
+                    newStreamResources.stream().map(StreamResourceDTO::getId).collect(Collectors.toList())
+                );
+                newStreamResources.forEach(r -> StreamResourceRegistry.getInstance().unregisterResource(r.getId()));
+            }
         }
-        return model;
+    }
+
+    /**
+     * Submits asynchronous execution of the service, see {@link JobController} for status and result of the job.
+     *
+     * @param parameters url query parameters, same as for GET request of "/service"
+     * @return description of the submitted job
+     */
+    @PostMapping(
+        value = "/jobs/service",
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<RawJson> submitServiceJob(@RequestParam MultiValueMap<String, String> parameters) {
+        LOG.info("Submitting service job.");
+        MultiValueMap<String, String> jobParameters = new LinkedMultiValueMap<>(parameters);
+        Job job = submitJob(jobParameters, () -> runService(ModelFactory.createDefaultModel(), jobParameters));
+        return createSubmittedJobResponse(job);
+    }
+
+    /**
+     * Submits asynchronous execution of the module, see {@link JobController} for status and result of the job.
+     *
+     * @param parameters url query parameters, same as for POST request of "/module"
+     * @return description of the submitted job
+     */
+    @PostMapping(
+        value = "/jobs/module",
+        consumes = {
+            RDFMimeType.LD_JSON_STRING,
+            RDFMimeType.N_TRIPLES_STRING,
+            RDFMimeType.RDF_XML_STRING,
+            RDFMimeType.TURTLE_STRING
+        },
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<RawJson> submitModuleJob(@RequestBody Model inputModel,
+                                                   @RequestParam MultiValueMap<String, String> parameters) {
+        LOG.info("Submitting module job.");
+        MultiValueMap<String, String> jobParameters = new LinkedMultiValueMap<>(parameters);
+        Job job = submitJob(jobParameters, () -> runModule(inputModel, jobParameters));
+        return createSubmittedJobResponse(job);
     }
 
     @ExceptionHandler
@@ -169,6 +246,49 @@ public class SPipesServiceController {
         return Collections.singletonMap("message", e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> jobRejectedHandler(RejectedExecutionException e) {
+        return Collections.singletonMap("message", e.getMessage());
+    }
+
+    /**
+     * Submits the job, stream resources referenced by parameters are pinned until the job is finished.
+     */
+    private Job submitJob(final MultiValueMap<String, String> parameters, final Supplier<Model> execution) {
+        StreamResourceRegistry.Lease lease = pinStreamResources(parameters);
+        try {
+            return JobManager.getInstance().submit(() -> {
+                try (StreamResourceRegistry.Lease jobLease = lease) {
+                    return execution.get();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the request, stream resources referenced by parameters cannot be evicted during the execution.
+     */
+    private <T> T withPinnedStreamResources(final MultiValueMap<String, String> parameters, final Supplier<T> execution) {
+        try (StreamResourceRegistry.Lease lease = pinStreamResources(parameters)) {
+            return execution.get();
+        }
+    }
+
+    private StreamResourceRegistry.Lease pinStreamResources(final MultiValueMap<String, String> parameters) {
+        return StreamResourceRegistry.getInstance().pinResources(
+            parameters.values().stream().flatMap(List::stream).collect(Collectors.toList())
+        );
+    }
+
+    private ResponseEntity<RawJson> createSubmittedJobResponse(Job job) {
+        final HttpHeaders headers = RestUtils.createLocationHeaderFromContextPath("/jobs/{id}", job.getId());
+        return new ResponseEntity<>(new RawJson(job.toJson().toString()), headers, HttpStatus.ACCEPTED);
+    }
+
     private QuerySolution transform(final MultiValueMap<String, String> parameters) {
         final QuerySolutionMap querySolution = new QuerySolutionMap();
 
@@ -192,6 +312,96 @@ public class SPipesServiceController {
         Model configModel = extractConfigurationModel(parameters);
         ExecutionContext inputExecutionContext = extractInputExecutionContext(inputDataModel, parameters);
 
+        return executeService(id, outputBindingPath, configModel, inputExecutionContext);
+    }
+
+    /**
+     * Runs the service using {@link ServiceResultCache} if its function declares max age of cached results.
+     * Executions saving output binding are not cached, as they have a side effect.
+     */
+    private ResponseEntity<Model> runCachedService(final MultiValueMap<String, String> parameters, String ifNoneMatch) {
+        LOG.info("- parameters={}", parameters);
+
+        String id = extractId(parameters);
+
+        File outputBindingPath = extractOutputBindingPath(parameters);
+        Model configModel = extractConfigurationModel(parameters);
+        ExecutionContext inputExecutionContext = extractInputExecutionContext(ModelFactory.createDefaultModel(), parameters);
+
+        ContextLoaderHelper.updateContextsIfNecessary(scriptManager);
+        long maxAgeSeconds = scriptManager.getResultCacheMaxAgeSeconds(id);
+        if (outputBindingPath != null || maxAgeSeconds <= 0) {
+            return ResponseEntity.ok(executeService(id, outputBindingPath, configModel, inputExecutionContext));
+        }
+
+        ServiceResultCache cache = ServiceResultCache.get();
+        ServiceResultCache.CachedResult result;
+        Model outputModel = null;
+        try {
+            String key = ServiceResultCache.computeKey(
+                scriptManager.getFunctionUri(id),
+                inputExecutionContext.getVariablesBinding(),
+                inputExecutionContext.getDefaultModel(),
+                scriptManager.getScriptsVersion()
+            );
+            result = cache.getResult(key);
+            if (result != null && !matchesETag(ifNoneMatch, result.getETag())) {
+                outputModel = cache.getModel(result);
+                if (outputModel == null) {
+                    LOG.info("Cached result {} was removed while it was read.", key);
+                    result = null;
+                }
+            }
+            if (result == null) {
+                outputModel = executeService(id, null, configModel, inputExecutionContext);
+                result = cache.putResult(key, outputModel, TimeUnit.SECONDS.toMillis(maxAgeSeconds));
+            } else {
+                LOG.info("Returning cached result {}.", key);
+            }
+        } catch (IOException e) {
+            throw new SPipesServiceException("Cannot cache result of function with id=" + id + ".", e);
+        }
+
+        CacheControl cacheControl = CacheControl.maxAge(
+            result.getRemainingMaxAgeSeconds(System.currentTimeMillis()),
+            TimeUnit.SECONDS
+        );
+        // entity tag is same for all RDF formats, so shared caches must distinguish responses by the Accept header
+        if (matchesETag(ifNoneMatch, result.getETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(result.getETag())
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+        }
+        return ResponseEntity.ok()
+            .eTag(result.getETag())
+            .cacheControl(cacheControl)
+            .varyBy(HttpHeaders.ACCEPT)
+            .body(outputModel);
+    }
+
+    /**
+     * Weak comparison of entity tags of the If-None-Match header with the entity tag.
+     */
+    private boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Model executeService(final String id,
+                                 final File outputBindingPath,
+                                 final Model configModel,
+                                 final ExecutionContext inputExecutionContext) {
         ExecutionEngine engine = createExecutionEngine(configModel);
 
         // EXECUTE PIPELINE
@@ -349,7 +559,8 @@ public class SPipesServiceController {
     Model loadModelFromUrl(@NotNull String modelUrl) {
         final Model outputModel = ModelFactory.createDefaultModel();
         try {
-            outputModel.read(modelUrl, FileUtils.langTurtle);
+            // snapshots of models might be stored in other formats than Turtle, see AuditConfig#getSnapshotFormat
+            RDFDataMgr.read(outputModel, modelUrl, Lang.TURTLE);
         } catch (Exception e) {
             throw new SPipesServiceException("Could not load model from URL " + modelUrl + ".");
         }
@@ -359,7 +570,12 @@ public class SPipesServiceController {
     private void extendBindingFromURL(VariablesBinding inputVariablesBinding, URL inputBindingURL) {
         try {
             final VariablesBinding vb2 = new VariablesBinding();
-            vb2.load(inputBindingURL.openStream(), FileUtils.langTurtle);
+            final Lang lang = RDFLanguages.filenameToLang(inputBindingURL.getPath(), Lang.TURTLE);
+            InputStream is = inputBindingURL.openStream();
+            if (inputBindingURL.getPath().endsWith(".gz")) {
+                is = new GZIPInputStream(is);
+            }
+            vb2.load(is, lang.getName());
             VariablesBinding vb3 = inputVariablesBinding.extendConsistently(vb2);
             if (vb3.isEmpty()) {
                 LOG.debug("- no conflict between bindings loaded from '{}' and those provided in query string.",
@@ -3,7 +3,6 @@ package cz.cvut.spipes.rest;
 import cz.cvut.spipes.registry.StreamResourceRegistry;
 import cz.cvut.spipes.rest.util.ResourceRegisterHelper;
 import cz.cvut.spipes.util.RestUtils;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -66,19 +65,16 @@ public class StreamResourceController {
             produces = MediaType.APPLICATION_JSON_VALUE
     )
     public ResponseEntity<StreamResourceDTO> registerStreamResource2(@RequestHeader(value = "Content-type") String contentType, @RequestParam("file") MultipartFile file) throws IOException {
-        InputStream fis = file.getInputStream();
-        String body = IOUtils.toString(fis, "UTF-8");
-        IOUtils.closeQuietly(fis);
-
         StreamResourceDTO res = new StreamResourceDTO(
                 UUID.randomUUID().toString(),
                 StreamResourceRegistry.getInstance().getPERSISTENT_CONTEXT_PREFIX(),
                 resourceRegisterHelper.getRegisteredResourceLocation()
         );
 
-        LOG.info("Registering new stream resource with url {} " + res.getPersistentUri());
-        StreamResourceRegistry.getInstance().registerResource(res.getId(), IOUtils.toByteArray(fis), contentType);
-        //LOG.debug("Resource content : {}", body);
+        LOG.info("Registering new stream resource with url {} ", res.getPersistentUri());
+        try (InputStream fis = file.getInputStream()) {
+            StreamResourceRegistry.getInstance().registerResource(res.getId(), fis, contentType);
+        }
 
         final HttpHeaders headers = RestUtils.createLocationHeaderFromCurrentUri("/{id}", res.getId());
         return new ResponseEntity<StreamResourceDTO>(res, headers, HttpStatus.CREATED);
@@ -4,10 +4,13 @@ import cz.cvut.spipes.config.ContextLoaderConfig;
 import cz.cvut.spipes.manager.OntoDocManager;
 import cz.cvut.spipes.manager.OntologyDocumentManager;
 import cz.cvut.spipes.manager.SPipesScriptManager;
+import cz.cvut.spipes.manager.ScriptDirectoryWatcher;
 import cz.cvut.spipes.util.CoreConfigProperies;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import org.apache.jena.util.LocationMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,23 +19,62 @@ public class ContextLoaderHelper {
 
     private static final Logger LOG = LoggerFactory.getLogger(ContextLoaderHelper.class);
 
+    private static ScriptDirectoryWatcher scriptDirectoryWatcher = null;
+
     // TODO should not point to scriptManager
     public static void updateContextsIfNecessary(SPipesScriptManager scriptManager) {
         if (isKeepUpdated()) {
-            LOG.warn("Updating contexts which is not thread safe -- don't use in in production environment.");
-            OntologyDocumentManager ontoDocManager = OntoDocManager.getInstance();
-            OntoDocManager.setReloadFiles(true);
-            List<String> globalScripts = ContextLoaderHelper.registerGlobalScripts(ontoDocManager);
-            scriptManager.reloadScripts(globalScripts);
+            startWatching(scriptManager);
         }
     }
 
+    /**
+     * Starts watching script directories in background, so that changed scripts are reloaded
+     * without accessing the file system from request threads. Calling the method repeatedly has no effect.
+     *
+     * @param scriptManager script manager to be updated on changes of script files
+     */
+    public static synchronized void startWatching(SPipesScriptManager scriptManager) {
+        if (scriptDirectoryWatcher != null) {
+            return;
+        }
+        OntologyDocumentManager ontoDocManager = OntoDocManager.getInstance();
+        scriptDirectoryWatcher = new ScriptDirectoryWatcher(
+                ContextLoaderConfig.getScriptPaths(),
+                ontoDocManager.getSupportedFileExtensions(),
+                changedFiles -> reloadChangedScripts(scriptManager, ontoDocManager, changedFiles),
+                ContextLoaderConfig.getWatchDebounceMillis(),
+                ContextLoaderConfig.getWatchPollIntervalMillis(),
+                ContextLoaderConfig.isWatchPollingForced()
+        );
+        scriptDirectoryWatcher.start();
+    }
+
+    private static void reloadChangedScripts(SPipesScriptManager scriptManager,
+                                             OntologyDocumentManager ontoDocManager,
+                                             Set<Path> changedFiles) {
+        // registration must not run concurrently with reads of documents by request threads
+        scriptManager.reloadScripts(() -> {
+            changedFiles.forEach(f -> {
+                if (Files.exists(f)) {
+                    ontoDocManager.registerDocuments(f);
+                } else {
+                    ontoDocManager.unregisterDocuments(f);
+                }
+            });
+            return listGlobalScripts(ontoDocManager);
+        });
+    }
+
     public static List<String> registerGlobalScripts(OntologyDocumentManager ontDocManager) {
         List<Path> scriptPaths = ContextLoaderConfig.getScriptPaths();
         scriptPaths.forEach(
                 ontDocManager::registerDocuments
         );
+        return listGlobalScripts(ontDocManager);
+    }
 
+    private static List<String> listGlobalScripts(OntologyDocumentManager ontDocManager) {
         LocationMapper locMapper = ontDocManager.getOntDocumentManager().getFileManager().getLocationMapper();
 
         List<String> _globalScripts = new LinkedList<>();
@@ -77,7 +77,7 @@ public class MultipartFileResourceResolver {
                 if (multipartFileOptional.isPresent()) {
                     MultipartFile multipartFile = multipartFileOptional.get();
                     try {
-                        StreamResourceDTO res = resourceRegisterHelper.registerStreamResource(multipartFile.getContentType(), multipartFile.getInputStream());
+                        StreamResourceDTO res = resourceRegisterHelper.registerStreamResource(multipartFile);
                         newStreamResources.add(res);
                         newParameters.replace(e.getKey(), Collections.singletonList(res.getPersistentUri()));
                     } catch (IOException ex) {
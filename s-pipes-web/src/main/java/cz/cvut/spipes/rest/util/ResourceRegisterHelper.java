@@ -3,14 +3,16 @@ package cz.cvut.spipes.rest.util;
 import cz.cvut.spipes.registry.StreamResource;
 import cz.cvut.spipes.registry.StreamResourceRegistry;
 import cz.cvut.spipes.rest.StreamResourceDTO;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.UUID;
 
 @Component
@@ -19,21 +21,13 @@ public class ResourceRegisterHelper {
     private static final Logger LOG = LoggerFactory.getLogger(ResourceRegisterHelper.class);
 
     public StreamResourceDTO registerStreamResource(String contentType, InputStream body) {
-        StreamResourceDTO res = new StreamResourceDTO(
-            UUID.randomUUID().toString(),
-            StreamResourceRegistry.getInstance().getPERSISTENT_CONTEXT_PREFIX(),
-            getRegisteredResourceLocation()
-        );
-
-        LOG.info("Registering new stream resource with id {} and url {} ", res.getId(), res.getPersistentUri());
+        StreamResourceDTO res = createStreamResourceDTO();
 
-        final byte[] data;
         try {
-            data = IOUtils.toByteArray(body);
             StreamResource streamResource = StreamResourceRegistry.getInstance()
-                .registerResource(res.getId(), data, contentType);
+                .registerResource(res.getId(), body, contentType);
             res.attachStreamResource(streamResource);
-            LOG.info("Resource content size: {}", data.length);
+            LOG.info("Resource content size: {}", streamResource.getContentLength());
         } catch (IOException e) {
             LOG.error("Unable to read payload: ", e);
         }
@@ -41,6 +35,27 @@ public class ResourceRegisterHelper {
         return res;
     }
 
+    /**
+     * Registers uploaded file as a stream resource. Content of the file is transferred to a temporary file
+     * of the registry, which is just a move if the upload is already stored on disk in the same file system.
+     */
+    public StreamResourceDTO registerStreamResource(MultipartFile file) throws IOException {
+        StreamResourceDTO res = createStreamResourceDTO();
+
+        StreamResourceRegistry registry = StreamResourceRegistry.getInstance();
+        Path targetFile = registry.createTemporaryFile();
+        try {
+            file.transferTo(targetFile.toFile());
+            res.attachStreamResource(registry.registerResource(res.getId(), targetFile, file.getContentType()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(targetFile);
+            throw e;
+        }
+        LOG.info("Resource content size: {}", file.getSize());
+
+        return res;
+    }
+
     public String getRegisteredResourceLocation() {
         String resourcesLocation = ServletUriComponentsBuilder
             .fromCurrentContextPath().path("/resources/")
@@ -48,4 +63,15 @@ public class ResourceRegisterHelper {
         StreamResourceRegistry.getInstance().registerResourcePrefix(resourcesLocation); //TODO not very effective
         return resourcesLocation;
     }
+
+    private StreamResourceDTO createStreamResourceDTO() {
+        StreamResourceDTO res = new StreamResourceDTO(
+            UUID.randomUUID().toString(),
+            StreamResourceRegistry.getInstance().getPERSISTENT_CONTEXT_PREFIX(),
+            getRegisteredResourceLocation()
+        );
+
+        LOG.info("Registering new stream resource with id {} and url {} ", res.getId(), res.getPersistentUri());
+        return res;
+    }
 }
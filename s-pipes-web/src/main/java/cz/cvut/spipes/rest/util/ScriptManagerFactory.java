@@ -16,6 +16,9 @@ public class ScriptManagerFactory {
             OntologyDocumentManager ontoDocManager = OntoDocManager.getInstance();
             List<String> globalScripts = ContextLoaderHelper.registerGlobalScripts(ontoDocManager);
             scriptManager = new SPipesScriptManager(ontoDocManager, globalScripts);
+            if (ContextLoaderHelper.isKeepUpdated()) {
+                ContextLoaderHelper.startWatching(scriptManager);
+            }
         }
         return scriptManager;
     }
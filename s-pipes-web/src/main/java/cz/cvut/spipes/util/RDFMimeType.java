@@ -8,13 +8,13 @@ public class RDFMimeType {
     public static final String RDF_XML_STRING = "application/rdf+xml";
     public static final String N_TRIPLES_STRING = "application/n-triples";
     public static final String LD_JSON_STRING = "application/ld+json";
+    public static final String N_QUADS_STRING = "application/n-quads";
+    public static final String RDF_THRIFT_STRING = "application/rdf+thrift";
 
     public static MediaType transform(Lang contentType) {
         return MediaType.parseMediaType(contentType.getContentType().getContentType());
     }
 //    TODO ?
 //    text/trig
-//    application/n-quads
 //    application/trix+xml
-//    application/rdf+thrift
 }
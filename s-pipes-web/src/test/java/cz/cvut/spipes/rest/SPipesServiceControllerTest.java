@@ -104,6 +104,8 @@ public class SPipesServiceControllerTest {
         testMimeType(RDFMimeType.TURTLE_STRING, true);
         testMimeType(RDFMimeType.LD_JSON_STRING, true);
         testMimeType(RDFMimeType.RDF_XML_STRING, true);
+        testMimeType(RDFMimeType.N_QUADS_STRING, true);
+        testMimeType(RDFMimeType.RDF_THRIFT_STRING, true);
     }
 
     private void testMimeType( final String mimeType, boolean pass ) throws Exception {